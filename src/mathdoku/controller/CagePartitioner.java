@@ -0,0 +1,270 @@
+package mathdoku.controller;
+
+import mathdoku.model.Table;
+
+import java.util.*;
+
+/**
+ * Represents a partitioner that divides a table into cages.
+ * Places random polyomino shapes, taken from a library built once for every cage size, following a given
+ * distribution of cage sizes and rejects the layouts that look the same after a rotation or reflection.
+ */
+public class CagePartitioner {
+    private static final int MAX_ATTEMPTS = 20;
+    private static final List<List<int[][]>> shapeLibrary = new ArrayList<>();
+    private int size;
+    private double[] cageSizeWeights;
+    private SplittableRandom random;
+    private int[][] cageTable;
+    private int numberOfCages;
+
+    /**
+     * Creates a partitioner for a table with the given size.
+     *
+     * @param size            the size of the table
+     * @param cageSizeWeights the weight of every cage size, starting from a single cell cage
+     * @param random          the source of all the random choices, so that the same seed gives the same cages
+     */
+    public CagePartitioner(int size, double[] cageSizeWeights, SplittableRandom random) {
+        this.size = size;
+        this.cageSizeWeights = cageSizeWeights;
+        this.random = random;
+    }
+
+    /**
+     * Divides the table into cages and returns the ids of the cells in every cage.
+     * Tries again when the layout is symmetric, which often leads to games with more than one solution.
+     */
+    public List<List<Integer>> partition() {
+        List<List<Integer>> cages = tile();
+        for (int attempt = 1; attempt < MAX_ATTEMPTS && isSymmetric(); attempt++) cages = tile();
+        return cages;
+    }
+
+    /**
+     * Fills the table with random shapes.
+     * Every shape starts from the first cell without a cage, so it can only cover cells after it.
+     */
+    private List<List<Integer>> tile() {
+        List<List<Integer>> cages = new ArrayList<>();
+        cageTable = new int[size][size];
+        for (int[] column : cageTable) Arrays.fill(column, -1);
+        numberOfCages = 0;
+
+        for (int id = 1; id <= size * size; id++) {
+            int[] coordinates = Table.getCoordinatesOfID(id, size);
+            int i = coordinates[0];
+            int j = coordinates[1];
+            if (cageTable[i][j] != -1) continue;
+
+            //Takes a smaller shape if there is no shape of the chosen size that fits
+            int[][] shape = null;
+            for (int cageSize = chooseCageSize(); shape == null; cageSize--)
+                shape = findShape(i, j, cageSize);
+
+            List<Integer> ids = new ArrayList<>();
+            for (int[] offset : shape) {
+                cageTable[i + offset[0]][j + offset[1]] = numberOfCages;
+                ids.add((j + offset[1]) * size + i + offset[0] + 1);
+            }
+            Collections.sort(ids);
+            cages.add(ids);
+            numberOfCages++;
+        }
+        return cages;
+    }
+
+    /**
+     * Chooses a random cage size following the weights.
+     */
+    private int chooseCageSize() {
+        double totalWeight = 0;
+        for (double weight : cageSizeWeights) totalWeight += weight;
+        double chosenWeight = random.nextDouble() * totalWeight;
+        for (int k = 0; k < cageSizeWeights.length; k++) {
+            chosenWeight -= cageSizeWeights[k];
+            if (chosenWeight < 0) return k + 1;
+        }
+        return cageSizeWeights.length;
+    }
+
+    /**
+     * Finds a random shape of the given size that fits from the given cell.
+     * Prefers the shapes that do not leave a cell without any free neighbour, since it would become a single cell cage.
+     *
+     * @param i        coordinate of the first cell of the shape
+     * @param j        coordinate of the first cell of the shape
+     * @param cageSize the number of cells in the shape
+     * @return null if no shape fits
+     */
+    private int[][] findShape(int i, int j, int cageSize) {
+        List<int[][]> shapes = new ArrayList<>(getShapes(cageSize));
+        //Shuffles the shapes with the same random source every time
+        for (int k = shapes.size() - 1; k > 0; k--) Collections.swap(shapes, k, random.nextInt(k + 1));
+        int[][] fittingShape = null;
+        for (int[][] shape : shapes) {
+            if (!fits(i, j, shape)) continue;
+            if (!leavesIsolatedCell(i, j, shape)) return shape;
+            if (fittingShape == null) fittingShape = shape;
+        }
+        return fittingShape;
+    }
+
+    /**
+     * Checks if all of the cells of the shape are in the table and without a cage.
+     *
+     * @param i
+     * @param j
+     * @param shape
+     */
+    private boolean fits(int i, int j, int[][] shape) {
+        for (int[] offset : shape) {
+            int c = i + offset[0];
+            int r = j + offset[1];
+            if (c < 0 || c >= size || r < 0 || r >= size || cageTable[c][r] != -1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if placing the shape would leave a free cell with all of its neighbours taken.
+     *
+     * @param i
+     * @param j
+     * @param shape
+     */
+    private boolean leavesIsolatedCell(int i, int j, int[][] shape) {
+        for (int[] offset : shape) cageTable[i + offset[0]][j + offset[1]] = numberOfCages;
+        boolean isolated = false;
+        for (int[] offset : shape) {
+            for (int[] neighbour : getNeighbours(i + offset[0], j + offset[1])) {
+                if (cageTable[neighbour[0]][neighbour[1]] == -1 && !hasFreeNeighbour(neighbour[0], neighbour[1]))
+                    isolated = true;
+            }
+        }
+        for (int[] offset : shape) cageTable[i + offset[0]][j + offset[1]] = -1;
+        return isolated;
+    }
+
+    private boolean hasFreeNeighbour(int i, int j) {
+        for (int[] neighbour : getNeighbours(i, j)) {
+            if (cageTable[neighbour[0]][neighbour[1]] == -1) return true;
+        }
+        return false;
+    }
+
+    private List<int[]> getNeighbours(int i, int j) {
+        List<int[]> neighbours = new ArrayList<>();
+        if (j > 0) neighbours.add(new int[]{i, j - 1});
+        if (i < size - 1) neighbours.add(new int[]{i + 1, j});
+        if (j < size - 1) neighbours.add(new int[]{i, j + 1});
+        if (i > 0) neighbours.add(new int[]{i - 1, j});
+        return neighbours;
+    }
+
+    /**
+     * Checks if the layout of the cages stays the same after a rotation or a reflection of the table.
+     */
+    private boolean isSymmetric() {
+        for (int transformation = 0; transformation < 7; transformation++) {
+            if (isSymmetric(transformation)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if every cage is moved exactly on a cage by the given transformation.
+     *
+     * @param transformation one of the three rotations or four reflections of a square
+     */
+    private boolean isSymmetric(int transformation) {
+        int[] cageMap = new int[numberOfCages];
+        Arrays.fill(cageMap, -1);
+        int n = size - 1;
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++) {
+                int[] moved;
+                switch (transformation) {
+                    case 0:
+                        moved = new int[]{n - j, i};
+                        break;
+                    case 1:
+                        moved = new int[]{n - i, n - j};
+                        break;
+                    case 2:
+                        moved = new int[]{j, n - i};
+                        break;
+                    case 3:
+                        moved = new int[]{n - i, j};
+                        break;
+                    case 4:
+                        moved = new int[]{i, n - j};
+                        break;
+                    case 5:
+                        moved = new int[]{j, i};
+                        break;
+                    default:
+                        moved = new int[]{n - j, n - i};
+                }
+                int cage = cageTable[i][j];
+                int movedCage = cageTable[moved[0]][moved[1]];
+                if (cageMap[cage] == -1) cageMap[cage] = movedCage;
+                else if (cageMap[cage] != movedCage) return false;
+            }
+        return true;
+    }
+
+    /**
+     * Returns all the shapes with the given number of cells.
+     * Every shape is a list of offsets from its first cell, the one with the lowest id.
+     *
+     * @param cageSize the number of cells
+     */
+    private static synchronized List<int[][]> getShapes(int cageSize) {
+        if (shapeLibrary.isEmpty()) shapeLibrary.add(Collections.singletonList(new int[][]{{0, 0}}));
+        while (shapeLibrary.size() < cageSize) {
+            //Grows every shape of the last size by one cell in every possible direction
+            Map<String, int[][]> shapes = new LinkedHashMap<>();
+            for (int[][] shape : shapeLibrary.get(shapeLibrary.size() - 1)) {
+                for (int[] offset : shape) {
+                    int[][] directions = {{0, -1}, {1, 0}, {0, 1}, {-1, 0}};
+                    for (int[] direction : directions) {
+                        int[] newOffset = {offset[0] + direction[0], offset[1] + direction[1]};
+                        if (containsOffset(shape, newOffset)) continue;
+                        int[][] newShape = Arrays.copyOf(shape, shape.length + 1);
+                        newShape[shape.length] = newOffset;
+                        newShape = normalize(newShape);
+                        shapes.putIfAbsent(Arrays.deepToString(newShape), newShape);
+                    }
+                }
+            }
+            shapeLibrary.add(new ArrayList<>(shapes.values()));
+        }
+        return shapeLibrary.get(cageSize - 1);
+    }
+
+    private static boolean containsOffset(int[][] shape, int[] offset) {
+        for (int[] shapeOffset : shape) {
+            if (shapeOffset[0] == offset[0] && shapeOffset[1] == offset[1]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sorts the offsets in the order of the ids and moves the shape so that its first cell is at 0, 0.
+     *
+     * @param shape
+     */
+    private static int[][] normalize(int[][] shape) {
+        int[][] normalized = new int[shape.length][];
+        for (int k = 0; k < shape.length; k++) normalized[k] = shape[k].clone();
+        Arrays.sort(normalized, (a, b) -> a[1] != b[1] ? a[1] - b[1] : a[0] - b[0]);
+        int i = normalized[0][0];
+        int j = normalized[0][1];
+        for (int[] offset : normalized) {
+            offset[0] -= i;
+            offset[1] -= j;
+        }
+        return normalized;
+    }
+}
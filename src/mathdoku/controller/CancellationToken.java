@@ -0,0 +1,125 @@
+package mathdoku.controller;
+
+/**
+ * Represents the limits of a search: a time limit, a limit on the number of nodes it visits, and a flag that
+ * another thread can set to stop it. The solver asks the token at every node whether it has to stop.
+ */
+public class CancellationToken {
+    //The clock is read only every few nodes, since a node takes much less time than reading it
+    private static final int CLOCK_INTERVAL = 64;
+
+    private final long timeLimit;
+    private final long nodeLimit;
+    private final CancellationToken parent;
+    private final boolean sharesDeadline;
+    private volatile boolean cancelled;
+    private volatile long progress;
+    private long deadline;
+
+    /**
+     * Creates a token without limits, which stops a search only when it is cancelled.
+     */
+    public CancellationToken() {
+        this(0, 0);
+    }
+
+    /**
+     * Creates a token with limits.
+     *
+     * @param timeLimit the time a search can take, in milliseconds, 0 for no limit
+     * @param nodeLimit the number of nodes a search can visit, 0 for no limit
+     */
+    public CancellationToken(long timeLimit, long nodeLimit) {
+        this.timeLimit = timeLimit;
+        this.nodeLimit = nodeLimit;
+        parent = null;
+        sharesDeadline = false;
+    }
+
+    /**
+     * Creates a token with the limits of another one, which also stops a search when the other one is cancelled.
+     * Cancelling it does not cancel the other one, so one of several searches can be stopped on its own.
+     *
+     * @param parent the token whose limits and cancellation are shared
+     */
+    public CancellationToken(CancellationToken parent) {
+        timeLimit = parent.timeLimit;
+        nodeLimit = parent.nodeLimit;
+        this.parent = parent;
+        sharesDeadline = false;
+    }
+
+    /**
+     * Creates a token with a node limit of its own for every search, which also stops a search when the other one
+     * is cancelled or its time is up. The time of the other one must have been started, and is never started again.
+     *
+     * @param parent    the token whose deadline and cancellation are shared
+     * @param nodeLimit the number of nodes a search can visit, 0 for no limit
+     */
+    public CancellationToken(CancellationToken parent, long nodeLimit) {
+        timeLimit = 0;
+        this.nodeLimit = nodeLimit;
+        this.parent = parent;
+        sharesDeadline = true;
+    }
+
+    /**
+     * Stops the searches that use the token, from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+
+    /**
+     * Starts the time limit of a search.
+     */
+    void start() {
+        if (sharesDeadline) deadline = parent.deadline;
+        else deadline = timeLimit == 0 ? Long.MAX_VALUE : System.nanoTime() + timeLimit * 1_000_000;
+    }
+
+    /**
+     * Checks if a search has to stop after visiting the given number of nodes.
+     *
+     * @param nodes the number of nodes visited so far
+     * @return the reason to stop, or null if the search can go on
+     */
+    SolveResult.Status check(long nodes) {
+        if (cancelled || parent != null && parent.isCancelled()) return SolveResult.Status.CANCELLED;
+        if (nodeLimit != 0 && nodes > nodeLimit) return SolveResult.Status.TIMED_OUT;
+        return nodes % CLOCK_INTERVAL == 0 ? checkClock() : null;
+    }
+
+    /**
+     * Checks if the work before a search, such as finding the groups of the cages, has to stop.
+     * Only the time limit and the cancellation count, since the steps are not nodes of the search.
+     *
+     * @param steps the number of steps done so far
+     * @return the reason to stop, or null if the work can go on
+     */
+    SolveResult.Status checkTime(long steps) {
+        if (cancelled || parent != null && parent.isCancelled()) return SolveResult.Status.CANCELLED;
+        return steps % CLOCK_INTERVAL == 0 ? checkClock() : null;
+    }
+
+    /**
+     * Counts the progress of the search and checks if its time is up, every few nodes or steps.
+     */
+    private SolveResult.Status checkClock() {
+        //Only the thread of the search writes it, so the increment loses nothing
+        progress++;
+        return System.nanoTime() > deadline ? SolveResult.Status.TIMED_OUT : null;
+    }
+
+    /**
+     * Returns a number that grows while a search with the token goes on, for another thread that watches it.
+     * It grows once every few nodes or steps, so a search that stays the same for a while is stuck.
+     */
+    public long getProgress() {
+        return progress;
+    }
+}
@@ -1,6 +1,8 @@
 package mathdoku.controller;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
@@ -8,18 +10,21 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
-import javafx.scene.paint.Color;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import mathdoku.model.Cage;
 import mathdoku.model.Cell;
 import mathdoku.model.Table;
+import mathdoku.model.UndoLog;
 import mathdoku.view.View;
 import mathdoku.view.WinningAnimation;
 
 import javax.swing.*;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Represents the controller of the application.
@@ -28,12 +33,27 @@ import java.util.*;
 public class Controller {
 
     private static Table table;
-    private static Stack<Cell> undoCells = new Stack<>();
-    private static Stack<Cell> redoCells = new Stack<>();
     public static boolean showMistakesMode = false;
+    public static boolean pencilMode = false;
+    public static boolean autoCandidatesMode = false;
+    public static boolean continuousCheckMode = false;
+    private static final double CHECK_DELAY = 400;
+    private static final long SOLVE_TIME_LIMIT = 5000;
     private static Solver solver;
+    private static CancellationToken solveToken;
+    private static final ExecutorService tableSolver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "table-solver");
+        //The solver should never keep the application open
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static HintEngine hintEngine;
+    private static SolvabilityChecker solvabilityChecker;
+    private static PauseTransition checkPause;
 
     public static void main(String[] args) {
+        //Starts generating games in the background so that they are ready when needed
+        PuzzlePool.getInstance();
         Application.launch(args);
     }
 
@@ -41,6 +61,165 @@ public class Controller {
         return table;
     }
 
+    /**
+     * Keeps the solver of a new table and finds the steps of its hints, if the table has a solution.
+     *
+     * @param newSolver the solver with the solution of the table
+     */
+    private static void setSolver(Solver newSolver) {
+        //The solver of an earlier table is no longer needed
+        if (solveToken != null) solveToken.cancel();
+        solver = newSolver;
+        SolverCell[][] solution = solver.getSolverCellTable();
+        hintEngine = solution[0][0] == null ? null : new HintEngine(table.getAllCages(), table.getSize(), solution);
+        //The checks of the old table are stopped, and their results are no longer shown
+        if (solvabilityChecker != null) solvabilityChecker.close();
+        solvabilityChecker = null;
+        View.getInstance().setStatus("");
+    }
+
+    /**
+     * Solves a table loaded by the player on a thread of its own, giving up after a time limit so that a table
+     * that is too hard can still be played, only without hints. The table can be played without hints while
+     * it is solved, and the solver is kept once it is done, unless the table has been replaced by then.
+     */
+    private static void solveTable() {
+        Table solvedTable = table;
+        setSolver(new Solver(table.getSize()));
+        View.getInstance().setStatus("Solving the table");
+        CancellationToken token = new CancellationToken(SOLVE_TIME_LIMIT, 0);
+        solveToken = token;
+        tableSolver.execute(() -> {
+            Solver newSolver = new Solver(solvedTable.getAllCages(), solvedTable.getSize(), 1, token);
+            Platform.runLater(() -> {
+                if (table != solvedTable) return;
+                setSolver(newSolver);
+                if (newSolver.getResult().getStatus() == SolveResult.Status.TIMED_OUT)
+                    displayMessage("Solver", "The table could not be solved in " + SOLVE_TIME_LIMIT / 1000 + " seconds, so there are no hints for it.");
+            });
+        });
+    }
+
+    /**
+     * Changes the value of a cell and records the change in the undo log of the table.
+     * Does nothing if the value is the same.
+     *
+     * @param i    coordinate of the cell to change
+     * @param j    coordinate of the cell to change
+     * @param text the new value, an empty string for no value
+     */
+    private static void enterValue(int i, int j, String text) {
+        if (table.getText(i, j).equals(text)) return;
+        int cellIndex = j * table.getSize() + i;
+        table.getUndoLog().record(cellIndex, getValue(table.getText(i, j)), getValue(text));
+        table.setText(i, j, text);
+        if (hintEngine != null) hintEngine.setValue(cellIndex, getValue(text));
+        scheduleSolvabilityCheck();
+        View.getInstance().setDisableUndoItem(!table.getUndoLog().canUndo());
+        View.getInstance().setDisableRedoItem(!table.getUndoLog().canRedo());
+    }
+
+    /**
+     * Puts a value from the undo log back in its cell.
+     *
+     * @param cellIndex the index of the cell in the undo log
+     * @param value     the value, 0 for no value
+     */
+    private static void restoreValue(int cellIndex, int value) {
+        int[] coordinates = Table.getCoordinatesOfID(cellIndex + 1, table.getSize());
+        table.setText(coordinates[0], coordinates[1], value == 0 ? "" : String.valueOf(value));
+        if (hintEngine != null) hintEngine.setValue(cellIndex, value);
+        scheduleSolvabilityCheck();
+    }
+
+    private static int getValue(String text) {
+        return text.equals("") ? 0 : Integer.parseInt(text);
+    }
+
+    /**
+     * Returns the checker of the current table, creating it the first time it is needed.
+     * Creating it does not search, the searches are all done on its own thread.
+     */
+    private static SolvabilityChecker getSolvabilityChecker() {
+        if (solvabilityChecker == null) solvabilityChecker = new SolvabilityChecker(table.getAllCages(), table.getSize());
+        return solvabilityChecker;
+    }
+
+    /**
+     * Returns the values the player has entered, j * size + i, 0 for an empty cell.
+     */
+    private static int[] getEntries() {
+        int size = table.getSize();
+        int[] entries = new int[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++) entries[j * size + i] = table.getBoard().getValue(i, j);
+        return entries;
+    }
+
+    /**
+     * Checks the board in the background once the player has stopped typing for a moment,
+     * if the board is being checked while typing.
+     */
+    private static void scheduleSolvabilityCheck() {
+        if (!continuousCheckMode) return;
+        if (checkPause == null) {
+            checkPause = new PauseTransition(Duration.millis(CHECK_DELAY));
+            checkPause.setOnFinished(actionEvent -> {
+                if (table == null) return;
+                SolvabilityChecker checker = getSolvabilityChecker();
+                checker.checkInBackground(getEntries(), result -> Platform.runLater(() -> {
+                    //A result for a table that has been replaced would name cells of the old table
+                    if (checker == solvabilityChecker) View.getInstance().setStatus(getResultText(result));
+                }));
+            });
+        }
+        checkPause.playFromStart();
+    }
+
+    /**
+     * Describes the result of a solvability check, naming the conflicting cells if there are any.
+     */
+    private static String getResultText(SolvabilityChecker.Result result) {
+        if (result.isStopped()) return "The check took too long to tell whether the table is still solvable";
+        if (result.isSolvable()) return "Still solvable";
+        StringBuilder text = new StringBuilder("Not solvable, these values can not all be right");
+        //The check ran out of time before it could leave out every value that is not part of the conflict
+        if (!result.isMinimal()) text.append(", and the check ran out of time before it could narrow them down");
+        text.append(":");
+        for (int cell : result.getConflictingCells()) {
+            int[] coordinates = Table.getCoordinatesOfID(cell + 1, table.getSize());
+            text.append(" ").append(table.getBoard().getValue(coordinates[0], coordinates[1]))
+                    .append(" (row ").append(coordinates[1] + 1).append(", column ").append(coordinates[0] + 1).append(")");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Displays a message in a window.
+     *
+     * @param title   the title of the window
+     * @param message the message to display
+     */
+    private static void displayMessage(String title, String message) {
+        Stage window = new Stage();
+        window.initModality(Modality.APPLICATION_MODAL);
+        window.setTitle(title);
+        window.setMinWidth(150);
+
+        Label messageLabel = new Label(message);
+        messageLabel.setWrapText(true);
+        Button okButton = new Button("Okay");
+        okButton.setOnAction(actionEvent -> window.close());
+
+        VBox layout = new VBox(10);
+        layout.getChildren().addAll(messageLabel, okButton);
+        layout.setAlignment(Pos.CENTER);
+
+        Scene scene = new Scene(layout);
+        window.setScene(scene);
+        window.show();
+    }
+
     /**
      * Event handler attached to the Load from PC menu item.
      * Opens a menu where the user can choose a file from the PC for the creation of the table.
@@ -55,7 +234,7 @@ public class Controller {
                 file = chooser.getSelectedFile();
                 table = new Table(file);
                 //Solves the game from now
-                solver = new Solver(table);
+                solveTable();
             }
         }
     }
@@ -69,69 +248,88 @@ public class Controller {
         @Override
         public void handle(ActionEvent actionEvent) {
             showMistakesMode = true;
-            for (int i = 0; i < table.getCellTable().length; i++) table.checkColumnOrRow(table.getCellTable()[i][i]);
+            for (int i = 0; i < table.getSize(); i++) table.checkColumnOrRow(i, i);
             for (Cage cage : table.getAllCages()) cage.check();
         }
     }
 
+    /**
+     * Event handler attached to the Pencil Marks menu item.
+     * While it is checked, the values entered in a cell are marked in it instead of becoming its value.
+     */
+    public static class PencilMode implements EventHandler<ActionEvent> {
+
+        @Override
+        public void handle(ActionEvent actionEvent) {
+            pencilMode = ((CheckMenuItem) actionEvent.getSource()).isSelected();
+        }
+    }
+
+    /**
+     * Event handler attached to the Auto Candidates menu item.
+     * While it is checked, every empty cell shows the values it can still take instead of its pencil marks.
+     */
+    public static class AutoCandidates implements EventHandler<ActionEvent> {
+
+        @Override
+        public void handle(ActionEvent actionEvent) {
+            autoCandidatesMode = ((CheckMenuItem) actionEvent.getSource()).isSelected();
+            if (table == null) return;
+            table.getBoard().setAutoCandidates(autoCandidatesMode);
+            table.refreshMarks();
+        }
+    }
+
     /**
      * Event handler attached to all the cells
      * When the cell is clicked with the mouse it turns gray, indicating that it is selected
      */
     public static class CellSelected implements EventHandler<MouseEvent> {
-        private static Cell cellSelected;
-        private static final Background transparentBackground = new Background(new BackgroundFill(Color.TRANSPARENT, null, null));
-        private static final Background redBackground = new Background(new BackgroundFill(Color.RED, null, null));
-        private static final Background grayBackground = new Background(new BackgroundFill(Color.GRAY, null, null));
+        private static final double TYPING_TIMEOUT = 800;
+        private static int[] cellSelected;
+        private static StringBuilder typedValue = new StringBuilder();
+        private static PauseTransition typingPause;
 
         @Override
         public void handle(MouseEvent mouseEvent) {
+            int[] coordinates = ((Cell) mouseEvent.getSource()).getCoordinates();
+            select(coordinates[0], coordinates[1]);
+        }
 
-            //Returns the background color of the last cell selected if there is such and is not selected
-            if (cellSelected != null && !cellSelected.equals(mouseEvent.getSource())) {
-                if (cellSelected.getIsRed()) cellSelected.setBackground(redBackground);
-                else cellSelected.setBackground(transparentBackground);
-            }
+        /**
+         * Selects the cell and attaches the key and button listeners to it.
+         * Used both by the cell nodes and by the canvas of large tables.
+         *
+         * @param i coordinate of the cell to select
+         * @param j coordinate of the cell to select
+         */
+        public static void select(int i, int j) {
 
-            //Saves the old background before changing it
-            cellSelected = (Cell) mouseEvent.getSource();
+            //A value typed in the last cell is entered there before moving on
+            commitTypedValue();
 
-            //Changes the current background to gray
-            cellSelected.setBackground(grayBackground);
+            //Changes the current background to gray and returns the background color of the last cell selected
+            cellSelected = new int[]{i, j};
+            table.selectCell(i, j);
 
             View.getInstance().getScene().setOnKeyPressed(keyEvent -> {
-                //Puts the possible keys to enter in the cell
-                List<String> possibleValuesToEnter = new ArrayList<>();
-                for (int i = 1; i <= table.getCellTable().length; i++) possibleValuesToEnter.add(String.valueOf(i));
-
-                //Puts the old value in the undo stack
-                undoCells.push(cellSelected);
-                cellSelected.pushUndoValue(cellSelected.getText());
-
-                //Checks if the key entered is one of them and changes the value of the cell
-                String keyPressed = keyEvent.getCode().toString();      //e.g. "DIGIT1
+                //Checks if the key entered is a digit and adds it to the value being typed
+                String keyPressed = keyEvent.getCode().toString();      //e.g. "DIGIT1" or "NUMPAD1"
                 String digit = keyPressed.substring(keyPressed.length() - 1);   //takes last digit
-                if (possibleValuesToEnter.contains(digit)) {
-                    //Enables the undo and disables the redo items
-                    View.getInstance().setDisableUndoItem(false);
-                    View.getInstance().setDisableRedoItem(true);
-                    //Make the redo stack empty
-                    RedoListener.emptyRedoCells();
-                    //Changes the value
-                    cellSelected.setText(digit);
-
-                    //Checks for a win
-                    if (checkForWin()) new WinningAnimation();
+                if ((keyPressed.startsWith("DIGIT") || keyPressed.startsWith("NUMPAD")) && Character.isDigit(digit.charAt(0))) {
+                    typeDigit(digit);
 
+                } else if (keyPressed.equals("ENTER")) {
+                    commitTypedValue();
 
                 } else if (keyPressed.equals("BACK_SPACE")) {
-                    //Disables the redo item
-                    View.getInstance().setDisableRedoItem(true);
-                    //Changes the value
-                    cellSelected.setText("");
+                    //Changes the value, or removes the marks in pencil mode
+                    typedValue.setLength(0);
+                    if (pencilMode) clearMarks();
+                    else enterValue(cellSelected[0], cellSelected[1], "");
 
                     //It is still selected
-                    cellSelected.setBackground(grayBackground);
+                    table.selectCell(cellSelected[0], cellSelected[1]);
                 }
 
 
@@ -140,25 +338,21 @@ public class Controller {
             for (Button button : table.getButtons()) {
                 button.setOnAction(actionEvent -> {
 
-                    //Puts the old value in the undo stack
-                    undoCells.push(cellSelected);
-                    cellSelected.pushUndoValue(cellSelected.getText());
-                    //Changes the value
+                    //Marks the value or removes the marks in pencil mode
+                    if (pencilMode) {
+                        if (button.getText().equals("Backspace")) clearMarks();
+                        else toggleMark(Integer.parseInt(button.getText()));
+                        return;
+                    }
+
+                    //Changes the value and records it in the undo log
                     if (button.getText().equals("Backspace")) {
-                        //Disables the redo item
-                        View.getInstance().setDisableRedoItem(true);
-                        //Changes the value
-                        cellSelected.setText("");
+                        enterValue(cellSelected[0], cellSelected[1], "");
 
                         //It is still selected
-                        cellSelected.setBackground(grayBackground);
+                        table.selectCell(cellSelected[0], cellSelected[1]);
                     } else {
-                        //Enables the undo and disables the redo items
-                        View.getInstance().setDisableUndoItem(false);
-                        View.getInstance().setDisableRedoItem(true);
-                        //Make the redo stack empty
-                        RedoListener.emptyRedoCells();
-                        cellSelected.setText(button.getText());
+                        enterValue(cellSelected[0], cellSelected[1], button.getText());
                     }
 
                     //Checks if there is a win and activates the win animation class
@@ -169,17 +363,78 @@ public class Controller {
         }
 
         /**
-         * Checks if the user has won the game after every value entered.
-         * If there are no red cells the table is solved and the user wins.
+         * Adds a typed digit to the value of the selected cell.
+         * The value is entered at once when no other digit can follow it, and otherwise after a short pause
+         * or when enter is pressed, so that tables larger than 9 can take values with more than one digit.
+         *
+         * @param digit the digit typed
          */
-        private boolean checkForWin() {
+        private static void typeDigit(String digit) {
+            typedValue.append(digit);
+            int value = Integer.parseInt(typedValue.toString());
+            //Starts a new value from the digit if the typed one is too large
+            if (value > table.getSize()) {
+                typedValue.setLength(0);
+                typedValue.append(digit);
+                value = Integer.parseInt(digit);
+            }
 
-            for (int i = 0; i < table.getSize(); i++)
-                for (Cell cell : table.getCellTable()[i]) {
-                    if (cell.getIsRed()) return false;
-                    if (cell.getText().equals("")) return false;
+            if (value * 10 > table.getSize()) commitTypedValue();
+            else {
+                if (typingPause == null) {
+                    typingPause = new PauseTransition(Duration.millis(TYPING_TIMEOUT));
+                    typingPause.setOnFinished(actionEvent -> commitTypedValue());
                 }
-            return true;
+                typingPause.playFromStart();
+            }
+        }
+
+        /**
+         * Enters the typed value in the selected cell if it is a value of the table.
+         */
+        private static void commitTypedValue() {
+            if (typingPause != null) typingPause.stop();
+            if (typedValue.length() == 0) return;
+            int value = Integer.parseInt(typedValue.toString());
+            typedValue.setLength(0);
+            if (value < 1 || value > table.getSize()) return;
+            if (pencilMode) {
+                toggleMark(value);
+                return;
+            }
+
+            //Changes the value and records it in the undo log
+            enterValue(cellSelected[0], cellSelected[1], String.valueOf(value));
+
+            //Checks for a win
+            if (checkForWin()) new WinningAnimation();
+        }
+
+        /**
+         * Marks the value in the selected cell or removes its mark.
+         *
+         * @param value
+         */
+        private static void toggleMark(int value) {
+            table.getBoard().togglePencilMark(cellSelected[0], cellSelected[1], value);
+            table.refreshMarks();
+        }
+
+        /**
+         * Removes all of the marks of the selected cell.
+         */
+        private static void clearMarks() {
+            table.getBoard().clearPencilMarks(cellSelected[0], cellSelected[1]);
+            table.refreshMarks();
+        }
+
+        /**
+         * Checks if the user has won the game after every value entered.
+         * If every cell has a value and the board has no mistakes the table is solved and the user wins,
+         * whether the show mistakes mode is on or not.
+         */
+        private static boolean checkForWin() {
+            return table.getBoard().isSolved();
         }
     }
 
@@ -229,20 +484,18 @@ public class Controller {
 
         /**
          * Clears the data of the table by setting the value of every cell to nothing.
+         * The whole clear is a single step in the undo log.
          */
         private void clear() {
-            int size = table.getCellTable().length;
+            int size = table.getSize();
+            table.getUndoLog().beginStep();
             for (int i = 0; i < size; i++) {
                 for (int j = 0; j < size; j++) {
-                    table.getCellTable()[i][j].setText("");
-                    table.getCellTable()[i][j].setBackground(new Background(new BackgroundFill(Color.TRANSPARENT, null, null)));
+                    enterValue(i, j, "");
+                    table.setCellRed(i, j, false);
                 }
             }
-            //Disables and empties the redo and undo items
-            UndoListener.emptyUndoCells();
-            View.getInstance().setDisableUndoItem(true);
-            RedoListener.emptyRedoCells();
-            View.getInstance().setDisableRedoItem(true);
+            table.getUndoLog().endStep();
         }
 
     }
@@ -276,7 +529,7 @@ public class Controller {
                 if (getErrorCheck(textArea.getText()).equals("true")) {
                     table = new Table(textArea.getText());
                     //Solves the game from now
-                    solver = new Solver(table);
+                    solveTable();
                 } else displayErrorMessage(getErrorCheck(textArea.getText()));
             });
 
@@ -307,6 +560,8 @@ public class Controller {
             int tableSize = getSize(line);
             if (!isSquare(tableSize)) return "Not every cell has a cage in the table";
             tableLength = (int) Math.sqrt(tableSize);
+            if (tableLength > Table.MAX_SIZE)
+                return "The table can not be larger than " + Table.MAX_SIZE + "x" + Table.MAX_SIZE;
 
             //Iterates through the lines
             for (int i = 0; i < line.length; i++) {
@@ -317,15 +572,22 @@ public class Controller {
                 //Takes the cells of the line
                 String[] cells = line[i].split(" ")[1].split(",");
 
-                //Checks if the size of the target is two or one -> there are multiple cells or one cell
-                if (target.length() > 1 && cells.length <= 1) {
+                //Checks if the target has a sign or not -> there are multiple cells or one cell
+                boolean hasSign = Solver.hasSign(target);
+                if (hasSign && cells.length <= 1) {
                     return "There are not enough cells to fulfill the target on line " + (i + 1);
                 }
-                if (target.length() == 1 && cells.length != 1) {
+                if (!hasSign && cells.length != 1) {
                     return "There should be just one cell on line " + (i + 1);
                 }
-
-                if (target.length() > 1) {
+                boolean isValue = target.matches("\\d{1,2}") && Integer.parseInt(target) >= 1
+                        && Integer.parseInt(target) <= tableLength;
+                if (!hasSign && !isValue)
+                    return "The target on line " + (i + 1) + " has to be between 1 and " + tableLength;
+                //The ways to reach the target of a cage with many cells are too many to find
+                if (!Solver.hasFewGroups(cells.length, tableLength)) return "The cage on line " + (i + 1) + " has too many cells";
+
+                if (hasSign) {
                     //Checks if there is a sign for the target
                     String sign = target.substring(target.length() - 1);
                     if (!possibleSignsToEnter.contains(sign)) return "The sign on line " + (i + 1) + " is incorrect";
@@ -441,32 +703,12 @@ public class Controller {
 
         @Override
         public void handle(ActionEvent actionEvent) {
-            //Enables the redo item
-            View.getInstance().setDisableRedoItem(false);
-
-            //Pops the last changed cell
-            Cell previousCell = undoCells.pop();
-
-            //Pushes in the redo stacks before it is gone
-            redoCells.push(previousCell);
-            previousCell.pushRedoValue(previousCell.getText());
-
-            //Pops the last changed value of the cell and sets it
-            previousCell.setText(previousCell.popUndoValue());
+            //Puts back the old values of the last step, which can be many cells for a clear
+            for (int entry : table.getUndoLog().undo()) restoreValue(UndoLog.getCell(entry), UndoLog.getOldValue(entry));
 
-            //Disables if there are no elements left in the stack
-            if (undoCells.empty()) View.getInstance().setDisableUndoItem(true);
-
-        }
-
-        /**
-         * Empties the undoCells list.
-         */
-        public static void emptyUndoCells() {
-            while (!undoCells.empty()) {
-                Cell poppedCell = undoCells.pop();
-                poppedCell.popUndoValue();
-            }
+            //Disables if there are no steps left to undo and enables the redo item
+            View.getInstance().setDisableUndoItem(!table.getUndoLog().canUndo());
+            View.getInstance().setDisableRedoItem(false);
         }
     }
 
@@ -478,61 +720,61 @@ public class Controller {
 
         @Override
         public void handle(ActionEvent actionEvent) {
+            for (int entry : table.getUndoLog().redo()) restoreValue(UndoLog.getCell(entry), UndoLog.getNewValue(entry));
 
-            //Enables the redo item
+            //Enables the undo item and disables the redo item if there are no steps left to redo
             View.getInstance().setDisableUndoItem(false);
-
-            Cell redoCell = redoCells.pop();
-
-            //Pushes the undo back
-            undoCells.push(redoCell);
-            redoCell.pushUndoValue(redoCell.getText());
-
-            redoCell.setText(redoCell.popRedoValue());
-
-            //Disables if there are not elements left in the stack
-            if (redoCells.empty()) View.getInstance().setDisableRedoItem(true);
-        }
-
-        /**
-         * Empties the redoCells list.
-         */
-        public static void emptyRedoCells() {
-            while (!redoCells.empty()) {
-                Cell poppedCell = redoCells.pop();
-                poppedCell.popRedoValue();
-            }
+            View.getInstance().setDisableRedoItem(!table.getUndoLog().canRedo());
         }
     }
 
     /**
      * Event handler attached to the Hint menu item.
-     * Shows a hint to the user by displaying the first cell of the table that has a value mistaken or unwritten.
+     * Shows the next step of the game and the reason for it. A mistake of the player is pointed out
+     * instead of being replaced.
      */
     public static class HintListener implements EventHandler<ActionEvent> {
         @Override
         public void handle(ActionEvent actionEvent) {
-            int id = 1;
-            setSolvedCellValue(id);
+            if (hintEngine == null) return;
+            HintEngine.Hint hint = hintEngine.getNextHint();
+            if (hint == null) return;
+
+            int[] coordinates = Table.getCoordinatesOfID(hint.getCell() + 1, table.getSize());
+            CellSelected.select(coordinates[0], coordinates[1]);
+            //The player decides how to fix a mistake, the other hints fill in their cell
+            if (!hint.isMistake()) enterValue(coordinates[0], coordinates[1], String.valueOf(hint.getValue()));
+            displayMessage("Hint", hint.getReason());
         }
+    }
 
-        /**
-         * When hint is pressed sets the value of a cell to the value returned from the solver.
-         *
-         * @param id the id of the cell
-         */
-        private void setSolvedCellValue(int id) {
-            int[] coordinates = Table.getCoordinatesOfID(id, table.getSize());
-            int i = coordinates[0];
-            int j = coordinates[1];
-            Cell cell = table.getCellTable()[i][j];
-            String solverCellValue = Integer.toString(solver.getSolverCellTable()[i][j].getValue());
-            if (!solverCellValue.equals(cell.getText()))
-                cell.setText(solverCellValue);
-            else {
-                id++;
-                setSolvedCellValue(id);
-            }
+    /**
+     * Event handler attached to the Check Solvability menu item.
+     * Tells the player whether the table can still be solved with the values entered,
+     * and if not, which of them can not all be right.
+     */
+    public static class SolvabilityCheck implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent actionEvent) {
+            if (table == null) return;
+            SolvabilityChecker checker = getSolvabilityChecker();
+            checker.checkLater(getEntries(), result -> Platform.runLater(() -> {
+                if (checker == solvabilityChecker) displayMessage("Solvability", getResultText(result) + ".");
+            }));
+        }
+    }
+
+    /**
+     * Event handler attached to the Check While Typing menu item.
+     * While it is checked, the board is checked in the background after every change and the result is shown
+     * in the title of the window.
+     */
+    public static class ContinuousSolvabilityCheck implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent actionEvent) {
+            continuousCheckMode = ((CheckMenuItem) actionEvent.getSource()).isSelected();
+            if (continuousCheckMode && table != null) scheduleSolvabilityCheck();
+            else View.getInstance().setStatus("");
         }
     }
 
@@ -542,10 +784,6 @@ public class Controller {
      * After size is selected generates a table and leaves the user to solve it.
      */
     public static class GenerateGame implements EventHandler<ActionEvent> {
-        private Set<Integer> possibleValues;
-        private int counter;
-        private List<SolverCell> allSolverCells;
-
 
         @Override
         public void handle(ActionEvent actionEvent) {
@@ -565,8 +803,8 @@ public class Controller {
 
             Label label = new Label("Choose table size:");
             Slider slider = new Slider();
-            slider.setMin(2);
-            slider.setMax(8);
+            slider.setMin(PuzzlePool.MIN_SIZE);
+            slider.setMax(Table.MAX_SIZE);
             slider.setValue(3);
             slider.setShowTickLabels(true);
             slider.setShowTickMarks(true);
@@ -596,307 +834,19 @@ public class Controller {
          * @param size the size of the table.
          */
         private void generateGame(int size) {
-            SolverCell[][] solverCellTable;
-            boolean state;
-            do {
-                solver = new Solver(size);
-                solverCellTable = solver.getSolverCellTable();
-                possibleValues = new HashSet<>();
-
-                //Creates and sets the possible values for every solver cell
-                for (int i = 1; i <= size; i++) possibleValues.add(i);
-                for (int i = 0; i < size; i++) {
-                    for (int j = 0; j < size; j++) {
-                        SolverCell solverCell = new SolverCell(possibleValues);
-                        //puts the solver cells in a table
-                        solverCellTable[i][j] = solverCell;
-                        //Sets the id for every solver cell
-                        solverCell.setID(i, j, size);
-                    }
-                }
-
-
-                state = findValue(1, solverCellTable);
+            //Takes a game that has been generated in the background
+            PuzzlePool.Game game = PuzzlePool.getInstance().take(size);
+            if (game != null) {
+                table = new Table(game.getText());
+                setSolver(new Solver(game.getSolverCellTable()));
+                return;
             }
-            //If there is a problem generating the table generate a new one
-            while (!state);
 
+            //If there is no ready game generate one now
+            Generator generator = new Generator(size);
             //If the table is ready with all the values in it create the player interface
-            String textLoader = findCages(1, solverCellTable);
-            table = new Table(textLoader);
-            solver = new Solver(solverCellTable);
-
-        }
-
-        /**
-         * Finds and creates the cages appropriate for the table.
-         *
-         * @param id              the id of the first cell (1)
-         * @param solverCellTable the solver cell table needed to access and save the possible values of all cells
-         */
-        private String findCages(int id, SolverCell[][] solverCellTable) {
-            int size = solverCellTable.length;
-            StringBuilder textLoader = new StringBuilder();
-            int[] coordinates = Table.getCoordinatesOfID(id, size);
-            int i = coordinates[0];
-            int j = coordinates[1];
-            SolverCell solverCell = solverCellTable[i][j];
-
-            //If the cell is not part of another cage and its id is less than the last id
-            if (id <= size * size) {
-                if (!solverCell.getHasCage()) {
-                    Random random = new Random();
-                    String target;
-                    //Gets a random number for the cage size
-                    int cageSize = random.nextInt(5) + 1;
-                    allSolverCells = new ArrayList<>();
-                    //Creates the cage and saves its ids
-                    createCage(id, solverCellTable, cageSize);
-                    target = getTarget(allSolverCells);
-                    textLoader.append(target).append(" ");
-                    for (SolverCell solverCells : allSolverCells) {
-                        textLoader.append(solverCells.getID()).append(",");
-                    }
-                    textLoader = new StringBuilder(textLoader.substring(0, textLoader.length() - 1) + "\n");
-                }
-                if (id < size * size) textLoader.append(findCages(id + 1, solverCellTable));
-            }
-            return textLoader.toString();
-        }
-
-        /**
-         * Chooses an appropriate random sign and calculates the target
-         *
-         * @param allSolverCells all the cells in the newly created cage
-         */
-        private String getTarget(List<SolverCell> allSolverCells) {
-            String sign = "";
-            Random random = new Random();
-            int signIndicator = random.nextInt(4) + 1;
-            double sum = 0, max;
-
-            //If the cage is not consisted of only one cell find its sign
-            if (allSolverCells.size() != 1) {
-                switch (signIndicator) {
-                    case 1:
-                        sign = "+";
-                        sum = 0;
-                        for (SolverCell solverCells : allSolverCells) {
-                            sum += solverCells.getValue();
-                        }
-                        break;
-                    case 2:
-                        sign = "-";
-                        max = findMaxValue(allSolverCells);
-                        sum = max;
-                        for (SolverCell solverCell : allSolverCells) {
-                            if (solverCell.getValue() != max) sum -= solverCell.getValue();
-                        }
-                        break;
-                    case 3:
-                        sign = "x";
-                        sum = 1;
-                        for (SolverCell solverCells : allSolverCells) {
-                            sum *= solverCells.getValue();
-                        }
-                        break;
-                    case 4:
-                        sign = "÷";
-                        max = findMaxValue(allSolverCells);
-                        sum = max;
-                        for (SolverCell solverCell : allSolverCells) {
-                            if (solverCell.getValue() != max) sum /= solverCell.getValue();
-                        }
-                        break;
-                }
-                //If the sum is larger than 0 and a round number return it with the sign
-                if (sum > 0 && sum % 1 == 0) {
-                    return (int) sum + sign;
-                }
-                //Else try again until it finds a suitable sign
-                else return getTarget(allSolverCells);
-            }
-
-            //If there is only one solver cell in the cage return it without a sign
-            else return String.valueOf(allSolverCells.get(0).getValue());
-        }
-
-        /**
-         * Finds the maximum value of a solver cell list
-         *
-         * @param allSolverCells
-         */
-        private int findMaxValue(List<SolverCell> allSolverCells) {
-            int max = 0;
-            for (SolverCell solverCell : allSolverCells) {
-                if (solverCell.getValue() > max) max = solverCell.getValue();
-            }
-            return max;
-        }
-
-        /**
-         * Creates cages from the available solver cell table by iterating over every solver cell value
-         * looking if it is a part of a cell
-         *
-         * @param id              the id of the solver cell
-         * @param solverCellTable
-         * @param cageSize        the random size of the current cage
-         */
-        private void createCage(int id, SolverCell[][] solverCellTable, int cageSize) {
-            if (allSolverCells.size() < cageSize) {
-                int size = solverCellTable.length;
-                int[] coordinates = Table.getCoordinatesOfID(id, size);
-                int i = coordinates[0];
-                int j = coordinates[1];
-                SolverCell solverCell = solverCellTable[i][j];
-                solverCell.setHasCage(true);
-                allSolverCells.add(solverCell);
-                List<Integer> possibleDirections = new ArrayList<>();
-
-                //Go up
-                if (j > 0 && !solverCellTable[i][j - 1].getHasCage())
-                    possibleDirections.add(id - size);
-                //Go right
-                if (i < size - 1 && !solverCellTable[i + 1][j].getHasCage())
-                    possibleDirections.add(id + 1);
-                //Go down
-                if (j < size - 1 && !solverCellTable[i][j + 1].getHasCage())
-                    possibleDirections.add(id + size);
-                //Go left
-                if (i > 0 && !solverCellTable[i - 1][j].getHasCage())
-                    possibleDirections.add(id - 1);
-
-                //If there is a possible direction continue with the cage there
-                if (!possibleDirections.isEmpty()) {
-                    Random random = new Random();
-                    int direction = random.nextInt(possibleDirections.size());
-                    id = possibleDirections.get(direction);
-                    createCage(id, solverCellTable, cageSize);
-                }
-                //If there is not the cage is done and the process finishes
-            }
-        }
-
-        /**
-         * Recursive method that gets a random number for a given solver cell
-         *
-         * @param id              the id of the solverCell
-         * @param solverCellTable the solver cell table
-         */
-        private boolean findValue(int id, SolverCell[][] solverCellTable) {
-            int size = solverCellTable.length;
-            int[] coordinates = Table.getCoordinatesOfID(id, size);
-            int i = coordinates[0];
-            int j = coordinates[1];
-            SolverCell solverCell = solverCellTable[i][j];
-            int value;
-            boolean switched;
-
-            Set<Integer> possibleValues = solverCell.getPossibleValues();
-            //If there are no possible values for a solver cell make an edit in the row of the table
-            if (possibleValues.size() == 0) {
-                //Sets the counter for the switch position method to 0
-                counter = 0;
-                switched = switchPosition(i, j, solverCellTable);
-                //if there is a problem with the switch method return false and start building a new table
-                if (!switched) return false;
-            } else {
-                //Takes a random number from the possible values and sets the solver cell with it
-                Random random = new Random();
-                int pos = random.nextInt(possibleValues.size());
-                value = getValueOfSet(possibleValues, pos);
-                solverCell.setValue(value);
-                //Removes the possibilities from other solver cells in the column and row
-                solver.removePosColumnRow(i, j, value, solverCellTable);
-            }
-            id++;
-            //finds the next value recursively
-            if (id <= size * size) return findValue(id, solverCellTable);
-                //when the id is equal to the size of the table the process is finished and returns true
-            else return true;
-        }
-
-        /**
-         * Method to find reposition the numbers in a given row in order to have a possible random order
-         *
-         * @param i               coordinate
-         * @param j               coordinate
-         * @param solverCellTable the table of solverCells
-         */
-        private boolean switchPosition(int i, int j, SolverCell[][] solverCellTable) {
-
-            counter++;
-            //Returns false after the method has been repeated too many times
-            if (counter == 50) return false;
-            //Finds the number missing by finding the sum of all the possible values and then subtracting the one seen
-            List<Integer> remainingPossibleValues = new ArrayList<>(possibleValues);
-            for (int k = 0; k < i; k++) remainingPossibleValues.remove((Integer) solverCellTable[k][j].getValue());
-
-            for (Integer value : remainingPossibleValues) {
-                for (int k = 0; k < i; k++) {
-                    if (solverCellTable[k][j].getPossibleValues().contains(value)) {
-                        //Adds the possibilities back, saves the old value and changes to the new one
-                        //removes the possibilities after setting the new value
-                        int oldValue = solverCellTable[k][j].getValue();
-
-                        if (checkColumn(i, j, oldValue)) {
-                            solverCellTable[k][j].setValue(value);
-                            addPosColumnRow(k, j, oldValue);
-                            solver.removePosColumnRow(k, j, value, solverCellTable);
-
-                            solverCellTable[i][j].setValue(oldValue);
-                            solver.removePosColumnRow(i, j, oldValue, solverCellTable);
-                            return true;
-                        } else {
-                            solverCellTable[k][j].setValue(value);
-                            addPosColumnRow(k, j, oldValue);
-                            solver.removePosColumnRow(k, j, value, solverCellTable);
-                            solverCellTable[k][j].getPossibleValues().remove(oldValue);
-
-                            return switchPosition(i, j, solverCellTable);
-                        }
-                    }
-                }
-            }
-            return false;
-        }
-
-        private int getValueOfSet(Set<Integer> possibleValues, int pos) {
-            int count = 0;
-            for (Integer value : possibleValues) {
-                if (count == pos) return value;
-                else count++;
-            }
-            return 0;
-        }
-
-        /**
-         * Checks if its possible to put this value in the column
-         *
-         * @param i        coordinate
-         * @param j        coordinate
-         * @param oldValue the value to put
-         */
-        private boolean checkColumn(int i, int j, int oldValue) {
-            SolverCell[][] solverCellTable = solver.getSolverCellTable();
-            for (int r = 0; r < j; r++) {
-                if (solverCellTable[i][r].getValue() == oldValue) return false;
-            }
-            return true;
-        }
-
-        private void addPosColumnRow(int i, int j, Integer oldValue) {
-            SolverCell[][] solverCellTable = solver.getSolverCellTable();
-            //Adds the old value as possible for the cells under the given one
-            for (int r = j + 1; r < solverCellTable.length; r++) {
-                solverCellTable[i][r].getPossibleValues().add(oldValue);
-            }
-            //Adds the old value as possible for the cells next to the one given
-            for (int c = 0; c < solverCellTable.length; c++) {
-                //only if the cells above don't have it
-                if (checkColumn(c, j, oldValue) && c != i) solverCellTable[c][j].getPossibleValues().add(oldValue);
-            }
-
+            table = new Table(generator.getText());
+            setSolver(new Solver(generator.getSolverCellTable()));
         }
     }
 
@@ -933,6 +883,8 @@ public class Controller {
          */
         private void setTableFont(double length) {
             Cell[][] cellTable = table.getCellTable();
+            //The cells of a table drawn on a canvas take the size of the window
+            if (cellTable == null) return;
             for (int i = 0; i < table.getSize(); i++)
                 for (int j = 0; j < table.getSize(); j++) {
                     cellTable[i][j].setMaxSize(length, length);
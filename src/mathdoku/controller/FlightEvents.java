@@ -0,0 +1,97 @@
+package mathdoku.controller;
+
+import jdk.jfr.*;
+
+/**
+ * Represents the events the application gives to Java Flight Recorder, so that a recording shows which puzzle
+ * every parse, search, generation stage and mistake check was working on and how it ended.
+ * An event is only begun and ended around the work, and its fields are filled only if it is going to be
+ * committed, so the events cost next to nothing while nothing is being recorded.
+ */
+public class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    @Name("mathdoku.Parse")
+    @Label("Puzzle Parse")
+    @Category("Mathdoku")
+    @Description("Reading the cages of a puzzle from a file or text")
+    public static class ParseEvent extends Event {
+        @Label("Source")
+        public String source;
+        @Label("Size")
+        public int size;
+        @Label("Cage Count")
+        public int cageCount;
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("mathdoku.Solve")
+    @Label("Solver Search")
+    @Category("Mathdoku")
+    @Description("A search of the solver, from the state after its givens")
+    public static class SolveEvent extends Event {
+        @Label("Size")
+        public int size;
+        @Label("Cage Count")
+        public int cageCount;
+        @Label("Solution Limit")
+        public int solutionLimit;
+        @Label("Nodes")
+        public long nodes;
+        @Label("Solutions")
+        public int solutions;
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("mathdoku.CageGroups")
+    @Label("Cage Groups")
+    @Category("Mathdoku")
+    @Description("Finding the groups of possible values of a cage")
+    @Threshold("1 ms")
+    public static class CageGroupsEvent extends Event {
+        @Label("Size")
+        public int size;
+        @Label("Cells")
+        public int cells;
+        @Label("Target")
+        public String target;
+        @Label("Groups")
+        public int groups;
+    }
+
+    @Name("mathdoku.GenerationStage")
+    @Label("Generation Stage")
+    @Category("Mathdoku")
+    @Description("A stage of the generator: filling the values, switching positions, finding or repairing the cages")
+    public static class GenerationStageEvent extends Event {
+        @Label("Stage")
+        public String stage;
+        @Label("Size")
+        public int size;
+        @Label("Cage Count")
+        public int cageCount;
+        @Label("Retries")
+        public int retries;
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("mathdoku.MistakeCheck")
+    @Label("Mistake Check")
+    @Category("Mathdoku")
+    @Description("A check of the show mistakes mode on a cage or on the row and column of a cell")
+    public static class MistakeCheckEvent extends Event {
+        @Label("Kind")
+        public String kind;
+        @Label("Size")
+        public int size;
+        @Label("Cage Count")
+        public int cageCount;
+        @Label("Outcome")
+        public String outcome;
+    }
+}
@@ -0,0 +1,457 @@
+package mathdoku.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import mathdoku.model.Cage;
+import mathdoku.model.Puzzle;
+import mathdoku.model.Table;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Represents a small HTTP service on localhost that gives access to the generator and the solver without the
+ * interface. Every puzzle is sent as the text of its cages, the same as a game loaded from text input, and a board
+ * as the values of its cells separated by commas, j * size + i, 0 for an empty cell.
+ * The requests are answered by a pool of threads, while the solving is done by a smaller pool with a bounded queue,
+ * so a burst of requests is turned away instead of slowing everything down. Every request has a deadline.
+ * A puzzle is solved by a portfolio of strategies that race on the threads of the solving pool that are free.
+ *
+ * <ul>
+ * <li>GET /generate?size=N gives the text of a new puzzle</li>
+ * <li>POST /solve gives a solution, one row on every line</li>
+ * <li>POST /unique tells whether the puzzle has no, one or many solutions</li>
+ * <li>POST /validate?board=...&amp;cell=C&amp;value=V tells whether the move keeps the board solvable</li>
+ * <li>POST /hint?board=... gives the next step for the board and the reason for it</li>
+ * <li>GET /metrics gives the metrics of the solver and the wins of the strategies as text</li>
+ * </ul>
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_TIMEOUT = 2000;
+    private static final int MAX_TIMEOUT = 30000;
+    private static final int REQUEST_THREADS = 256;
+    private static final int SOLVER_QUEUE_CAPACITY = 1024;
+    private static final int BACKLOG = 4096;
+    private static final int MAX_BODY_LENGTH = 1 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService requestPool;
+    private final ThreadPoolExecutor solverPool;
+    private final SolverPortfolio portfolio;
+
+    /**
+     * Creates a service on the loopback address. It does not answer until it is started.
+     *
+     * @param port          the port, 0 for any free port
+     * @param solverThreads the number of threads that solve and generate at the same time
+     */
+    public GameServer(int port, int solverThreads) throws IOException {
+        //Without it the headers and the body of a short response wait for each other for about 40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        requestPool = Executors.newFixedThreadPool(REQUEST_THREADS, runnable -> createThread(runnable, "game-server-request"));
+        solverPool = new ThreadPoolExecutor(solverThreads, solverThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SOLVER_QUEUE_CAPACITY), runnable -> createThread(runnable, "game-server-solver"));
+        portfolio = SolverPortfolio.createDefault(solverPool);
+        server.setExecutor(requestPool);
+        server.createContext("/generate", new Endpoint(this::generate));
+        server.createContext("/solve", new Endpoint(this::solve));
+        server.createContext("/unique", new Endpoint(this::checkUniqueness));
+        server.createContext("/validate", new Endpoint(this::validateMove));
+        server.createContext("/hint", new Endpoint(this::findHint));
+        server.createContext("/metrics", new Endpoint(request -> SolverMetrics.getInstance().getText() + portfolio.getText()));
+        //Makes the metrics available through JMX as well, where they can be enabled
+        SolverMetrics.getInstance();
+    }
+
+    /**
+     * Starts a service on the port given as the first argument, or on the default port.
+     *
+     * @param args the port
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer gameServer = new GameServer(port, Runtime.getRuntime().availableProcessors());
+        gameServer.start();
+        System.out.println("Mathdoku service on http://localhost:" + gameServer.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops answering requests and stops the threads of the service.
+     */
+    public void stop() {
+        server.stop(0);
+        requestPool.shutdownNow();
+        solverPool.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static Thread createThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private String generate(Request request) throws Exception {
+        int size = request.getIntParameter("size", -1);
+        if (size < PuzzlePool.MIN_SIZE || size > Table.MAX_SIZE)
+            throw new IllegalArgumentException("The size has to be between " + PuzzlePool.MIN_SIZE + " and " + Table.MAX_SIZE);
+        return runWithDeadline(request, token -> {
+            PuzzlePool.Game game = size <= PuzzlePool.MAX_SIZE ? PuzzlePool.getInstance().take(size) : null;
+            if (game != null) return game.getText();
+            try {
+                return new Generator(size, token).getText();
+            } catch (CancellationException e) {
+                throw new ServiceException(504, "The generation stopped: " + e.getMessage());
+            }
+        });
+    }
+
+    private String solve(Request request) throws Exception {
+        return runWithDeadline(request, token -> {
+            Puzzle puzzle = readPuzzle(request.body);
+            int size = puzzle.getSize();
+            SolveResult result = portfolio.solve(puzzle, 1, token).getSolveResult();
+            checkStopped(result, size);
+            if (result.getSolutions().isEmpty()) return "none\n";
+            SolverCell[][] solution = result.getSolutions().get(0);
+            int[] values = new int[size * size];
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++) values[j * size + i] = solution[i][j].getValue();
+            return toRows(values, size);
+        });
+    }
+
+    private String checkUniqueness(Request request) throws Exception {
+        return runWithDeadline(request, token -> {
+            Puzzle puzzle = readPuzzle(request.body);
+            //Two solutions are enough to know that the solution is not unique
+            SolveResult result = new Solver(puzzle.getAllCages(), puzzle.getSize(), 2, token).getResult();
+            checkStopped(result, puzzle.getSize());
+            int numberOfSolutions = result.getSolutions().size();
+            return (numberOfSolutions == 0 ? "none" : numberOfSolutions == 1 ? "unique" : "multiple") + "\n";
+        });
+    }
+
+    private String validateMove(Request request) throws Exception {
+        return runWithDeadline(request, token -> {
+            Puzzle puzzle = readPuzzle(request.body);
+            int size = puzzle.getSize();
+            int[] board = readBoard(request.getParameter("board"), size);
+            int cell = request.getIntParameter("cell", -1);
+            int value = request.getIntParameter("value", -1);
+            if (cell < 0 || cell >= size * size) throw new IllegalArgumentException("There is no cell " + cell);
+            if (value < 0 || value > size) throw new IllegalArgumentException("The value has to be between 0 and " + size);
+            board[cell] = value;
+            if (value != 0) {
+                for (int k = 0; k < size; k++) {
+                    int rowCell = cell / size * size + k, columnCell = k * size + cell % size;
+                    if ((rowCell != cell && board[rowCell] == value) || (columnCell != cell && board[columnCell] == value))
+                        return "conflict\n";
+                }
+            }
+            //The only search is the one with the board
+            Solver solver = Solver.prepare(puzzle.getAllCages(), size, 1);
+            SolveResult result = solver.solve(board, token);
+            checkStopped(result, size);
+            return result.getStatus() == SolveResult.Status.SOLVED ? "valid\n" : "unsolvable\n";
+        });
+    }
+
+    private String findHint(Request request) throws Exception {
+        return runWithDeadline(request, token -> {
+            Puzzle puzzle = readPuzzle(request.body);
+            int size = puzzle.getSize();
+            int[] board = readBoard(request.getParameter("board"), size);
+            SolveResult result = new Solver(puzzle.getAllCages(), size, 1, token).getResult();
+            checkStopped(result, size);
+            if (result.getSolutions().isEmpty()) return "none\n";
+            HintEngine hintEngine = new HintEngine(puzzle.getAllCages(), size, result.getSolutions().get(0));
+            for (int cell = 0; cell < board.length; cell++) if (board[cell] != 0) hintEngine.setValue(cell, board[cell]);
+            HintEngine.Hint hint = hintEngine.getNextHint();
+            if (hint == null) return "solved\n";
+            return hint.getCell() + " " + hint.getValue() + " " + hint.getTechnique() + "\n" + hint.getReason() + "\n";
+        });
+    }
+
+    /**
+     * Runs a task on the solver pool and waits for it until the deadline of the request.
+     * The task gets a token with the same deadline, which is also cancelled if the deadline passes while the task
+     * is still waiting in the queue or doing work that the token does not limit.
+     * The task reads the puzzle of the request itself, so that reading it is limited by the deadline as well.
+     *
+     * @param request the request, with its deadline in the timeout parameter, in milliseconds
+     * @param task    the task
+     */
+    private String runWithDeadline(Request request, Task task) throws Exception {
+        int timeout = Math.min(request.getIntParameter("timeout", DEFAULT_TIMEOUT), MAX_TIMEOUT);
+        CancellationToken token = new CancellationToken(timeout, 0);
+        Future<String> future;
+        try {
+            future = solverPool.submit(() -> task.run(token));
+        } catch (RejectedExecutionException e) {
+            throw new ServiceException(503, "The solver is busy, try again later");
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            token.cancel();
+            future.cancel(true);
+            throw new ServiceException(504, "The deadline of " + timeout + " ms has passed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Answers with the best partial assignment if the search stopped before it could finish.
+     *
+     * @param result the result of the search
+     * @param size   the size of the table
+     */
+    private static void checkStopped(SolveResult result, int size) throws ServiceException {
+        if (result.isStopped())
+            throw new ServiceException(504, "The search stopped: " + result + "\n" + toRows(result.getBestAssignment(), size));
+    }
+
+    /**
+     * Writes the values of a board with one row on every line.
+     *
+     * @param values the values, j * size + i
+     * @param size   the size of the table
+     */
+    private static String toRows(int[] values, int size) {
+        StringBuilder text = new StringBuilder();
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; i++) text.append(i == 0 ? "" : " ").append(values[j * size + i]);
+            text.append("\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads and checks the text of a puzzle.
+     *
+     * @param text the text of the cages
+     */
+    private static Puzzle readPuzzle(String text) {
+        FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+        event.begin();
+        String outcome = "invalid";
+        List<Cage> allCages = new ArrayList<>();
+        Set<Integer> allIds = new HashSet<>();
+        try {
+            Puzzle puzzle = readCheckedPuzzle(text, allCages, allIds);
+            outcome = "success";
+            return puzzle;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = "service";
+                event.size = (int) Math.sqrt(allIds.size());
+                event.cageCount = allCages.size();
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Reads the cages of a puzzle into the given list, checking every line.
+     *
+     * @param text     the text of the cages
+     * @param allCages the list to put the cages in
+     * @param allIds   the set to put the ids of the cells in
+     */
+    private static Puzzle readCheckedPuzzle(String text, List<Cage> allCages, Set<Integer> allIds) {
+        String[] lines = text.trim().split("\n");
+        for (int l = 0; l < lines.length; l++) {
+            String line = lines[l].trim();
+            if (!line.contains(" ")) throw new IllegalArgumentException("There is no space between the target and the cells on line " + (l + 1));
+            String target = line.substring(0, line.indexOf(" "));
+            List<Integer> ids = new ArrayList<>();
+            for (String id : line.substring(line.indexOf(" ") + 1).split(",")) {
+                ids.add(Integer.parseInt(id.trim()));
+                if (!allIds.add(ids.get(ids.size() - 1))) throw new IllegalArgumentException("There is a cell in two cages on line " + (l + 1));
+            }
+            boolean hasSign = Solver.hasSign(target);
+            if (hasSign ? ids.size() <= 1 || "+-x÷".indexOf(target.charAt(target.length() - 1)) == -1 : ids.size() != 1)
+                throw new IllegalArgumentException("The target does not fit the cells on line " + (l + 1));
+            Integer.parseInt(hasSign ? target.substring(0, target.length() - 1) : target);
+            allCages.add(new Cage(target, ids));
+        }
+        int size = (int) Math.sqrt(allIds.size());
+        if (size * size != allIds.size() || size > Table.MAX_SIZE || Collections.max(allIds) != allIds.size() || Collections.min(allIds) != 1)
+            throw new IllegalArgumentException("Not every cell has a cage in the table");
+        //A cage with too many cells or a target out of reach would only keep the solver busy
+        for (int c = 0; c < allCages.size(); c++) {
+            int numberOfCells = allCages.get(c).getIDs().size();
+            if (!Solver.hasFewGroups(numberOfCells, size))
+                throw new IllegalArgumentException("The cage on line " + (c + 1) + " has too many cells");
+            String target = allCages.get(c).getTarget();
+            boolean hasSign = Solver.hasSign(target);
+            int value = Integer.parseInt(hasSign ? target.substring(0, target.length() - 1) : target);
+            long largestTarget = getLargestTarget(hasSign ? target.charAt(target.length() - 1) : ' ', numberOfCells, size);
+            if (value < (hasSign ? 0 : 1) || value > largestTarget)
+                throw new IllegalArgumentException("The target of the cage on line " + (c + 1) + " has to be between "
+                        + (hasSign ? 0 : 1) + " and " + largestTarget);
+        }
+        return new Puzzle(allCages, null);
+    }
+
+    /**
+     * Returns the largest target that a cage can reach with the values of the table.
+     *
+     * @param sign          the sign of the target, a space for a single cell
+     * @param numberOfCells the number of cells in the cage
+     * @param size          the size of the table
+     */
+    private static long getLargestTarget(char sign, int numberOfCells, int size) {
+        switch (sign) {
+            case '+':
+                return (long) numberOfCells * size;
+            case 'x':
+                return (long) Math.min(Math.pow(size, numberOfCells), Integer.MAX_VALUE);
+            default:
+                return size;
+        }
+    }
+
+    /**
+     * Reads the values of a board.
+     *
+     * @param text the values separated by commas, or null for an empty board
+     * @param size the size of the table
+     */
+    private static int[] readBoard(String text, int size) {
+        int[] board = new int[size * size];
+        if (text == null || text.isEmpty()) return board;
+        String[] values = text.split(",");
+        if (values.length != board.length) throw new IllegalArgumentException("The board needs " + board.length + " values");
+        for (int cell = 0; cell < board.length; cell++) {
+            board[cell] = Integer.parseInt(values[cell].trim());
+            if (board[cell] < 0 || board[cell] > size) throw new IllegalArgumentException("The value has to be between 0 and " + size);
+        }
+        return board;
+    }
+
+    /**
+     * Represents the work that a request gives to the solver pool, limited by a token.
+     */
+    private interface Task {
+        String run(CancellationToken token) throws Exception;
+    }
+
+    /**
+     * Represents the work of an endpoint on a request, returning the text of the response.
+     */
+    private interface Action {
+        String handle(Request request) throws Exception;
+    }
+
+    /**
+     * Represents an endpoint: reads the request, runs its action and writes the response or the error.
+     */
+    private static class Endpoint implements HttpHandler {
+        private final Action action;
+
+        private Endpoint(Action action) {
+            this.action = action;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            int status = 200;
+            String response;
+            try {
+                response = action.handle(new Request(exchange));
+            } catch (ServiceException e) {
+                status = e.status;
+                response = e.getMessage() + "\n";
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                status = 400;
+                response = "Bad request: " + e.getMessage() + "\n";
+            } catch (Exception e) {
+                e.printStackTrace();
+                status = 500;
+                response = "Internal error\n";
+            }
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Represents the parameters and the body of a request.
+     */
+    private static class Request {
+        private final Map<String, String> parameters = new HashMap<>();
+        private final String body;
+
+        private Request(HttpExchange exchange) throws IOException {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    int equals = parameter.indexOf('=');
+                    if (equals == -1) continue;
+                    parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (InputStream input = exchange.getRequestBody()) {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = input.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, length);
+                    if (bytes.size() > MAX_BODY_LENGTH) throw new IllegalArgumentException("The body is too long");
+                }
+            }
+            body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private String getParameter(String name) {
+            return parameters.get(name);
+        }
+
+        private int getIntParameter(String name, int defaultValue) {
+            String value = parameters.get(name);
+            return value == null ? defaultValue : Integer.parseInt(value);
+        }
+    }
+
+    /**
+     * Represents an error of the service with the HTTP status to answer it with.
+     */
+    private static class ServiceException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        private ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
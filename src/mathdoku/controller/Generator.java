@@ -0,0 +1,660 @@
+package mathdoku.controller;
+
+import mathdoku.model.Cage;
+import mathdoku.model.Table;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents a generator of mathdoku games.
+ * Fills a table with random values, groups the cells into cages and repairs the cages until the game has
+ * a single solution.
+ * All the random choices come from a single seed, so the size, the seed and the version of the generator
+ * are enough to make the same game again.
+ * A generation can be given a token, and stops with a {@link CancellationException} when the token is cancelled
+ * or its time is up.
+ */
+public class Generator {
+    public static final int VERSION = 3;
+    private static final int MAX_REPAIRS = 30;
+    //A layout that takes more nodes than this to check is slow to play as well, and is given up for a new one
+    private static final long CHECK_NODE_LIMIT = 1 << 16;
+    private static final double DEFAULT_CONSTRAINING_BIAS = 1.5;
+    private static final double[] DEFAULT_CAGE_SIZE_WEIGHTS = {0.1, 0.3, 0.3, 0.2, 0.1};
+    //Cages of five cells have too many groups of values in large tables and make them slow to check
+    private static final double[] LARGE_CAGE_SIZE_WEIGHTS = {0.2, 0.4, 0.3, 0.1};
+    private static final int LARGE_SIZE = 10;
+    private int size;
+    private double constrainingBias;
+    private double[] cageSizeWeights;
+    private long seed;
+    private CancellationToken token;
+    private SplittableRandom random;
+    private Map<String, Integer> numbersOfGroups = new HashMap<>();
+    private Solver solver;
+    private long allValues;
+    private int counter;
+    private int switchRetries;
+    private SolverCell[][] solverCellTable;
+    private List<Cage> allCages;
+    private Cage[][] cageTable;
+    private Set<Integer> changedIDs = new HashSet<>();
+
+    /**
+     * Generates a table with a given size and a random seed.
+     *
+     * @param size the size of the table.
+     */
+    public Generator(int size) {
+        this(size, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Generates a table with a given size and a random seed, until the token says to stop.
+     *
+     * @param size  the size of the table.
+     * @param token the limits of the generation
+     */
+    public Generator(int size, CancellationToken token) {
+        this(size, ThreadLocalRandom.current().nextLong(), DEFAULT_CONSTRAINING_BIAS,
+                size < LARGE_SIZE ? DEFAULT_CAGE_SIZE_WEIGHTS : LARGE_CAGE_SIZE_WEIGHTS, token);
+    }
+
+    /**
+     * Generates the table with a given size that belongs to the seed.
+     *
+     * @param size the size of the table.
+     * @param seed the seed of all the random choices
+     */
+    public Generator(int size, long seed) {
+        this(size, seed, DEFAULT_CONSTRAINING_BIAS, size < LARGE_SIZE ? DEFAULT_CAGE_SIZE_WEIGHTS : LARGE_CAGE_SIZE_WEIGHTS);
+    }
+
+    /**
+     * Generates a table with a given size, seed, preference for tight cages and distribution of cage sizes.
+     * The higher the bias, the more often a cage gets the target that allows the fewest groups of values,
+     * which makes the game easier and faster to check. A bias of 0 chooses between the signs evenly.
+     *
+     * @param size             the size of the table.
+     * @param seed             the seed of all the random choices
+     * @param constrainingBias how strongly to prefer targets with few groups of possible values
+     * @param cageSizeWeights  the weight of every cage size, starting from a single cell cage
+     */
+    public Generator(int size, long seed, double constrainingBias, double[] cageSizeWeights) {
+        this(size, seed, constrainingBias, cageSizeWeights, new CancellationToken());
+    }
+
+    /**
+     * Generates a table with a given size, seed, preference for tight cages and distribution of cage sizes,
+     * until the token says to stop.
+     *
+     * @param size             the size of the table.
+     * @param seed             the seed of all the random choices
+     * @param constrainingBias how strongly to prefer targets with few groups of possible values
+     * @param cageSizeWeights  the weight of every cage size, starting from a single cell cage
+     * @param token            the limits of the generation, whose time starts here
+     */
+    public Generator(int size, long seed, double constrainingBias, double[] cageSizeWeights, CancellationToken token) {
+        this.size = size;
+        this.seed = seed;
+        this.constrainingBias = constrainingBias;
+        this.cageSizeWeights = cageSizeWeights;
+        this.token = token;
+        random = new SplittableRandom(seed);
+        token.start();
+        boolean state;
+        do {
+            checkStopped();
+            solver = new Solver(size);
+            solverCellTable = solver.getSolverCellTable();
+            allValues = 0;
+
+            //Creates and sets the possible values for every solver cell
+            for (int i = 1; i <= size; i++) allValues |= 1L << i;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    SolverCell solverCell = new SolverCell(allValues);
+                    //puts the solver cells in a table
+                    solverCellTable[i][j] = solverCell;
+                    //Sets the id for every solver cell
+                    solverCell.setID(i, j, size);
+                }
+            }
+
+
+            FlightEvents.GenerationStageEvent event = new FlightEvents.GenerationStageEvent();
+            event.begin();
+            switchRetries = 0;
+            state = findValue(1, solverCellTable);
+            commitStageEvent(event, "findValue", switchRetries, state);
+        }
+        //If there is a problem generating the table generate a new one
+        while (!state);
+
+        //If the table is ready with all the values in it find cages that lead to a single solution
+        boolean unique;
+        do {
+            checkStopped();
+            allCages = new ArrayList<>();
+            FlightEvents.GenerationStageEvent event = new FlightEvents.GenerationStageEvent();
+            event.begin();
+            findCages();
+            commitStageEvent(event, "findCages", 0, true);
+
+            event = new FlightEvents.GenerationStageEvent();
+            event.begin();
+            unique = makeUnique();
+            commitStageEvent(event, "makeUnique", 0, unique);
+        }
+        while (!unique);
+    }
+
+    /**
+     * Stops the generation if the token has been cancelled or its time is up.
+     */
+    private void checkStopped() {
+        if (token.checkTime(0) != null) throw new CancellationException("The generation of a table of size " + size + " stopped");
+    }
+
+    /**
+     * Ends the event of a stage of the generation and commits it if it is being recorded.
+     *
+     * @param event   the event begun at the start of the stage
+     * @param stage   the name of the stage
+     * @param retries the number of times the stage had to try again
+     * @param success whether the stage succeeded
+     */
+    private void commitStageEvent(FlightEvents.GenerationStageEvent event, String stage, int retries, boolean success) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.stage = stage;
+        event.size = size;
+        event.cageCount = allCages == null ? 0 : allCages.size();
+        event.retries = retries;
+        event.outcome = success ? "success" : "failure";
+        event.commit();
+    }
+
+    public SolverCell[][] getSolverCellTable() {
+        return solverCellTable;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public List<Cage> getAllCages() {
+        return allCages;
+    }
+
+    /**
+     * Returns the cages in the text format used to load a game, one cage per line.
+     */
+    public String getText() {
+        StringBuilder textLoader = new StringBuilder();
+        for (Cage cage : allCages) {
+            textLoader.append(cage.getTarget()).append(" ");
+            for (int id : cage.getIDs()) textLoader.append(id).append(",");
+            textLoader = new StringBuilder(textLoader.substring(0, textLoader.length() - 1) + "\n");
+        }
+        return textLoader.toString();
+    }
+
+    /**
+     * Finds and creates the cages appropriate for the table.
+     * The cells are divided into cages by a {@link CagePartitioner} and every cage gets a target.
+     */
+    private void findCages() {
+        //Splits the random source so that the layout of the cages has its own stream of random numbers
+        CagePartitioner partitioner = new CagePartitioner(size, cageSizeWeights, random.split());
+        for (List<Integer> ids : partitioner.partition()) {
+            allCages.add(new Cage(getTarget(getSolverCells(ids)), ids));
+        }
+    }
+
+    /**
+     * Checks if the cages lead to a single solution and locally repairs them when they do not.
+     * Only the cages covering the cells where two solutions differ are split, merged or given a new sign,
+     * the rest of the cages keep their groups of possible values for the next check.
+     * After a repair only the cells of the changed cages are searched, with every other cell given its value,
+     * and the whole table is checked again once they have a single solution.
+     * Every check has a budget of nodes, and a layout whose check runs out of it is given up.
+     *
+     * @return true if the game has a single solution
+     */
+    private boolean makeUnique() {
+        int[] givens = new int[size * size];
+        boolean wholeTable = true;
+        int repairs = 0;
+        changedIDs.clear();
+        while (true) {
+            //Every check shares the deadline and the cancellation of the generation
+            SolveResult result = Solver.prepare(allCages, size, 2).solve(givens, new CancellationToken(token, CHECK_NODE_LIMIT));
+            if (result.isStopped()) {
+                checkStopped();
+                return false;
+            }
+            List<SolverCell[][]> solutions = result.getSolutions();
+            if (solutions.size() == 1) {
+                if (wholeTable) return true;
+                //The changed cages have a single solution with the rest of the table given, which the whole table has to confirm
+                givens = new int[size * size];
+                wholeTable = true;
+                continue;
+            }
+            if (solutions.isEmpty() || repairs++ == MAX_REPAIRS) return false;
+
+            //Takes the solution that is different from the generated one
+            SolverCell[][] otherSolution = solutions.get(0);
+            if (findDifferentIDs(otherSolution).isEmpty()) otherSolution = solutions.get(1);
+            List<Integer> differentIDs = findDifferentIDs(otherSolution);
+
+            //Repairs every cage that covers a different cell
+            Set<Cage> cagesToRepair = new LinkedHashSet<>();
+            updateCageTable();
+            for (int id : differentIDs) {
+                int[] coordinates = Table.getCoordinatesOfID(id, size);
+                cagesToRepair.add(cageTable[coordinates[0]][coordinates[1]]);
+            }
+            for (Cage cage : cagesToRepair) {
+                //A cage might have been merged into another one already
+                if (allCages.contains(cage)) repairCage(cage, differentIDs);
+            }
+
+            //The next check searches only the cells of the changed cages
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++) givens[j * size + i] = solverCellTable[i][j].getValue();
+            for (int id : changedIDs) givens[id - 1] = 0;
+            changedIDs.clear();
+            wholeTable = false;
+        }
+    }
+
+    /**
+     * Returns the ids of the cells whose value in the given solution is different from the generated one.
+     *
+     * @param solution the solution to compare with
+     */
+    private List<Integer> findDifferentIDs(SolverCell[][] solution) {
+        List<Integer> differentIDs = new ArrayList<>();
+        for (int id = 1; id <= size * size; id++) {
+            int[] coordinates = Table.getCoordinatesOfID(id, size);
+            int i = coordinates[0];
+            int j = coordinates[1];
+            if (solution[i][j].getValue() != solverCellTable[i][j].getValue()) differentIDs.add(id);
+        }
+        return differentIDs;
+    }
+
+    /**
+     * Makes a random local change to a cage: gives it another sign, merges it with a neighbour cage
+     * or splits a different cell out of it.
+     *
+     * @param cage         the cage to repair
+     * @param differentIDs the ids of the cells that have more than one possible solution
+     */
+    private void repairCage(Cage cage, List<Integer> differentIDs) {
+        int option = random.nextInt(3);
+        if (option == 0 && changeSign(cage)) return;
+        if (option == 1 && mergeCage(cage)) return;
+        splitCage(cage, differentIDs);
+    }
+
+    /**
+     * Replaces the cage with one that has the same cells and a different target.
+     *
+     * @param cage
+     * @return false if there is no other possible target
+     */
+    private boolean changeSign(Cage cage) {
+        List<String> possibleTargets = findPossibleTargets(getSolverCells(cage.getIDs()));
+        possibleTargets.remove(cage.getTarget());
+        if (possibleTargets.isEmpty()) return false;
+        replaceCages(cage, Collections.singletonList(
+                new Cage(possibleTargets.get(random.nextInt(possibleTargets.size())), cage.getIDs())));
+        return true;
+    }
+
+    /**
+     * Merges the cage with a random neighbour cage if the new cage is not too big.
+     *
+     * @param cage
+     * @return false if there is no neighbour cage that fits
+     */
+    private boolean mergeCage(Cage cage) {
+        updateCageTable();
+        List<Cage> neighbourCages = new ArrayList<>();
+        for (int id : cage.getIDs()) {
+            for (int neighbourID : findNeighbourIDs(id)) {
+                int[] coordinates = Table.getCoordinatesOfID(neighbourID, size);
+                Cage neighbourCage = cageTable[coordinates[0]][coordinates[1]];
+                if (neighbourCage != cage && !neighbourCages.contains(neighbourCage)
+                        && neighbourCage.getIDs().size() + cage.getIDs().size() <= cageSizeWeights.length)
+                    neighbourCages.add(neighbourCage);
+            }
+        }
+        if (neighbourCages.isEmpty()) return false;
+
+        Cage neighbourCage = neighbourCages.get(random.nextInt(neighbourCages.size()));
+        List<Integer> ids = new ArrayList<>(cage.getIDs());
+        ids.addAll(neighbourCage.getIDs());
+        Collections.sort(ids);
+        allCages.remove(neighbourCage);
+        replaceCages(cage, Collections.singletonList(new Cage(getTarget(getSolverCells(ids)), ids)));
+        return true;
+    }
+
+    /**
+     * Takes a different cell out of the cage as a single cell cage and makes new cages from the remaining cells.
+     *
+     * @param cage
+     * @param differentIDs the ids of the cells that have more than one possible solution
+     */
+    private void splitCage(Cage cage, List<Integer> differentIDs) {
+        List<Integer> remainingIDs = new ArrayList<>(cage.getIDs());
+        Integer splitID = remainingIDs.get(0);
+        for (Integer id : remainingIDs) {
+            if (differentIDs.contains(id)) {
+                splitID = id;
+                break;
+            }
+        }
+        remainingIDs.remove(splitID);
+
+        List<Cage> newCages = new ArrayList<>();
+        newCages.add(new Cage(getTarget(getSolverCells(Collections.singletonList(splitID))),
+                new ArrayList<>(Collections.singletonList(splitID))));
+        //The remaining cells might not be connected anymore
+        while (!remainingIDs.isEmpty()) {
+            List<Integer> ids = new ArrayList<>();
+            collectConnectedIDs(remainingIDs.get(0), remainingIDs, ids);
+            Collections.sort(ids);
+            newCages.add(new Cage(getTarget(getSolverCells(ids)), ids));
+        }
+        replaceCages(cage, newCages);
+    }
+
+    /**
+     * Moves the given id and all of its connected ids from the remaining ids to the list of ids.
+     *
+     * @param id           the id to start from
+     * @param remainingIDs the ids that are not part of a cage yet
+     * @param ids          the ids of the connected cells
+     */
+    private void collectConnectedIDs(Integer id, List<Integer> remainingIDs, List<Integer> ids) {
+        if (!remainingIDs.remove(id)) return;
+        ids.add(id);
+        for (Integer neighbourID : findNeighbourIDs(id)) collectConnectedIDs(neighbourID, remainingIDs, ids);
+    }
+
+    /**
+     * Returns the ids of the cells up, right, down and left of the given one.
+     *
+     * @param id
+     */
+    private List<Integer> findNeighbourIDs(int id) {
+        int[] coordinates = Table.getCoordinatesOfID(id, size);
+        int i = coordinates[0];
+        int j = coordinates[1];
+        List<Integer> neighbourIDs = new ArrayList<>();
+        if (j > 0) neighbourIDs.add(id - size);
+        if (i < size - 1) neighbourIDs.add(id + 1);
+        if (j < size - 1) neighbourIDs.add(id + size);
+        if (i > 0) neighbourIDs.add(id - 1);
+        return neighbourIDs;
+    }
+
+    /**
+     * Puts the new cages in the place of the old one and marks their cells as changed.
+     *
+     * @param oldCage
+     * @param newCages
+     */
+    private void replaceCages(Cage oldCage, List<Cage> newCages) {
+        int index = allCages.indexOf(oldCage);
+        allCages.remove(index);
+        allCages.addAll(index, newCages);
+        for (Cage cage : newCages) changedIDs.addAll(cage.getIDs());
+    }
+
+    /**
+     * Stores the current cage of every cell.
+     */
+    private void updateCageTable() {
+        cageTable = new Cage[size][size];
+        for (Cage cage : allCages) {
+            for (int id : cage.getIDs()) {
+                int[] coordinates = Table.getCoordinatesOfID(id, size);
+                cageTable[coordinates[0]][coordinates[1]] = cage;
+            }
+        }
+    }
+
+    /**
+     * Returns the solver cells with the given ids.
+     *
+     * @param ids
+     */
+    private List<SolverCell> getSolverCells(List<Integer> ids) {
+        List<SolverCell> solverCells = new ArrayList<>();
+        for (int id : ids) {
+            int[] coordinates = Table.getCoordinatesOfID(id, size);
+            solverCells.add(solverCellTable[coordinates[0]][coordinates[1]]);
+        }
+        return solverCells;
+    }
+
+    /**
+     * Chooses an appropriate random sign and calculates the target.
+     * Every possible target is weighted by the number of groups of values that fulfil it, so that the
+     * targets leaving fewer options are more likely.
+     *
+     * @param allSolverCells all the cells in the newly created cage
+     */
+    private String getTarget(List<SolverCell> allSolverCells) {
+        List<String> possibleTargets = findPossibleTargets(allSolverCells);
+        if (possibleTargets.size() == 1) return possibleTargets.get(0);
+
+        double[] weights = new double[possibleTargets.size()];
+        double totalWeight = 0;
+        for (int k = 0; k < possibleTargets.size(); k++) {
+            int numberOfGroups = getNumberOfGroups(allSolverCells.size(), possibleTargets.get(k));
+            weights[k] = Math.pow(numberOfGroups, -constrainingBias);
+            totalWeight += weights[k];
+        }
+
+        double chosenWeight = random.nextDouble() * totalWeight;
+        for (int k = 0; k < possibleTargets.size(); k++) {
+            chosenWeight -= weights[k];
+            if (chosenWeight < 0) return possibleTargets.get(k);
+        }
+        return possibleTargets.get(possibleTargets.size() - 1);
+    }
+
+    /**
+     * Returns the number of groups of values that fulfil the target in a cage with the given number of cells.
+     * Uses the same search as the solver and remembers the results.
+     *
+     * @param numberOfCells the number of cells in the cage
+     * @param target        the target with its sign
+     */
+    private int getNumberOfGroups(int numberOfCells, String target) {
+        String key = numberOfCells + " " + target;
+        Integer numberOfGroups = numbersOfGroups.get(key);
+        if (numberOfGroups == null) {
+            numberOfGroups = solver.findAllGroupsOfPossibleValues(numberOfCells, target).size();
+            numbersOfGroups.put(key, numberOfGroups);
+        }
+        return numberOfGroups;
+    }
+
+    /**
+     * Finds every target that the values of the cells can make, one for every sign that fits.
+     * If there is only one cell the target is its value without a sign.
+     *
+     * @param allSolverCells all the cells in the cage
+     */
+    private List<String> findPossibleTargets(List<SolverCell> allSolverCells) {
+        List<String> possibleTargets = new ArrayList<>();
+        if (allSolverCells.size() == 1) {
+            possibleTargets.add(String.valueOf(allSolverCells.get(0).getValue()));
+            return possibleTargets;
+        }
+
+        int sum = 0, product = 1;
+        for (SolverCell solverCell : allSolverCells) {
+            sum += solverCell.getValue();
+            product *= solverCell.getValue();
+        }
+        int max = findMaxValue(allSolverCells);
+        possibleTargets.add(sum + "+");
+        //The largest value minus or divided by all the other values
+        if (max - (sum - max) > 0) possibleTargets.add(max - (sum - max) + "-");
+        possibleTargets.add(product + "x");
+        if (max % (product / max) == 0) possibleTargets.add(max / (product / max) + "÷");
+        return possibleTargets;
+    }
+
+    /**
+     * Finds the maximum value of a solver cell list
+     *
+     * @param allSolverCells
+     */
+    private int findMaxValue(List<SolverCell> allSolverCells) {
+        int max = 0;
+        for (SolverCell solverCell : allSolverCells) {
+            if (solverCell.getValue() > max) max = solverCell.getValue();
+        }
+        return max;
+    }
+
+    /**
+     * Recursive method that gets a random number for a given solver cell
+     *
+     * @param id              the id of the solverCell
+     * @param solverCellTable the solver cell table
+     */
+    private boolean findValue(int id, SolverCell[][] solverCellTable) {
+        checkStopped();
+        int[] coordinates = Table.getCoordinatesOfID(id, size);
+        int i = coordinates[0];
+        int j = coordinates[1];
+        SolverCell solverCell = solverCellTable[i][j];
+        int value;
+        boolean switched;
+
+        long possibleValues = solverCell.getPossibleValues();
+        //If there are no possible values for a solver cell make an edit in the row of the table
+        if (possibleValues == 0) {
+            //Sets the counter for the switch position method to 0
+            counter = 0;
+            FlightEvents.GenerationStageEvent event = new FlightEvents.GenerationStageEvent();
+            event.begin();
+            switched = switchPosition(i, j, solverCellTable);
+            switchRetries += counter;
+            commitStageEvent(event, "switchPosition", counter, switched);
+            //if there is a problem with the switch method return false and start building a new table
+            if (!switched) return false;
+        } else {
+            //Takes a random number from the possible values and sets the solver cell with it
+            int pos = random.nextInt(Long.bitCount(possibleValues));
+            value = getValueOfBits(possibleValues, pos);
+            solverCell.setValue(value);
+            //Removes the possibilities from other solver cells in the column and row
+            solver.removePosColumnRow(i, j, value, solverCellTable);
+        }
+        id++;
+        //finds the next value recursively
+        if (id <= size * size) return findValue(id, solverCellTable);
+            //when the id is equal to the size of the table the process is finished and returns true
+        else return true;
+    }
+
+    /**
+     * Method to find reposition the numbers in a given row in order to have a possible random order
+     *
+     * @param i               coordinate
+     * @param j               coordinate
+     * @param solverCellTable the table of solverCells
+     */
+    private boolean switchPosition(int i, int j, SolverCell[][] solverCellTable) {
+
+        counter++;
+        //Returns false after the method has been repeated too many times
+        if (counter == 50) return false;
+        //Finds the number missing by finding the sum of all the possible values and then subtracting the one seen
+        long remainingPossibleValues = allValues;
+        for (int k = 0; k < i; k++) remainingPossibleValues &= ~(1L << solverCellTable[k][j].getValue());
+
+        for (int value = 1; value <= size; value++) {
+            if ((remainingPossibleValues & (1L << value)) == 0) continue;
+            for (int k = 0; k < i; k++) {
+                if (solverCellTable[k][j].hasPossibleValue(value)) {
+                    //Adds the possibilities back, saves the old value and changes to the new one
+                    //removes the possibilities after setting the new value
+                    int oldValue = solverCellTable[k][j].getValue();
+
+                    if (checkColumn(i, j, oldValue)) {
+                        solverCellTable[k][j].setValue(value);
+                        addPosColumnRow(k, j, oldValue);
+                        solver.removePosColumnRow(k, j, value, solverCellTable);
+
+                        solverCellTable[i][j].setValue(oldValue);
+                        solver.removePosColumnRow(i, j, oldValue, solverCellTable);
+                        return true;
+                    } else {
+                        solverCellTable[k][j].setValue(value);
+                        addPosColumnRow(k, j, oldValue);
+                        solver.removePosColumnRow(k, j, value, solverCellTable);
+                        solverCellTable[k][j].removePossibleValue(oldValue);
+
+                        return switchPosition(i, j, solverCellTable);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value of the bit at the given position among the bits that are set.
+     *
+     * @param possibleValues the possible values as bits
+     * @param pos            the position of the value, starting from the smallest one
+     */
+    private int getValueOfBits(long possibleValues, int pos) {
+        for (int count = 0; count < pos; count++) possibleValues &= possibleValues - 1;
+        return Long.numberOfTrailingZeros(possibleValues);
+    }
+
+    /**
+     * Checks if its possible to put this value in the column
+     *
+     * @param i        coordinate
+     * @param j        coordinate
+     * @param oldValue the value to put
+     */
+    private boolean checkColumn(int i, int j, int oldValue) {
+        SolverCell[][] solverCellTable = solver.getSolverCellTable();
+        for (int r = 0; r < j; r++) {
+            if (solverCellTable[i][r].getValue() == oldValue) return false;
+        }
+        return true;
+    }
+
+    private void addPosColumnRow(int i, int j, Integer oldValue) {
+        SolverCell[][] solverCellTable = solver.getSolverCellTable();
+        //Adds the old value as possible for the cells under the given one
+        for (int r = j + 1; r < solverCellTable.length; r++) {
+            solverCellTable[i][r].addPossibleValue(oldValue);
+        }
+        //Adds the old value as possible for the cells next to the one given
+        for (int c = 0; c < solverCellTable.length; c++) {
+            //only if the cells above don't have it
+            if (checkColumn(c, j, oldValue) && c != i) solverCellTable[c][j].addPossibleValue(oldValue);
+        }
+
+    }
+}
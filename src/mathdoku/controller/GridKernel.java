@@ -0,0 +1,125 @@
+package mathdoku.controller;
+
+/**
+ * Represents what the solver needs to know about a table of a common size, worked out once for every solver
+ * of that size: the other cells of the column and row of every cell and the cells of every line, in flat arrays
+ * that are walked without divisions or branches.
+ * It also counts the values of a group of a cage in a single long, with five bits for every value, so that a group
+ * can be compared with the taken values of its cage by a single subtraction instead of value by value.
+ * The top bit of every five is a guard: it is set in the counts of a group, and a taken value that the group
+ * does not have often enough borrows it, which no other value can do.
+ */
+final class GridKernel {
+    //Twelve values of five bits each are the most that fit in a long
+    static final int MAX_SIZE = 12;
+    private static final int LANE_BITS = 5;
+    private static final long LANE_MASK = 0xF;
+    private static final GridKernel[] KERNELS = new GridKernel[MAX_SIZE + 1];
+    private static volatile boolean enabled = !"false".equals(System.getProperty("mathdoku.kernels"));
+
+    final int size;
+    //The 2 * (size - 1) other cells of the column and row of every cell, cell * (2 * size - 2) + k
+    final int[] peers;
+    final int numberOfPeers;
+    //The cells of every line, the rows coming first and then the columns, line * size + k
+    final int[] lines;
+    final long guards;
+
+    static {
+        for (int size = 1; size <= MAX_SIZE; size++) KERNELS[size] = new GridKernel(size);
+    }
+
+    private GridKernel(int size) {
+        this.size = size;
+        numberOfPeers = 2 * size - 2;
+        peers = new int[size * size * numberOfPeers];
+        for (int cell = 0; cell < size * size; cell++) {
+            int i = cell % size;
+            int j = cell / size;
+            int p = cell * numberOfPeers;
+            for (int k = 0; k < size; k++) if (k != j) peers[p++] = k * size + i;
+            for (int k = 0; k < size; k++) if (k != i) peers[p++] = j * size + k;
+        }
+        lines = new int[2 * size * size];
+        for (int line = 0; line < 2 * size; line++)
+            for (int k = 0; k < size; k++)
+                lines[line * size + k] = line < size ? line * size + k : k * size + line - size;
+        long guards = 0;
+        for (int value = 1; value <= size; value++) guards |= 1L << getShift(value) + 4;
+        this.guards = guards;
+    }
+
+    /**
+     * Returns the kernel of a size, or null if the size has none or the kernels are disabled.
+     *
+     * @param size the size of the table
+     */
+    static GridKernel forSize(int size) {
+        return enabled && size >= 1 && size <= MAX_SIZE ? KERNELS[size] : null;
+    }
+
+    /**
+     * Makes the solvers created from now on use the kernels or not, which is how they are compared with the
+     * general code. They can also be disabled with the mathdoku.kernels system property.
+     */
+    static void setEnabled(boolean enabled) {
+        GridKernel.enabled = enabled;
+    }
+
+    /**
+     * Returns the counts of the values of a group, with the guard bit of every value set.
+     *
+     * @param group the values of the group
+     */
+    long countValues(int[] group) {
+        long counts = guards;
+        for (int value : group) counts += 1L << getShift(value);
+        return counts;
+    }
+
+    /**
+     * Finds the values the remaining cells of a cage can take, the same as
+     * {@link Solver#findRemainingPossibleValues}, from the counts of the groups.
+     *
+     * @param countsOfGroups         the counts of the values of every group, from {@link #countValues}
+     * @param valuesOfGroups         the values of every group as bits
+     * @param takenCounts            the counts of the taken values, without guard bits
+     * @param takenBits              the taken values as bits
+     * @param valuesOfRemainingCells the possible values of the cells without a value as bits
+     * @return the values as bits, or -1 if no group is left
+     */
+    long findRemainingPossibleValues(long[] countsOfGroups, long[] valuesOfGroups, long takenCounts, long takenBits,
+                                     long valuesOfRemainingCells) {
+        long remainingPossibleValues = 0;
+        boolean foundGroup = false;
+        for (int g = 0; g < countsOfGroups.length; g++) {
+            long valuesOfGroup = valuesOfGroups[g];
+            if ((valuesOfGroup & takenBits) != takenBits) continue;
+            long remainingCounts = countsOfGroups[g] - takenCounts;
+            //A value taken more often than the group has it borrowed its guard bit
+            if ((remainingCounts & guards) != guards) continue;
+            long remainingValues = valuesOfGroup;
+            for (long taken = takenBits; taken != 0; taken &= taken - 1) {
+                int value = Long.numberOfTrailingZeros(taken);
+                if ((remainingCounts >>> getShift(value) & LANE_MASK) == 0) remainingValues &= ~(1L << value);
+            }
+            if ((remainingValues & ~valuesOfRemainingCells) != 0) continue;
+            foundGroup = true;
+            remainingPossibleValues |= remainingValues;
+            //Nothing more can be removed once every possible value of the remaining cells is kept
+            if ((valuesOfRemainingCells & ~remainingPossibleValues) == 0) break;
+        }
+        return foundGroup ? remainingPossibleValues : -1;
+    }
+
+    /**
+     * Returns the count of a single taken value, to be added to the taken counts.
+     */
+    static long countValue(int value) {
+        return 1L << getShift(value);
+    }
+
+    private static int getShift(int value) {
+        return (value - 1) * LANE_BITS;
+    }
+}
@@ -0,0 +1,301 @@
+package mathdoku.controller;
+
+import mathdoku.model.Board;
+import mathdoku.model.Cage;
+import mathdoku.model.Puzzle;
+
+import java.util.*;
+
+/**
+ * Represents the engine that gives the player the next step of a game and the reason for it.
+ * Solves the game once with logical steps only, the way a player would, and keeps every step together with
+ * the cells its reasoning reads. When the logic is stuck, a value is taken from the solution and the logic goes on.
+ * After that, a change of the player updates only the steps that read the changed cell, so a hint is found at once.
+ */
+public class HintEngine {
+
+    /**
+     * Represents the kind of reasoning behind a hint.
+     */
+    public enum Technique {
+        MISTAKE, SINGLE_CELL_CAGE, NAKED_SINGLE, HIDDEN_SINGLE, SOLUTION
+    }
+
+    private int size;
+    private int[] solution;
+    private int[] playerValues;
+    private List<Hint> steps = new ArrayList<>();
+    private int[] stepOfCell;
+    private int[] missingPremises;
+    private List<List<Integer>> stepsOfPremise = new ArrayList<>();
+    private TreeSet<Integer> readyLogicalSteps = new TreeSet<>();
+    private TreeSet<Integer> readySolutionSteps = new TreeSet<>();
+    private TreeSet<Integer> mistakes = new TreeSet<>();
+
+    /**
+     * Finds the logical steps of a game with an empty board.
+     *
+     * @param allCages the cages of the table
+     * @param size     the size of the table
+     * @param solution the solution of the table
+     */
+    public HintEngine(List<Cage> allCages, int size, SolverCell[][] solution) {
+        this.size = size;
+        this.solution = new int[size * size];
+        playerValues = new int[size * size];
+        stepOfCell = new int[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++) this.solution[j * size + i] = solution[i][j].getValue();
+        for (int cell = 0; cell < size * size; cell++) stepsOfPremise.add(new ArrayList<>());
+
+        findSteps(allCages);
+
+        //Every step that reads no cell can be given at once
+        missingPremises = new int[steps.size()];
+        for (int s = 0; s < steps.size(); s++) {
+            missingPremises[s] = steps.get(s).premises.length;
+            for (int premise : steps.get(s).premises) stepsOfPremise.get(premise).add(s);
+            updateReadyStep(s);
+        }
+    }
+
+    /**
+     * Records a change of the player and updates the steps that read the changed cell.
+     *
+     * @param cell  the index of the cell, j * size + i
+     * @param value the new value, 0 for an empty cell
+     */
+    public void setValue(int cell, int value) {
+        boolean wasCorrect = playerValues[cell] == solution[cell];
+        playerValues[cell] = value;
+        boolean isCorrect = value == solution[cell];
+
+        if (value != 0 && !isCorrect) mistakes.add(cell);
+        else mistakes.remove(cell);
+
+        //A step can be given only when all the cells it reads have their right value
+        if (wasCorrect != isCorrect) {
+            for (int s : stepsOfPremise.get(cell)) {
+                missingPremises[s] += isCorrect ? -1 : 1;
+                updateReadyStep(s);
+            }
+        }
+        updateReadyStep(stepOfCell[cell]);
+    }
+
+    /**
+     * Returns the next hint for the board of the player: a mistake if there is one, otherwise the first logical
+     * step that the board allows, and a value from the solution only if there is no logical step.
+     *
+     * @return null if the board is solved
+     */
+    public Hint getNextHint() {
+        if (!mistakes.isEmpty()) {
+            int cell = mistakes.first();
+            return new Hint(cell, playerValues[cell], Technique.MISTAKE, new int[0],
+                    "The " + playerValues[cell] + " in " + getCellName(cell) + " is a mistake.");
+        }
+        if (!readyLogicalSteps.isEmpty()) return steps.get(readyLogicalSteps.first());
+        if (!readySolutionSteps.isEmpty()) return steps.get(readySolutionSteps.first());
+        return null;
+    }
+
+    /**
+     * Returns all of the steps, in the order they were found.
+     */
+    public List<Hint> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Puts a step in or out of the ready steps, depending on whether its premises are right and its cell is not.
+     *
+     * @param s the index of the step
+     */
+    private void updateReadyStep(int s) {
+        Hint step = steps.get(s);
+        boolean ready = missingPremises[s] == 0 && playerValues[step.cell] != solution[step.cell];
+        TreeSet<Integer> readySteps = step.technique == Technique.SOLUTION ? readySolutionSteps : readyLogicalSteps;
+        if (ready) readySteps.add(s);
+        else readySteps.remove(s);
+    }
+
+    /**
+     * Solves the game step by step on a board that keeps the candidates of its cells.
+     * Takes single cell cages first, then cells with a single candidate, then values with a single place in a row
+     * or column. If there is none, the cell with the fewest candidates gets its value from the solution.
+     *
+     * @param allCages the cages of the table
+     */
+    private void findSteps(List<Cage> allCages) {
+        Board board = new Board(new Puzzle(allCages, null));
+        board.setAutoCandidates(true);
+        Cage[] cageOfCell = new Cage[size * size];
+        for (Cage cage : allCages)
+            for (int id : cage.getIDs()) cageOfCell[id - 1] = cage;
+
+        for (int filled = 0; filled < size * size; filled++) {
+            Hint step = findSingleCellCage(board, cageOfCell);
+            if (step == null) step = findNakedSingle(board, cageOfCell);
+            if (step == null) step = findHiddenSingle(board, cageOfCell);
+            if (step == null) step = findSolutionStep(board);
+            stepOfCell[step.cell] = steps.size();
+            steps.add(step);
+            board.setValue(step.cell % size, step.cell / size, step.value);
+        }
+    }
+
+    private Hint findSingleCellCage(Board board, Cage[] cageOfCell) {
+        for (int cell = 0; cell < size * size; cell++) {
+            if (board.getValue(cell % size, cell / size) != 0 || cageOfCell[cell].getIDs().size() != 1) continue;
+            return new Hint(cell, solution[cell], Technique.SINGLE_CELL_CAGE, new int[0],
+                    getCellName(cell) + " is a cage of a single cell, so it takes its target " + solution[cell] + ".");
+        }
+        return null;
+    }
+
+    private Hint findNakedSingle(Board board, Cage[] cageOfCell) {
+        for (int cell = 0; cell < size * size; cell++) {
+            if (board.getValue(cell % size, cell / size) != 0) continue;
+            if (Long.bitCount(board.getCandidates(cell % size, cell / size)) != 1) continue;
+            boolean[] premises = new boolean[size * size];
+            addPremisesOfCell(board, cageOfCell, cell, premises);
+            return new Hint(cell, solution[cell], Technique.NAKED_SINGLE, toArray(premises),
+                    getCellName(cell) + " can only be " + solution[cell] + ": every other value is in its row or column"
+                            + " or does not fit its cage " + cageOfCell[cell].getTarget() + ".");
+        }
+        return null;
+    }
+
+    private Hint findHiddenSingle(Board board, Cage[] cageOfCell) {
+        for (int line = 0; line < 2 * size; line++) {
+            //Values seen in at least one cell and in at least two cells of the line
+            long once = 0, twice = 0;
+            for (int k = 0; k < size; k++) {
+                int cell = getCellOfLine(line, k);
+                long candidates = board.getCandidates(cell % size, cell / size);
+                twice |= once & candidates;
+                once |= candidates;
+            }
+            long singles = once & ~twice;
+            if (singles == 0) continue;
+
+            for (int k = 0; k < size; k++) {
+                int cell = getCellOfLine(line, k);
+                if ((board.getCandidates(cell % size, cell / size) & singles) == 0) continue;
+                //The reason reads every other cell of the line and what rules the value out of them
+                boolean[] premises = new boolean[size * size];
+                for (int other = 0; other < size; other++) {
+                    int otherCell = getCellOfLine(line, other);
+                    if (board.getValue(otherCell % size, otherCell / size) != 0) premises[otherCell] = true;
+                    else if (otherCell != cell) addPremisesOfCell(board, cageOfCell, otherCell, premises);
+                }
+                String lineName = line < size ? "row " + (line + 1) : "column " + (line - size + 1);
+                return new Hint(cell, solution[cell], Technique.HIDDEN_SINGLE, toArray(premises),
+                        solution[cell] + " can only go in " + getCellName(cell) + " in " + lineName + ".");
+            }
+        }
+        return null;
+    }
+
+    private Hint findSolutionStep(Board board) {
+        int bestCell = -1;
+        for (int cell = 0; cell < size * size; cell++) {
+            if (board.getValue(cell % size, cell / size) != 0) continue;
+            if (bestCell == -1 || Long.bitCount(board.getCandidates(cell % size, cell / size))
+                    < Long.bitCount(board.getCandidates(bestCell % size, bestCell / size))) bestCell = cell;
+        }
+        return new Hint(bestCell, solution[bestCell], Technique.SOLUTION, new int[0],
+                "There is no logical step left, so the " + solution[bestCell] + " in " + getCellName(bestCell)
+                        + " comes from the solution.");
+    }
+
+    /**
+     * Marks the cells with a value that the candidates of a cell depend on: the ones in its row, column and cage,
+     * and the ones in the rows and columns of the other cells of its cage.
+     */
+    private void addPremisesOfCell(Board board, Cage[] cageOfCell, int cell, boolean[] premises) {
+        addFilledCellsOfLines(board, cell, premises);
+        for (int id : cageOfCell[cell].getIDs()) {
+            int cageCell = id - 1;
+            if (board.getValue(cageCell % size, cageCell / size) != 0) premises[cageCell] = true;
+            else addFilledCellsOfLines(board, cageCell, premises);
+        }
+    }
+
+    private void addFilledCellsOfLines(Board board, int cell, boolean[] premises) {
+        int i = cell % size;
+        int j = cell / size;
+        for (int k = 0; k < size; k++) {
+            if (board.getValue(k, j) != 0) premises[j * size + k] = true;
+            if (board.getValue(i, k) != 0) premises[k * size + i] = true;
+        }
+    }
+
+    private int[] toArray(boolean[] premises) {
+        int count = 0;
+        for (boolean premise : premises) if (premise) count++;
+        int[] array = new int[count];
+        count = 0;
+        for (int cell = 0; cell < premises.length; cell++) if (premises[cell]) array[count++] = cell;
+        return array;
+    }
+
+    /**
+     * Returns the index of the k-th cell of a line, the rows coming first and then the columns.
+     */
+    private int getCellOfLine(int line, int k) {
+        return line < size ? line * size + k : k * size + line - size;
+    }
+
+    private String getCellName(int cell) {
+        return "row " + (cell / size + 1) + ", column " + (cell % size + 1);
+    }
+
+    /**
+     * Represents a step of the game: the cell, its value, the technique and the reason behind it,
+     * and the cells whose values the reason reads.
+     */
+    public static class Hint {
+        private final int cell;
+        private final int value;
+        private final Technique technique;
+        private final int[] premises;
+        private final String reason;
+
+        private Hint(int cell, int value, Technique technique, int[] premises, String reason) {
+            this.cell = cell;
+            this.value = value;
+            this.technique = technique;
+            this.premises = premises;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the index of the cell, j * size + i.
+         */
+        public int getCell() {
+            return cell;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public Technique getTechnique() {
+            return technique;
+        }
+
+        public int[] getPremises() {
+            return premises;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public boolean isMistake() {
+            return technique == Technique.MISTAKE;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package mathdoku.controller;
+
+import mathdoku.model.Puzzle;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a pool of generated games that are ready to be played.
+ * Keeps a few games of every size, generated by background workers, so that a new game can be taken at once.
+ * Only the small sizes are filled when the pool is created, and the others once a game of their size is taken.
+ * The games are refilled when their number gets low, their memory is limited and the games that do not fit
+ * can be written to a directory on the disk.
+ */
+public class PuzzlePool {
+    public static final int MIN_SIZE = 2;
+    public static final int MAX_SIZE = 16;
+    //The sizes that are played the most, which are also quick to generate
+    private static final int MAX_PRELOADED_SIZE = 9;
+    private static final int LOW_WATER_MARK = 2;
+    private static final int HIGH_WATER_MARK = 5;
+    private static final long GENERATION_TIME_LIMIT = 10000;
+    private static final long DEFAULT_MEMORY_CAP = 4 * 1024 * 1024;
+    private static PuzzlePool instance;
+
+    private final Map<Integer, Deque<Game>> games = new HashMap<>();
+    private final Map<Integer, AtomicInteger> pendingGames = new HashMap<>();
+    private final Map<Integer, AtomicInteger> spilledGames = new HashMap<>();
+    //The offset of every line of the spill file of a size, so the last one can be cut off without reading the others
+    private final Map<Integer, Deque<Long>> spillOffsets = new HashMap<>();
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final long memoryCap;
+    private final File spillDirectory;
+    private final ExecutorService workers;
+
+    /**
+     * Creates a pool and starts filling it in the background.
+     *
+     * @param memoryCap      the maximum number of bytes the games in the memory can take
+     * @param spillDirectory the directory for the games that do not fit in the memory, or null to drop them
+     * @param numberOfWorkers the number of background threads that generate games
+     */
+    public PuzzlePool(long memoryCap, File spillDirectory, int numberOfWorkers) {
+        this.memoryCap = memoryCap;
+        this.spillDirectory = spillDirectory;
+        if (spillDirectory != null) spillDirectory.mkdirs();
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+            games.put(size, new ConcurrentLinkedDeque<>());
+            pendingGames.put(size, new AtomicInteger());
+            spillOffsets.put(size, readSpillOffsets(size));
+            spilledGames.put(size, new AtomicInteger(spillOffsets.get(size).size()));
+        }
+        //The sizes with the fewest ready games are generated first
+        workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-pool-worker");
+            //The workers should never keep the application open or slow down the interface
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        for (int size = MIN_SIZE; size <= MAX_PRELOADED_SIZE; size++) refill(size);
+    }
+
+    /**
+     * Returns the pool of the application, creating it the first time.
+     * The spill directory can be set with the mathdoku.pool.spill system property.
+     */
+    public static synchronized PuzzlePool getInstance() {
+        if (instance == null) {
+            String spillPath = System.getProperty("mathdoku.pool.spill");
+            int numberOfWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            instance = new PuzzlePool(DEFAULT_MEMORY_CAP, spillPath == null ? null : new File(spillPath), numberOfWorkers);
+        }
+        return instance;
+    }
+
+    /**
+     * Takes a ready game of the given size out of the pool and starts generating a new one if needed.
+     *
+     * @param size the size of the table
+     * @return null if there is no ready game of that size
+     */
+    public Game take(int size) {
+        if (!games.containsKey(size)) return null;
+        Game game = games.get(size).pollFirst();
+        if (game != null) usedMemory.addAndGet(-game.getMemory());
+        else game = readSpilledGame(size);
+        refill(size);
+        return game;
+    }
+
+    /**
+     * Returns the number of ready games of the given size, in the memory and on the disk.
+     *
+     * @param size the size of the table
+     */
+    public int getNumberOfGames(int size) {
+        if (!games.containsKey(size)) return 0;
+        return games.get(size).size() + spilledGames.get(size).get();
+    }
+
+    /**
+     * Starts generating games of the given size until there are enough of them.
+     * Every generation reserves its place with a compare and set, so threads that refill the same size at once
+     * never start more generations than are missing.
+     *
+     * @param size the size of the table
+     */
+    private void refill(int size) {
+        AtomicInteger pending = pendingGames.get(size);
+        if (getNumberOfGames(size) + pending.get() >= LOW_WATER_MARK) return;
+        while (true) {
+            int pendingNumber = pending.get();
+            int numberOfGames = getNumberOfGames(size) + pendingNumber;
+            if (numberOfGames >= HIGH_WATER_MARK) return;
+            if (pending.compareAndSet(pendingNumber, pendingNumber + 1)) workers.execute(new Refill(size, numberOfGames));
+        }
+    }
+
+    /**
+     * Puts a game in the memory or, if the memory is full, on the disk.
+     *
+     * @param game
+     */
+    private void add(Game game) {
+        if (usedMemory.addAndGet(game.getMemory()) <= memoryCap) {
+            games.get(game.getSize()).addLast(game);
+            return;
+        }
+        usedMemory.addAndGet(-game.getMemory());
+        if (spillDirectory != null) writeSpilledGame(game);
+    }
+
+    private File getSpillFile(int size) {
+        return new File(spillDirectory, "games" + size + ".txt");
+    }
+
+    /**
+     * Finds the offset of every line of the spill file of the given size, reading it once when the pool is created.
+     *
+     * @param size the size of the table
+     */
+    private Deque<Long> readSpillOffsets(int size) {
+        Deque<Long> offsets = new ArrayDeque<>();
+        if (spillDirectory == null || !getSpillFile(size).exists()) return offsets;
+        try (InputStream input = new BufferedInputStream(new FileInputStream(getSpillFile(size)))) {
+            long offset = 0;
+            boolean lineStart = true;
+            for (int b; (b = input.read()) != -1; offset++) {
+                if (lineStart) offsets.addLast(offset);
+                lineStart = b == '\n';
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            offsets.clear();
+        }
+        return offsets;
+    }
+
+    /**
+     * Adds the game as a line at the end of the spill file of its size.
+     *
+     * @param game
+     */
+    private synchronized void writeSpilledGame(Game game) {
+        File spillFile = getSpillFile(game.getSize());
+        long offset = spillFile.length();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(spillFile, true), StandardCharsets.UTF_8)) {
+            writer.write(game.toLine() + "\n");
+            spillOffsets.get(game.getSize()).addLast(offset);
+            spilledGames.get(game.getSize()).incrementAndGet();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the last game from the spill file of the given size by cutting the file off where its line starts,
+     * so the other games are neither read nor written again.
+     *
+     * @param size the size of the table
+     * @return null if there are no games on the disk
+     */
+    private synchronized Game readSpilledGame(int size) {
+        if (spillDirectory == null || spillOffsets.get(size).isEmpty()) return null;
+        long offset = spillOffsets.get(size).peekLast();
+        try (RandomAccessFile spillFile = new RandomAccessFile(getSpillFile(size), "rw")) {
+            byte[] line = new byte[(int) (spillFile.length() - offset)];
+            spillFile.seek(offset);
+            spillFile.readFully(line);
+            spillFile.setLength(offset);
+            spillOffsets.get(size).removeLast();
+            spilledGames.get(size).decrementAndGet();
+            return Game.fromLine(size, new String(line, StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Represents the generation of one game for the pool.
+     * Is ordered by the number of games its size had when it was started, and then by the size,
+     * since the smaller tables are faster to generate.
+     */
+    private class Refill implements Runnable, Comparable<Refill> {
+        private final int size;
+        private final int numberOfGames;
+
+        private Refill(int size, int numberOfGames) {
+            this.size = size;
+            this.numberOfGames = numberOfGames;
+        }
+
+        @Override
+        public void run() {
+            try {
+                add(new Game(new Generator(size, new CancellationToken(GENERATION_TIME_LIMIT, 0))));
+            } catch (CancellationException e) {
+                //A game that takes too long is left out, and the next game taken starts another one
+            } finally {
+                pendingGames.get(size).decrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Refill refill) {
+            if (numberOfGames != refill.numberOfGames) return Integer.compare(numberOfGames, refill.numberOfGames);
+            return Integer.compare(size, refill.size);
+        }
+    }
+
+    /**
+     * Represents a generated game: the text of its cages and its solution.
+     */
+    public static class Game {
+        private final int size;
+        private final long seed;
+        private final String text;
+        private final byte[] solution;
+
+        /**
+         * Takes the game out of a generator, keeping only what is needed to play it.
+         *
+         * @param generator
+         */
+        public Game(Generator generator) {
+            SolverCell[][] solverCellTable = generator.getSolverCellTable();
+            size = solverCellTable.length;
+            seed = generator.getSeed();
+            text = generator.getText();
+            solution = new byte[size * size];
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++) solution[j * size + i] = (byte) solverCellTable[i][j].getValue();
+        }
+
+        private Game(int size, long seed, String text, byte[] solution) {
+            this.size = size;
+            this.seed = seed;
+            this.text = text;
+            this.solution = solution;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Returns the game as a puzzle that can be shared by many sessions.
+         */
+        public Puzzle getPuzzle() {
+            return new Puzzle(text, solution);
+        }
+
+        /**
+         * Returns the solution as a solver cell table, the way the solver gives it.
+         */
+        public SolverCell[][] getSolverCellTable() {
+            SolverCell[][] solverCellTable = new SolverCell[size][size];
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++) {
+                    solverCellTable[i][j] = new SolverCell(1L << solution[j * size + i]);
+                    solverCellTable[i][j].setValue(solution[j * size + i]);
+                }
+            return solverCellTable;
+        }
+
+        /**
+         * Returns the approximate number of bytes the game takes in the memory.
+         */
+        private long getMemory() {
+            return 64 + 2L * text.length() + solution.length;
+        }
+
+        /**
+         * Writes the game in a single line: the seed, the solution and the cages separated by bars,
+         * with the values of the solution separated by commas and the lines of the cages by semicolons.
+         */
+        private String toLine() {
+            StringBuilder line = new StringBuilder().append(seed).append("|");
+            for (byte value : solution) line.append(value).append(",");
+            line.setLength(line.length() - 1);
+            return line.append("|").append(text.trim().replace("\n", ";")).toString();
+        }
+
+        private static Game fromLine(int size, String line) {
+            String[] parts = line.split("\\|");
+            String[] values = parts[1].split(",");
+            byte[] solution = new byte[values.length];
+            for (int k = 0; k < values.length; k++) solution[k] = Byte.parseByte(values[k]);
+            return new Game(size, Long.parseLong(parts[0]), parts[2].replace(";", "\n"), solution);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package mathdoku.controller;
+
+/**
+ * Represents when a search starts again from the top with another random order of the values, so that a bad
+ * choice near the top does not keep it in a large subtree without a solution.
+ * A run stops after a number of backtracks that grows with every restart, following the Luby sequence
+ * (1, 1, 2, 1, 1, 2, 4, ...) or a geometric one, so that some run is always long enough to finish.
+ * The states proved to have no solution can be kept in a transposition table, and then no run searches them again.
+ */
+public class RestartPolicy {
+
+    /**
+     * Represents how the number of backtracks of a run grows.
+     */
+    public enum Kind {
+        LUBY, GEOMETRIC
+    }
+
+    public static final int DEFAULT_UNIT = 64;
+    private static final int TRANSPOSITION_CAPACITY = 1 << 14;
+
+    private final Kind kind;
+    private final int unit;
+    private final double factor;
+    private final long seed;
+    private final boolean keepNogoods;
+
+    /**
+     * Creates a policy that follows the Luby sequence with the default number of backtracks and keeps the nogoods.
+     *
+     * @param seed the seed of the random order of the values
+     */
+    public RestartPolicy(long seed) {
+        this(Kind.LUBY, DEFAULT_UNIT, 2, seed, true);
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param kind        how the number of backtracks of a run grows
+     * @param unit        the number of backtracks of the first run
+     * @param factor      how much the number grows with every restart of a geometric policy
+     * @param seed        the seed of the random order of the values
+     * @param keepNogoods true if the states proved to have no solution are kept between the runs
+     */
+    public RestartPolicy(Kind kind, int unit, double factor, long seed, boolean keepNogoods) {
+        if (unit < 1 || factor < 1) throw new IllegalArgumentException("The unit and the factor have to be at least 1");
+        this.kind = kind;
+        this.unit = unit;
+        this.factor = factor;
+        this.seed = seed;
+        this.keepNogoods = keepNogoods;
+    }
+
+    /**
+     * Returns the number of backtracks after which a run stops.
+     *
+     * @param run the number of the run, starting at 0
+     */
+    public long getCutoff(int run) {
+        if (kind == Kind.GEOMETRIC) return (long) Math.min(unit * Math.pow(factor, run), Long.MAX_VALUE / 2);
+        return unit * luby(run + 1);
+    }
+
+    /**
+     * Returns the i-th term of the Luby sequence, starting at 1.
+     */
+    private static long luby(long i) {
+        while (true) {
+            //The sequence ends with 2^(k-1) at i = 2^k - 1, and before that repeats itself
+            int k = 64 - Long.numberOfLeadingZeros(i);
+            if (i == (1L << k) - 1) return 1L << (k - 1);
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean keepsNogoods() {
+        return keepNogoods;
+    }
+
+    /**
+     * Returns a table for the nogoods of a search of the given size, or null if they are not kept.
+     *
+     * @param size the size of the table of the puzzle
+     */
+    TranspositionTable createNogoods(int size) {
+        return keepNogoods ? new TranspositionTable(size, TRANSPOSITION_CAPACITY) : null;
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + " restarts every " + unit + " backtracks, seed " + seed;
+    }
+}
@@ -0,0 +1,88 @@
+package mathdoku.controller;
+
+import mathdoku.model.GameSession;
+import mathdoku.model.Puzzle;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents the games of many players played at the same time, for example behind a web server.
+ * The sessions are kept in a concurrent map and every session has its own lock, so players never wait
+ * for each other. A session keeps only its board and history, and the puzzle is shared with every session
+ * that plays it. Sessions that have not been used for a while can be evicted.
+ */
+public class SessionManager {
+    private static final int UNDO_CAPACITY = 1024;
+    private static final int UNDO_SNAPSHOT_INTERVAL = 64;
+
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Starts a new game of a puzzle.
+     *
+     * @param puzzle the puzzle, which can be shared with other sessions
+     * @return the new session
+     */
+    public GameSession createSession(Puzzle puzzle) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), puzzle, UNDO_CAPACITY, UNDO_SNAPSHOT_INTERVAL);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Starts a new game of a generated puzzle, taken from the pool if there is a ready one.
+     *
+     * @param size the size of the table
+     * @return the new session
+     */
+    public GameSession createSession(int size) {
+        PuzzlePool.Game game = PuzzlePool.getInstance().take(size);
+        if (game == null) game = new PuzzlePool.Game(new Generator(size));
+        return createSession(game.getPuzzle());
+    }
+
+    /**
+     * Returns a session by its id.
+     *
+     * @param id the id of the session
+     * @return null if there is no such session
+     */
+    public GameSession getSession(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param id the id of the session
+     * @return false if there was no such session
+     */
+    public boolean removeSession(long id) {
+        return sessions.remove(id) != null;
+    }
+
+    public int getNumberOfSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Ends the sessions that have not been used for the given time.
+     *
+     * @param maxIdleTime the time in milliseconds
+     * @return the number of sessions ended
+     */
+    public int evictIdleSessions(long maxIdleTime) {
+        long oldestAccessTime = System.currentTimeMillis() - maxIdleTime;
+        int evicted = 0;
+        for (Iterator<GameSession> iterator = sessions.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getLastAccessTime() < oldestAccessTime) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
@@ -0,0 +1,439 @@
+package mathdoku.controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the solving of a pack of puzzles by several worker processes on the same machine, so that the pauses of
+ * the garbage collector of one JVM do not hold up the others. The pack is cut into shards of a few puzzles, and every
+ * worker starts with a queue of neighbouring shards. A worker takes its next shard from the front of its own queue,
+ * and when that is empty it steals one from the back of the longest queue of another worker.
+ * The workers are {@link ShardWorker} processes that talk to the coordinator over a socket on localhost and send a
+ * heartbeat all the time with the progress of their search. A worker that exits, loses its connection, misses its
+ * heartbeats or makes no progress on a shard for a while is stopped, the puzzles it did not answer go back to the
+ * others, and another worker is started in its place. Every puzzle has a time limit by default, so a hard puzzle
+ * is answered as stopped instead of holding up its worker for ever.
+ * The answers are written in the order of the pack, one line for every puzzle, as soon as all before it are known.
+ * A coordinator solves a single pack.
+ */
+public class ShardCoordinator {
+    public static final int DEFAULT_SHARD_SIZE = 16;
+    private static final long HEARTBEAT_TIMEOUT = 16 * ShardWorker.HEARTBEAT_INTERVAL;
+    //A search moves on many times in a heartbeat, so a worker whose progress stays the same this long is stuck
+    private static final long PROGRESS_TIMEOUT = 64 * ShardWorker.HEARTBEAT_INTERVAL;
+    //A new JVM takes a while before it can send anything
+    private static final long STARTUP_TIMEOUT = 30_000;
+    private static final long STOP_TIMEOUT = 2_000;
+    //A puzzle that every worker fails on this often is answered with an error instead of being tried again
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final List<String> puzzles;
+    private final int numberOfWorkers;
+    private final int shardSize;
+    private final long timeLimit;
+    private final String[] results;
+    private final List<Worker> workers = new ArrayList<>();
+    //The shards of the workers that failed, which are taken before any is stolen
+    private final Deque<Shard> orphans = new ArrayDeque<>();
+    private int port;
+    private int written;
+    private int respawnsLeft;
+    private int steals;
+    private int failures;
+
+    /**
+     * Prepares the solving of a pack.
+     *
+     * @param puzzles         the text of the cages of every puzzle
+     * @param numberOfWorkers the number of worker processes
+     * @param shardSize       the number of puzzles of a shard
+     * @param timeLimit       the time a worker can take for a puzzle, in milliseconds, 0 for no limit
+     */
+    public ShardCoordinator(List<String> puzzles, int numberOfWorkers, int shardSize, long timeLimit) {
+        if (numberOfWorkers < 1 || shardSize < 1)
+            throw new IllegalArgumentException("There has to be a worker and a puzzle in a shard");
+        this.puzzles = new ArrayList<>(puzzles);
+        this.numberOfWorkers = numberOfWorkers;
+        this.shardSize = shardSize;
+        this.timeLimit = timeLimit;
+        results = new String[puzzles.size()];
+        respawnsLeft = numberOfWorkers;
+    }
+
+    /**
+     * Solves a pack given as a file, or on the standard input for -, and writes the answers to the standard output.
+     * The puzzles of the pack are separated by empty lines.
+     * Usage: ShardCoordinator pack [workers] [puzzles of a shard] [time limit of a puzzle in milliseconds, 0 for no limit]
+     *
+     * @param args the pack, the number of workers, the size of a shard and the time limit
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: ShardCoordinator pack [workers] [puzzles of a shard] [time limit in ms]");
+            return;
+        }
+        byte[] bytes = args[0].equals("-") ? System.in.readAllBytes() : Files.readAllBytes(Paths.get(args[0]));
+        int numberOfWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int shardSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SHARD_SIZE;
+        long timeLimit = args.length > 3 ? Long.parseLong(args[3]) : ShardWorker.DEFAULT_TIME_LIMIT;
+        ShardCoordinator coordinator = new ShardCoordinator(readPack(new String(bytes, StandardCharsets.UTF_8)),
+                numberOfWorkers, shardSize, timeLimit);
+        long startTime = System.nanoTime();
+        coordinator.run(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        System.err.println(coordinator + " in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Returns the text of every puzzle of a pack, in which they are separated by empty lines.
+     *
+     * @param text the text of the pack
+     */
+    public static List<String> readPack(String text) {
+        List<String> puzzles = new ArrayList<>();
+        for (String puzzle : text.replace("\r", "").split("\n\\s*\n")) if (!puzzle.trim().isEmpty()) puzzles.add(puzzle.trim());
+        return puzzles;
+    }
+
+    /**
+     * Starts the workers, gives them the shards until every puzzle is answered and stops them again.
+     *
+     * @param output where the answers are written, one line for every puzzle in the order of the pack: the values of
+     *               its solution separated by commas, j * size + i, or none, stopped or error with the reason
+     * @throws IOException if every worker failed and none can be started any more
+     */
+    public void run(Writer output) throws IOException, InterruptedException {
+        if (puzzles.isEmpty()) return;
+        try (ServerSocket serverSocket = new ServerSocket(0, numberOfWorkers, InetAddress.getLoopbackAddress())) {
+            port = serverSocket.getLocalPort();
+            Thread acceptor = new Thread(() -> accept(serverSocket), "shard-coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            try {
+                solveShards(output);
+            } finally {
+                //Before the server socket closes, so that a worker that is just starting does not find it closed
+                stopWorkers();
+            }
+        }
+    }
+
+    /**
+     * Launches the workers and waits until every puzzle is answered, writing the answers as they come.
+     */
+    private synchronized void solveShards(Writer output) throws IOException, InterruptedException {
+        List<Shard> shards = new ArrayList<>();
+        for (int first = 0; first < puzzles.size(); first += shardSize)
+            shards.add(new Shard(first, Math.min(first + shardSize, puzzles.size()), 0));
+        for (int w = 0; w < numberOfWorkers; w++) launch();
+        //Every worker starts with a part of the pack of its own, so most shards are never stolen
+        for (int s = 0; s < shards.size(); s++)
+            workers.get((int) ((long) s * numberOfWorkers / shards.size())).shards.add(shards.get(s));
+        while (written < puzzles.size()) {
+            wait(ShardWorker.HEARTBEAT_INTERVAL);
+            checkWorkers(System.currentTimeMillis());
+            write(output);
+        }
+    }
+
+    /**
+     * Starts a worker process, which gets the next number.
+     */
+    private void launch() throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ShardWorker.class.getName(), String.valueOf(port), String.valueOf(workers.size()), String.valueOf(timeLimit))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        workers.add(new Worker(workers.size(), process, System.currentTimeMillis()));
+    }
+
+    /**
+     * Accepts the connections of the workers until the server socket is closed.
+     */
+    private void accept(ServerSocket serverSocket) {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> read(socket), "shard-coordinator-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+        } catch (IOException e) {
+            //The server socket is closed once every puzzle is answered
+        }
+    }
+
+    /**
+     * Reads the messages of a worker until it stops or fails.
+     *
+     * @param socket the connection of the worker
+     */
+    private void read(Socket socket) {
+        Worker worker = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (input.readByte() != ShardWorker.HELLO) return;
+            int number = input.readInt();
+            synchronized (this) {
+                if (number < 0 || number >= workers.size() || !workers.get(number).alive || workers.get(number).output != null)
+                    return;
+                worker = workers.get(number);
+                worker.socket = socket;
+                worker.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                worker.lastHeartbeat = System.currentTimeMillis();
+                worker.lastProgress = worker.lastHeartbeat;
+            }
+            while (true) {
+                byte type = input.readByte();
+                int index = type == ShardWorker.RESULT ? input.readInt() : 0;
+                String text = type == ShardWorker.RESULT ? input.readUTF() : null;
+                long progress = type == ShardWorker.HEARTBEAT ? input.readLong() : 0;
+                synchronized (this) {
+                    if (!worker.alive) return;
+                    worker.lastHeartbeat = System.currentTimeMillis();
+                    //Any message but a heartbeat with the same progress shows that the worker moves on
+                    if (type != ShardWorker.HEARTBEAT || progress != worker.progress) worker.lastProgress = worker.lastHeartbeat;
+                    if (type == ShardWorker.HEARTBEAT) worker.progress = progress;
+                    if (type == ShardWorker.RESULT && index >= 0 && index < results.length && results[index] == null) {
+                        results[index] = text;
+                        notifyAll();
+                    } else if (type == ShardWorker.REQUEST) {
+                        worker.current = null;
+                        worker.waiting = true;
+                        dispatch(worker);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (worker != null) fail(worker, "lost its connection");
+            }
+        }
+    }
+
+    /**
+     * Sends the next shard to a worker that asked for one, or leaves it waiting if there is none left for now.
+     */
+    private void dispatch(Worker worker) {
+        Shard shard = takeShard(worker);
+        if (shard == null) return;
+        worker.current = shard;
+        worker.waiting = false;
+        worker.lastProgress = System.currentTimeMillis();
+        try {
+            worker.output.writeByte(ShardWorker.SHARD);
+            worker.output.writeInt(shard.first);
+            worker.output.writeInt(shard.end - shard.first);
+            for (int index = shard.first; index < shard.end; index++) worker.output.writeUTF(puzzles.get(index));
+            worker.output.flush();
+        } catch (IOException e) {
+            fail(worker, "could not be sent a shard");
+        }
+    }
+
+    /**
+     * Returns the next shard of a worker: the first of its own queue, then one of a worker that failed, and then the
+     * last of the longest queue of the others, which is the one its owner would get to last.
+     */
+    private Shard takeShard(Worker worker) {
+        Shard shard = worker.shards.pollFirst();
+        if (shard == null) shard = orphans.pollFirst();
+        if (shard != null) return shard;
+        Worker victim = null;
+        for (Worker other : workers)
+            if (other != worker && (victim == null || other.shards.size() > victim.shards.size())) victim = other;
+        if (victim == null || victim.shards.isEmpty()) return null;
+        steals++;
+        return victim.shards.pollLast();
+    }
+
+    /**
+     * Stops the workers that exited, missed their heartbeats or made no progress on their shard.
+     *
+     * @param now the current time, in milliseconds
+     * @throws IOException if no worker is left
+     */
+    private void checkWorkers(long now) throws IOException {
+        //A failed worker is replaced by a new one at the end of the list
+        for (int w = 0; w < workers.size(); w++) {
+            Worker worker = workers.get(w);
+            if (!worker.alive) continue;
+            if (!worker.process.isAlive()) fail(worker, "exited with " + worker.process.exitValue());
+            else if (now - worker.lastHeartbeat > (worker.output == null ? STARTUP_TIMEOUT : HEARTBEAT_TIMEOUT))
+                fail(worker, "missed its heartbeats");
+            else if (worker.current != null && now - worker.lastProgress > PROGRESS_TIMEOUT)
+                fail(worker, "made no progress");
+        }
+        for (Worker worker : workers) if (worker.alive) return;
+        throw new IOException("Every worker failed, " + (puzzles.size() - written) + " puzzles are not answered");
+    }
+
+    /**
+     * Stops a worker and gives the puzzles it did not answer to the others.
+     * The puzzle it was working on when it failed is tried again, until it has failed on it too often.
+     *
+     * @param worker the worker
+     * @param reason what went wrong, for the log
+     */
+    private void fail(Worker worker, String reason) {
+        if (!worker.alive) return;
+        worker.alive = false;
+        failures++;
+        System.err.println("Worker " + worker.number + " " + reason + ", its shards go to the others");
+        closeSocket(worker);
+        worker.process.destroyForcibly();
+        Shard shard = worker.current;
+        if (shard != null) {
+            //The answers of a shard come in order, so the puzzles before the first without one are done
+            int first = shard.first;
+            while (first < shard.end && results[first] != null) first++;
+            int attempts = first == shard.first ? shard.attempts + 1 : 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                results[first++] = "error every worker failed on it";
+                attempts = 0;
+            }
+            if (first < shard.end) orphans.addFirst(new Shard(first, shard.end, attempts));
+        }
+        orphans.addAll(worker.shards);
+        worker.shards.clear();
+        if (respawnsLeft > 0) {
+            respawnsLeft--;
+            try {
+                launch();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        //The workers that are waiting for a shard can have one of the orphans now
+        for (int w = 0; w < workers.size(); w++) {
+            Worker other = workers.get(w);
+            if (other.alive && other.waiting) dispatch(other);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Writes the answers that follow the ones written so far without a gap.
+     */
+    private void write(Writer output) throws IOException {
+        int start = written;
+        while (written < results.length && results[written] != null) output.write(results[written++] + "\n");
+        if (written > start) output.flush();
+    }
+
+    /**
+     * Tells the workers to stop, and stops the ones that do not in time.
+     */
+    private void stopWorkers() throws InterruptedException {
+        List<Worker> stopped;
+        synchronized (this) {
+            for (Worker worker : workers) {
+                if (!worker.alive) continue;
+                //A worker that is stopping is not failing, so its connection may close without anything being done
+                worker.alive = false;
+                if (worker.output == null) {
+                    worker.process.destroyForcibly();
+                    continue;
+                }
+                try {
+                    worker.output.writeByte(ShardWorker.STOP);
+                    worker.output.flush();
+                } catch (IOException e) {
+                    //It is stopped below
+                }
+            }
+            stopped = new ArrayList<>(workers);
+        }
+        for (Worker worker : stopped) {
+            if (!worker.process.waitFor(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) worker.process.destroyForcibly();
+            synchronized (this) {
+                closeSocket(worker);
+            }
+        }
+    }
+
+    private static void closeSocket(Worker worker) {
+        if (worker.socket == null) return;
+        try {
+            worker.socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized int getSteals() {
+        return steals;
+    }
+
+    /**
+     * Returns the number of workers that exited, lost their connection, missed their heartbeats or made no progress.
+     */
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return puzzles.size() + " puzzles in shards of " + shardSize + " on " + numberOfWorkers + " workers, " + steals
+                + " shards stolen, " + failures + " workers failed";
+    }
+
+    /**
+     * Represents the puzzles of the pack from first up to end.
+     */
+    private static class Shard {
+        private final int first;
+        private final int end;
+        //The number of workers in a row that failed on its first puzzle
+        private final int attempts;
+
+        private Shard(int first, int end, int attempts) {
+            this.first = first;
+            this.end = end;
+            this.attempts = attempts;
+        }
+    }
+
+    /**
+     * Represents a worker process, its connection once it has one, and the shards it has.
+     */
+    private static class Worker {
+        private final int number;
+        private final Process process;
+        private final Deque<Shard> shards = new ArrayDeque<>();
+        private Socket socket;
+        private DataOutputStream output;
+        private Shard current;
+        //Asked for a shard when there was none left, and gets the next one that is given back
+        private boolean waiting;
+        private long lastHeartbeat;
+        private long progress;
+        private long lastProgress;
+        private boolean alive = true;
+
+        private Worker(int number, Process process, long startTime) {
+            this.number = number;
+            this.process = process;
+            lastHeartbeat = startTime;
+        }
+    }
+}
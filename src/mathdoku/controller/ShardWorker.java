@@ -0,0 +1,143 @@
+package mathdoku.controller;
+
+import mathdoku.model.Puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Represents a worker process of a {@link ShardCoordinator}: it connects to the coordinator on localhost, asks it
+ * for a shard of puzzles whenever it has nothing to do, and sends the answer of every puzzle as soon as it has it.
+ * A thread of its own sends a heartbeat all the time with the progress of the search, so the coordinator can tell a
+ * worker that is slow from one that is stuck or gone. The worker stops when the coordinator tells it to or closes
+ * the connection.
+ * Usage: ShardWorker port number [time limit of a puzzle in milliseconds, 0 for no limit]
+ */
+public class ShardWorker {
+    static final byte HELLO = 1;
+    static final byte REQUEST = 2;
+    static final byte HEARTBEAT = 3;
+    static final byte RESULT = 4;
+    static final byte SHARD = 5;
+    static final byte STOP = 6;
+    static final long HEARTBEAT_INTERVAL = 250;
+    static final long DEFAULT_TIME_LIMIT = 60_000;
+
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private final long timeLimit;
+    //The progress of the puzzles already answered and the token of the one being solved
+    private volatile long finishedProgress;
+    private volatile CancellationToken token;
+
+    private ShardWorker(Socket socket, long timeLimit) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.timeLimit = timeLimit;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        int number = Integer.parseInt(args[1]);
+        long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_TIME_LIMIT;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            ShardWorker worker = new ShardWorker(socket, timeLimit);
+            try {
+                worker.send(HELLO, number, null);
+                Thread heartbeat = new Thread(worker::sendHeartbeats, "shard-worker-heartbeat");
+                heartbeat.setDaemon(true);
+                heartbeat.start();
+                worker.run();
+            } catch (IOException e) {
+                //The coordinator closed the connection, because it is done or gave the shard to another worker
+            }
+        }
+    }
+
+    /**
+     * Asks for shards and solves them until the coordinator says to stop.
+     */
+    private void run() throws IOException {
+        while (true) {
+            send(REQUEST, 0, null);
+            if (input.readByte() == STOP) return;
+            int first = input.readInt();
+            int count = input.readInt();
+            String[] texts = new String[count];
+            for (int k = 0; k < count; k++) texts[k] = input.readUTF();
+            for (int k = 0; k < count; k++) {
+                token = new CancellationToken(timeLimit, 0);
+                String answer = solve(texts[k], token);
+                finishedProgress += token.getProgress() + 1;
+                token = null;
+                send(RESULT, first + k, answer);
+            }
+        }
+    }
+
+    /**
+     * Returns the answer of a puzzle on a single line: the values of its solution separated by commas,
+     * j * size + i, or none, stopped or error with the reason.
+     *
+     * @param text  the text of the cages of the puzzle
+     * @param token the limits of the search, whose progress the heartbeats send
+     */
+    private String solve(String text, CancellationToken token) {
+        try {
+            Puzzle puzzle = new Puzzle(text, null);
+            int size = puzzle.getSize();
+            SolveResult result = new Solver(puzzle.getAllCages(), size, 1, token).getResult();
+            if (result.isStopped()) return "stopped " + result;
+            if (result.getSolutions().isEmpty()) return "none";
+            SolverCell[][] solution = result.getSolutions().get(0);
+            StringBuilder values = new StringBuilder();
+            for (int j = 0; j < size; j++)
+                for (int i = 0; i < size; i++) values.append(i + j == 0 ? "" : ",").append(solution[i][j].getValue());
+            return values.toString();
+        } catch (RuntimeException e) {
+            return ("error " + e).replace('\n', ' ');
+        }
+    }
+
+    /**
+     * Returns a number that grows while the worker solves: with every puzzle answered and during every search.
+     */
+    private long getProgress() {
+        CancellationToken currentToken = token;
+        return finishedProgress + (currentToken == null ? 0 : currentToken.getProgress());
+    }
+
+    private void sendHeartbeats() {
+        try {
+            while (true) {
+                Thread.sleep(HEARTBEAT_INTERVAL);
+                send(HEARTBEAT, 0, null);
+            }
+        } catch (IOException | InterruptedException e) {
+            //The connection is closed, and the worker stops with it
+        }
+    }
+
+    /**
+     * Sends a message to the coordinator, from the thread that solves or the one that sends the heartbeats.
+     *
+     * @param type   the type of the message
+     * @param number the number of the worker for a hello, the index of the puzzle for a result
+     * @param text   the answer of a result
+     */
+    private void send(byte type, int number, String text) throws IOException {
+        synchronized (output) {
+            output.writeByte(type);
+            if (type == HELLO || type == RESULT) output.writeInt(number);
+            if (type == RESULT) output.writeUTF(text);
+            if (type == HEARTBEAT) output.writeLong(getProgress());
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package mathdoku.controller;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Represents the part of the search tree of a solver that a stream of solutions has not read yet.
+ * Keeps the states still to be searched as a stack and searches them only as far as the next solution.
+ * Splitting gives away the half of the stack nearest the root, which holds the largest subtrees,
+ * so that a parallel stream shares the work evenly between its threads.
+ */
+class SolutionSpliterator implements Spliterator<int[]> {
+
+    private final Solver solver;
+    private final Deque<State> states;
+
+    /**
+     * Creates the spliterator of every solution from a state of a solver.
+     *
+     * @param solver         the solver of the table
+     * @param possibleValues the possible values of every cell as bits, or null if the state has no solution
+     * @param values         the values of the cells, 0 for a cell without a value
+     */
+    SolutionSpliterator(Solver solver, long[] possibleValues, int[] values) {
+        this.solver = solver;
+        states = new ArrayDeque<>();
+        if (possibleValues != null) states.add(new State(possibleValues, values));
+    }
+
+    private SolutionSpliterator(Solver solver, Deque<State> states) {
+        this.solver = solver;
+        this.states = states;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        while (!states.isEmpty()) {
+            State state = states.pollLast();
+            if (!expand(state)) {
+                action.accept(state.values);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+        //A single state is expanded until there are two to share, or it turns out to be a solution
+        while (states.size() == 1) {
+            State state = states.pollLast();
+            if (!expand(state)) {
+                states.add(state);
+                return null;
+            }
+        }
+        if (states.size() < 2) return null;
+        Deque<State> half = new ArrayDeque<>();
+        for (int k = states.size() / 2; k > 0; k--) half.add(states.pollFirst());
+        return new SolutionSpliterator(solver, half);
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    /**
+     * Puts the states after every possible value of the cell with the fewest possible values on the stack,
+     * the smallest value last so that it is searched first.
+     *
+     * @param state the state to expand
+     * @return false if every cell of the state has a value, which makes it a solution
+     */
+    private boolean expand(State state) {
+        int cell = solver.findCellWithFewestValues(state.possibleValues, state.values);
+        if (cell == -1) return false;
+        long cellPossibleValues = state.possibleValues[cell];
+        while (cellPossibleValues != 0) {
+            int value = 63 - Long.numberOfLeadingZeros(cellPossibleValues);
+            cellPossibleValues &= ~(1L << value);
+
+            long[] newPossibleValues = state.possibleValues.clone();
+            int[] newValues = state.values.clone();
+            if (solver.setValue(cell, value, newPossibleValues, newValues))
+                states.add(new State(newPossibleValues, newValues));
+        }
+        return true;
+    }
+
+    /**
+     * Represents a state of the search: the possible values and the values of the cells after the propagation.
+     */
+    private static class State {
+        private final long[] possibleValues;
+        private final int[] values;
+
+        private State(long[] possibleValues, int[] values) {
+            this.possibleValues = possibleValues;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package mathdoku.controller;
+
+import mathdoku.model.Cage;
+import mathdoku.model.Puzzle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a check of many completed grids of the same puzzle at once, without the interface: every value is
+ * between 1 and the size, every row and column has every value, and every cage reaches its target.
+ * The grids are checked in batches that are turned around so that the values of a cell in every grid of the
+ * batch lie next to each other. Every check is then a loop over the batch without branches, which the JIT turns
+ * into vector instructions where it can: a row or column is checked by putting the bits of its values together,
+ * and a cage by adding, multiplying or comparing its values for the whole batch at once.
+ * Nothing of it changes after it is created, so it can be used by any number of threads.
+ */
+public class SolutionValidator {
+    public static final int BATCH_SIZE = 1024;
+    //Larger than any target, and small enough that multiplying by a value can not overflow
+    private static final long PRODUCT_LIMIT = 1L << 31;
+
+    private final int size;
+    private final int numberOfCells;
+    private final int allValues;
+    private final int[] cellsOfLines;
+    private final int[] cellsOfCages;
+    private final int[] startOfCage;
+    private final char[] signs;
+    private final int[] targets;
+
+    /**
+     * Prepares the check of the grids of a puzzle.
+     *
+     * @param puzzle the puzzle
+     */
+    public SolutionValidator(Puzzle puzzle) {
+        size = puzzle.getSize();
+        numberOfCells = size * size;
+        allValues = size == 32 ? -1 : (1 << size) - 1;
+        cellsOfLines = new int[2 * numberOfCells];
+        for (int line = 0; line < 2 * size; line++)
+            for (int k = 0; k < size; k++)
+                cellsOfLines[line * size + k] = line < size ? line * size + k : k * size + line - size;
+
+        List<Cage> allCages = puzzle.getAllCages();
+        cellsOfCages = new int[numberOfCells];
+        startOfCage = new int[allCages.size() + 1];
+        signs = new char[allCages.size()];
+        targets = new int[allCages.size()];
+        for (int c = 0; c < allCages.size(); c++) {
+            startOfCage[c + 1] = startOfCage[c] + puzzle.getNumberOfCellsInCage(c);
+            for (int k = 0; k < puzzle.getNumberOfCellsInCage(c); k++)
+                cellsOfCages[startOfCage[c] + k] = puzzle.getCellOfCage(c, k);
+            String target = allCages.get(c).getTarget();
+            //A cage of a single cell has no sign and is checked like a sum
+            boolean hasSign = Solver.hasSign(target);
+            signs[c] = hasSign ? target.charAt(target.length() - 1) : '+';
+            targets[c] = Integer.parseInt(hasSign ? target.substring(0, target.length() - 1) : target);
+        }
+    }
+
+    /**
+     * Checks if a single grid is a solution of the puzzle.
+     *
+     * @param grid the value of every cell, j * size + i
+     */
+    public boolean isValid(byte[] grid) {
+        boolean[] valid = new boolean[1];
+        validate(grid, 1, valid);
+        return valid[0];
+    }
+
+    /**
+     * Checks if each of the given grids is a solution of the puzzle.
+     *
+     * @param grids the grids one after the other, each with the value of every cell, j * size + i
+     * @param count the number of grids
+     * @param valid whether each grid is a solution, filled by the check
+     * @return the number of grids that are solutions
+     */
+    public int validate(byte[] grids, int count, boolean[] valid) {
+        //A few grids are checked in a batch of their own size
+        int stride = Math.max(1, Math.min(BATCH_SIZE, count));
+        int[] columns = new int[numberOfCells * stride];
+        int[] bitColumns = new int[numberOfCells * stride];
+        int[] failures = new int[stride];
+        int[] accumulator = new int[stride];
+        int[] max = new int[stride];
+        long[] product = new long[stride];
+        int numberOfValid = 0;
+        for (int start = 0; start < count; start += stride) {
+            int batch = Math.min(stride, count - start);
+            //Turns the batch around, so that the values of a cell in every grid lie next to each other
+            for (int cell = 0; cell < numberOfCells; cell++) {
+                int base = cell * stride;
+                int offset = start * numberOfCells + cell;
+                for (int k = 0; k < batch; k++) {
+                    int value = grids[offset + k * numberOfCells] & 0xFF;
+                    columns[base + k] = value;
+                    bitColumns[base + k] = 1 << value - 1;
+                }
+            }
+            Arrays.fill(failures, 0, batch, 0);
+            checkRange(columns, stride, batch, failures);
+            checkLines(bitColumns, stride, batch, failures);
+            for (int c = 0; c < signs.length; c++) checkCage(c, columns, stride, batch, failures, accumulator, max, product);
+            for (int k = 0; k < batch; k++) {
+                valid[start + k] = failures[k] == 0;
+                if (failures[k] == 0) numberOfValid++;
+            }
+        }
+        return numberOfValid;
+    }
+
+    /**
+     * Marks the grids with a value below 1 or above the size, by the sign of its differences from the bounds.
+     */
+    private void checkRange(int[] columns, int stride, int batch, int[] failures) {
+        for (int cell = 0; cell < numberOfCells; cell++) {
+            int base = cell * stride;
+            for (int k = 0; k < batch; k++) failures[k] |= ((size - columns[base + k]) | (columns[base + k] - 1)) >>> 31;
+        }
+    }
+
+    /**
+     * Marks the grids with a row or column that does not have every value, by putting the bits of its values together.
+     * A value out of range may give the bit of another value, but it has already been marked.
+     */
+    private void checkLines(int[] bitColumns, int stride, int batch, int[] failures) {
+        for (int line = 0; line < 2 * size; line++) {
+            int start = line * size;
+            for (int g = 0; g < batch; g++) {
+                int lineBits = 0;
+                for (int k = 0; k < size; k++) lineBits |= bitColumns[cellsOfLines[start + k] * stride + g];
+                failures[g] |= lineBits ^ allValues;
+            }
+        }
+    }
+
+    /**
+     * Marks the grids whose values do not reach the target of a cage, worked out the same way as
+     * {@link Cage#checkTarget(List)}: the sum, the product, the largest value minus the others, and the largest
+     * value divided by the others.
+     */
+    private void checkCage(int cage, int[] columns, int stride, int batch, int[] failures, int[] sum, int[] max,
+                           long[] product) {
+        int target = targets[cage];
+        Arrays.fill(sum, 0, batch, 0);
+        Arrays.fill(max, 0, batch, 0);
+        Arrays.fill(product, 0, batch, 1);
+        boolean multiplies = signs[cage] == 'x' || signs[cage] == '÷';
+        for (int c = startOfCage[cage]; c < startOfCage[cage + 1]; c++) {
+            int base = cellsOfCages[c] * stride;
+            for (int k = 0; k < batch; k++) {
+                sum[k] += columns[base + k];
+                max[k] = Math.max(max[k], columns[base + k]);
+            }
+            if (multiplies) {
+                for (int k = 0; k < batch; k++) product[k] = Math.min(product[k] * columns[base + k], PRODUCT_LIMIT);
+            }
+        }
+        switch (signs[cage]) {
+            case '+':
+                for (int k = 0; k < batch; k++) failures[k] |= sum[k] ^ target;
+                break;
+            case '-':
+                for (int k = 0; k < batch; k++) failures[k] |= 2 * max[k] - sum[k] ^ target;
+                break;
+            case 'x':
+                for (int k = 0; k < batch; k++) failures[k] |= fold(product[k] ^ target);
+                break;
+            case '÷':
+                //The largest value is the target times the others when the product times the target is its square
+                for (int k = 0; k < batch; k++) failures[k] |= fold(product[k] * target - (long) max[k] * max[k]);
+                break;
+            default:
+                Arrays.fill(failures, 0, batch, 1);
+        }
+    }
+
+    /**
+     * Returns an int that is 0 only if the long is 0.
+     */
+    private static int fold(long value) {
+        return (int) (value | value >>> 32);
+    }
+}
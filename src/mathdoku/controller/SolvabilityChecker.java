@@ -0,0 +1,236 @@
+package mathdoku.controller;
+
+import mathdoku.model.Cage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Represents a check of whether the values entered by the player can still lead to a solution.
+ * Solves the table with the entries as given values, and if there is no solution finds a minimal set of entries
+ * that can not all be right: removing any one of them makes the table solvable again.
+ * Keeps the solver, the last solution and the last conflict between checks, so that most checks need no search,
+ * and can run the checks on a background thread that always takes the latest entries.
+ * Every check has a time limit, so a table that is too hard to solve gives no answer instead of a check that never ends.
+ */
+public class SolvabilityChecker {
+    private static final int TRANSPOSITION_CAPACITY = 1 << 16;
+    private static final long CHECK_TIME_LIMIT = 2000;
+
+    private final Solver solver;
+    private boolean searched;
+    private volatile CancellationToken token;
+    private volatile boolean closed;
+    private int[] lastSolution;
+    private int[] lastConflict;
+    private int[] lastConflictValues;
+    private final AtomicReference<int[]> pendingEntries = new AtomicReference<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "solvability-checker");
+        //The checks should never keep the application open
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Prepares the solver of a table, without searching: the first solution is found by the first check.
+     * The solver keeps the states it proved to have no solution, which the many searches with nearly the same
+     * entries of a check can skip.
+     *
+     * @param allCages the cages of the table
+     * @param size     the size of the table
+     */
+    public SolvabilityChecker(List<Cage> allCages, int size) {
+        solver = Solver.prepare(allCages, size, 1);
+        solver.setTranspositionTable(new TranspositionTable(size, TRANSPOSITION_CAPACITY));
+    }
+
+    /**
+     * Checks if the table can still be solved with the given entries, within the time limit of a check.
+     *
+     * @param entries the value of every cell, j * size + i, 0 for an empty cell
+     */
+    public synchronized Result check(int[] entries) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CHECK_TIME_LIMIT);
+        if (!searched) {
+            //The first search finds the groups of the cages and a solution that most entries fit
+            SolveResult first = solve(new int[entries.length], deadline);
+            if (first.isStopped()) return new Result(false, true, true, new int[0]);
+            searched = true;
+            if (first.getStatus() == SolveResult.Status.SOLVED) lastSolution = toValues(solver.getSolutions().get(0));
+        }
+        //Entries that fit the last solution can be solved without a search
+        if (lastSolution != null && fits(entries, lastSolution)) return new Result(true, false, true, new int[0]);
+        //Entries that still contain the last conflict can not be solved
+        if (lastConflict != null && containsLastConflict(entries)) return new Result(false, false, true, lastConflict.clone());
+
+        SolveResult result = solve(entries, deadline);
+        if (result.isStopped()) return new Result(false, true, true, new int[0]);
+        if (result.getStatus() == SolveResult.Status.SOLVED) {
+            lastSolution = toValues(solver.getSolutions().get(0));
+            return new Result(true, false, true, new int[0]);
+        }
+        return findMinimalConflict(entries, deadline);
+    }
+
+    /**
+     * Searches with the given entries in the time the check has left.
+     *
+     * @param entries  the value of every cell, j * size + i, 0 for an empty cell
+     * @param deadline the end of the check, from {@link System#nanoTime()}
+     */
+    private SolveResult solve(int[] entries, long deadline) {
+        token = new CancellationToken(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())), 0);
+        //A checker closed while the token was made must not start a search
+        if (closed) token.cancel();
+        return solver.solve(entries, token);
+    }
+
+    /**
+     * Checks the entries on the background thread and gives the result to the callback there.
+     * If more entries come before the check starts, only the latest ones are checked.
+     *
+     * @param entries  the value of every cell, j * size + i, 0 for an empty cell
+     * @param callback what to do with the result
+     */
+    public void checkInBackground(int[] entries, Consumer<Result> callback) {
+        if (closed) return;
+        if (pendingEntries.getAndSet(entries.clone()) == null)
+            worker.execute(() -> callback.accept(check(pendingEntries.getAndSet(null))));
+    }
+
+    /**
+     * Checks the entries on the background thread once the checks before them are done, and gives the result
+     * to the callback there. Unlike {@link #checkInBackground}, it is never replaced by later entries.
+     *
+     * @param entries  the value of every cell, j * size + i, 0 for an empty cell
+     * @param callback what to do with the result
+     */
+    public void checkLater(int[] entries, Consumer<Result> callback) {
+        if (closed) return;
+        int[] copy = entries.clone();
+        worker.execute(() -> callback.accept(check(copy)));
+    }
+
+    /**
+     * Stops the check that is running and the background thread, when the checker is no longer needed.
+     */
+    public void close() {
+        closed = true;
+        CancellationToken runningToken = token;
+        if (runningToken != null) runningToken.cancel();
+        worker.shutdownNow();
+    }
+
+    /**
+     * Removes the entries one by one and keeps only the ones without which the table becomes solvable.
+     * The entries that fit the last solution are tried first, since they are the least likely to be wrong.
+     *
+     * If the time of the check runs out first, the entries left still can not all be right, only there may be more
+     * of them than needed, so they are not kept as the last conflict and the result says they are not minimal.
+     *
+     * @param entries  the entries that can not be solved
+     * @param deadline the end of the check, from {@link System#nanoTime()}
+     * @return the result with the cells of the entries left, which can not all be right
+     */
+    private Result findMinimalConflict(int[] entries, long deadline) {
+        List<Integer> cells = new ArrayList<>();
+        for (int cell = 0; cell < entries.length; cell++)
+            if (entries[cell] != 0 && lastSolution != null && entries[cell] == lastSolution[cell]) cells.add(cell);
+        for (int cell = 0; cell < entries.length; cell++)
+            if (entries[cell] != 0 && (lastSolution == null || entries[cell] != lastSolution[cell])) cells.add(cell);
+
+        int[] remainingEntries = entries.clone();
+        boolean minimal = true;
+        for (int cell : cells) {
+            remainingEntries[cell] = 0;
+            SolveResult result = solve(remainingEntries, deadline);
+            //The entry is part of the conflict if the others can be solved without it
+            if (result.getStatus() != SolveResult.Status.UNSOLVABLE) remainingEntries[cell] = entries[cell];
+            if (result.isStopped()) {
+                minimal = false;
+                break;
+            }
+        }
+
+        List<Integer> conflict = new ArrayList<>();
+        for (int cell = 0; cell < remainingEntries.length; cell++) if (remainingEntries[cell] != 0) conflict.add(cell);
+        int[] conflictArray = new int[conflict.size()];
+        for (int k = 0; k < conflictArray.length; k++) conflictArray[k] = conflict.get(k);
+        if (!minimal) return new Result(false, false, false, conflictArray);
+
+        lastConflict = conflictArray;
+        lastConflictValues = new int[lastConflict.length];
+        for (int k = 0; k < lastConflict.length; k++) lastConflictValues[k] = entries[lastConflict[k]];
+        return new Result(false, false, true, lastConflict.clone());
+    }
+
+    private boolean fits(int[] entries, int[] solution) {
+        for (int cell = 0; cell < entries.length; cell++)
+            if (entries[cell] != 0 && entries[cell] != solution[cell]) return false;
+        return true;
+    }
+
+    private boolean containsLastConflict(int[] entries) {
+        for (int k = 0; k < lastConflict.length; k++)
+            if (entries[lastConflict[k]] != lastConflictValues[k]) return false;
+        return true;
+    }
+
+    private int[] toValues(SolverCell[][] solution) {
+        int size = solution.length;
+        int[] values = new int[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++) values[j * size + i] = solution[i][j].getValue();
+        return values;
+    }
+
+    /**
+     * Represents the result of a check: whether the table can still be solved and, if not,
+     * the cells of the entries that can not all be right, or that the check ran out of time before it could tell.
+     */
+    public static class Result {
+        private final boolean solvable;
+        private final boolean stopped;
+        private final boolean minimal;
+        private final int[] conflictingCells;
+
+        private Result(boolean solvable, boolean stopped, boolean minimal, int[] conflictingCells) {
+            this.solvable = solvable;
+            this.stopped = stopped;
+            this.minimal = minimal;
+            this.conflictingCells = conflictingCells;
+        }
+
+        public boolean isSolvable() {
+            return solvable;
+        }
+
+        /**
+         * Checks if the check ran out of time before it could tell whether the table can be solved.
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Checks if none of the conflicting cells can be left out, which is not known when the check ran out of time
+         * while it was leaving them out.
+         */
+        public boolean isMinimal() {
+            return minimal;
+        }
+
+        /**
+         * Returns the indexes of the conflicting cells, j * size + i, empty if the table can be solved.
+         */
+        public int[] getConflictingCells() {
+            return conflictingCells;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package mathdoku.controller;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a search with limits: whether the table was solved, has no solution, or the search
+ * stopped before it could tell. A search that stopped keeps the solutions found until then and the assignment
+ * with the most cells that it reached, together with the number of nodes it visited and the time it took.
+ */
+public class SolveResult {
+
+    /**
+     * Represents how a search ended.
+     */
+    public enum Status {
+        SOLVED, UNSOLVABLE, TIMED_OUT, CANCELLED
+    }
+
+    private final Status status;
+    private final List<SolverCell[][]> solutions;
+    private final int[] bestAssignment;
+    private final long nodes;
+    private final long elapsedTime;
+    private final SolverStatistics statistics;
+
+    SolveResult(Status status, List<SolverCell[][]> solutions, int[] bestAssignment, long nodes, long elapsedTime,
+                SolverStatistics statistics) {
+        this.status = status;
+        this.solutions = solutions;
+        this.bestAssignment = bestAssignment;
+        this.nodes = nodes;
+        this.elapsedTime = elapsedTime;
+        this.statistics = statistics;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks if the search ended before it could tell whether there are more solutions.
+     */
+    public boolean isStopped() {
+        return status == Status.TIMED_OUT || status == Status.CANCELLED;
+    }
+
+    /**
+     * Returns the solutions found, which may be fewer than asked for if the search stopped.
+     */
+    public List<SolverCell[][]> getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Returns the assignment with the most cells that the search reached, j * size + i, 0 for a cell without a value.
+     * Every value in it agrees with its row, column and cage, but it may not lead to a solution.
+     */
+    public int[] getBestAssignment() {
+        return bestAssignment;
+    }
+
+    /**
+     * Returns the number of nodes the search visited.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the time the search took, in nanoseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns the statistics of the search, or null if the metrics were disabled.
+     */
+    public SolverStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        int assignedCells = 0;
+        for (int value : bestAssignment) if (value != 0) assignedCells++;
+        return status + " after " + nodes + " nodes in " + elapsedTime / 1_000_000 + " ms, " + solutions.size()
+                + " solutions, " + assignedCells + " of " + bestAssignment.length + " cells at most";
+    }
+}
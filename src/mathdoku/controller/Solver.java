@@ -1,24 +1,65 @@
 package mathdoku.controller;
 
 import mathdoku.model.Cage;
-import mathdoku.model.Cell;
 import mathdoku.model.Table;
 
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents a solver.
- * Solves the mathdoku table by using possible values for every cell and iterating through the cells by recursion.
+ * Solves the mathdoku table by keeping the possible values of every cell as the bits of a long and trying,
+ * by recursion, the values of the cell with the fewest possible values first, or the ways to fill a whole cage.
  */
 public class Solver {
-    private Table table;
+
+    /**
+     * Represents what the search gives values to in a single step: the cell with the fewest possible values,
+     * or every cell of the cage with the fewest ways to be filled, one way at a time.
+     */
+    public enum Branching {
+        CELL, CAGE
+    }
+
+    //Far more steps of finding groups than any cage of a generated table needs
+    private static final long MAX_GROUP_STEPS = 1L << 22;
+
+    private List<Cage> allCages;
     private List<List<Integer>> allGroupsOfPossibleValues;
     private List<Integer> allValuesInCage;
-    private Set<Integer> possibleValuesInCage;
-    private Cell[][] cellTable;
+    private long possibleValuesInCage;
+    private int[] cageOfCell;
+    private int[][] cellsOfCage;
+    private int[][][] groupsOfCage;
+    private long[][] valuesOfGroupsOfCage;
+    private GridKernel kernel;
+    private long[][] countsOfGroupsOfCage;
+    private long[] initialPossibleValues;
     private SolverCell[][] solverCellTable;
+    private List<SolverCell[][]> solutions = new ArrayList<>();
+    private int solutionLimit = 1;
     private int maxValue;
     private boolean solved = false;
+    private CancellationToken token = new CancellationToken();
+    private SolveResult.Status stopStatus;
+    private long nodes;
+    private int[] bestAssignment;
+    private int bestAssignedCells;
+    private SolveResult result;
+    private SolverStatistics statistics;
+    private long groupsTime;
+    //Set only while the groups of the cages are found, which then stops with the search
+    private CancellationToken groupsToken;
+    private long groupSteps;
+    private boolean cagesPrepared;
+    private TranspositionTable transpositionTable;
+    private Branching branching = Branching.CELL;
+    private RestartPolicy restartPolicy;
+    private SplittableRandom random;
+    private long backtracks;
+    private long backtrackLimit;
+    private boolean restarting;
 
     /**
      * Constructing a solver with given table
@@ -26,12 +67,182 @@ public class Solver {
      * @param table the table with all the cells in it
      */
     public Solver(Table table) {
-        this.table = table;
-        cellTable = table.getCellTable();
-        maxValue = cellTable.length;
+        this(table.getAllCages(), table.getSize(), 1);
+    }
+
+    /**
+     * Constructing a solver from the cages of a table without the need of its cells.
+     * Stops searching when the given number of solutions has been found, which makes it possible to check
+     * if a table has a unique solution by asking for two.
+     *
+     * @param allCages      the cages of the table
+     * @param size          the size of the table
+     * @param solutionLimit the maximum number of solutions to look for
+     */
+    public Solver(List<Cage> allCages, int size, int solutionLimit) {
+        this(allCages, size, solutionLimit, new CancellationToken());
+    }
+
+    /**
+     * Constructing a solver from the cages of a table whose search stops when the token says so.
+     * How the search ended is given by {@link #getResult()}.
+     *
+     * @param allCages      the cages of the table
+     * @param size          the size of the table
+     * @param solutionLimit the maximum number of solutions to look for
+     * @param token         the limits of the search
+     */
+    public Solver(List<Cage> allCages, int size, int solutionLimit, CancellationToken token) {
+        this(allCages, size, solutionLimit, token, null);
+    }
+
+    /**
+     * Constructing a solver from the cages of a table that skips the states the table has proved to have
+     * no solution and adds the ones it proves itself. The table may be shared with other solvers of the same cages.
+     *
+     * @param allCages           the cages of the table
+     * @param size               the size of the table
+     * @param solutionLimit      the maximum number of solutions to look for
+     * @param token              the limits of the search
+     * @param transpositionTable the states without a solution, or null to search without them
+     */
+    public Solver(List<Cage> allCages, int size, int solutionLimit, CancellationToken token,
+                  TranspositionTable transpositionTable) {
+        this(allCages, size, solutionLimit, token, transpositionTable, Branching.CELL);
+    }
+
+    /**
+     * Constructing a solver from the cages of a table that gives values to whole cages or to single cells.
+     * Filling a whole cage in one step saves levels of the search when the cages are small and have few groups.
+     *
+     * @param allCages           the cages of the table
+     * @param size               the size of the table
+     * @param solutionLimit      the maximum number of solutions to look for
+     * @param token              the limits of the search
+     * @param transpositionTable the states without a solution, or null to search without them
+     * @param branching          what the search gives values to in a single step
+     */
+    public Solver(List<Cage> allCages, int size, int solutionLimit, CancellationToken token,
+                  TranspositionTable transpositionTable, Branching branching) {
+        this(allCages, size, solutionLimit, token, transpositionTable, branching, null);
+    }
+
+    /**
+     * Constructing a solver from the cages of a table whose search starts again with another random order of the
+     * values after a number of backtracks, which keeps a bad choice near the top from making it slow.
+     *
+     * @param allCages           the cages of the table
+     * @param size               the size of the table
+     * @param solutionLimit      the maximum number of solutions to look for
+     * @param token              the limits of the search
+     * @param transpositionTable the states without a solution, or null to search without them
+     * @param branching          what the search gives values to in a single step
+     * @param restartPolicy      when the search starts again, or null to search in a single run
+     */
+    public Solver(List<Cage> allCages, int size, int solutionLimit, CancellationToken token,
+                  TranspositionTable transpositionTable, Branching branching, RestartPolicy restartPolicy) {
+        this(allCages, size, solutionLimit, transpositionTable, branching, restartPolicy);
+        //The groups of a large cage can take longer than the whole search, so they are found within its limits
+        token.start();
+        stopStatus = null;
+        prepareCages(token);
+        search(stopStatus == null ? initialPossibleValues.clone() : null, new int[maxValue * maxValue], token);
+    }
+
+    /**
+     * Constructing a solver from the cages of a table, with the cells of every cage but without the groups
+     * or a search.
+     */
+    private Solver(List<Cage> allCages, int size, int solutionLimit, TranspositionTable transpositionTable,
+                   Branching branching, RestartPolicy restartPolicy) {
+        this.allCages = allCages;
+        this.transpositionTable = transpositionTable;
+        this.branching = branching;
+        this.restartPolicy = restartPolicy;
+        this.solutionLimit = solutionLimit;
+        maxValue = size;
         solverCellTable = new SolverCell[maxValue][maxValue];
-        storeAllPossibleValues();
-        getCellValue(1, solverCellTable);
+        cageOfCell = new int[maxValue * maxValue];
+        cellsOfCage = new int[allCages.size()][];
+        groupsOfCage = new int[allCages.size()][][];
+        valuesOfGroupsOfCage = new long[allCages.size()][];
+        initialPossibleValues = new long[maxValue * maxValue];
+        //A cell outside every cage, as in a table with only some of its cages, can take any value
+        Arrays.fill(initialPossibleValues, ((1L << maxValue) - 1) << 1);
+        Arrays.fill(cageOfCell, allCages.size());
+        for (int c = 0; c < allCages.size(); c++) {
+            cellsOfCage[c] = new int[allCages.get(c).getIDs().size()];
+            for (int k = 0; k < cellsOfCage[c].length; k++) {
+                int cell = allCages.get(c).getIDs().get(k) - 1;
+                cellsOfCage[c][k] = cell;
+                cageOfCell[cell] = c;
+            }
+        }
+    }
+
+    /**
+     * Creates a solver from the cages of a table that has not searched yet, for searches with some of the values
+     * given. The groups of the cages are found by the first search, within its limits, and there is no result before it.
+     *
+     * @param allCages      the cages of the table
+     * @param size          the size of the table
+     * @param solutionLimit the maximum number of solutions to look for
+     */
+    public static Solver prepare(List<Cage> allCages, int size, int solutionLimit) {
+        return new Solver(allCages, size, solutionLimit, null, Branching.CELL, null);
+    }
+
+    /**
+     * Finds the groups of the cages that do not have them yet within the limits of the token, without a search.
+     * Solvers of the same cages created afterwards take the groups from the cages instead of looking for them,
+     * so the solvers that search a puzzle at the same time can all be prepared by one thread first.
+     *
+     * @param token the limits of finding the groups
+     * @return true if the groups of every cage were found, otherwise {@link #getResult()} says how it stopped
+     */
+    public boolean prepareGroups(CancellationToken token) {
+        token.start();
+        stopStatus = null;
+        if (!cagesPrepared) prepareCages(token);
+        //A search from no state ends at once, with the status that stopped the groups
+        if (!cagesPrepared) search(null, new int[maxValue * maxValue], token);
+        return cagesPrepared;
+    }
+
+    /**
+     * Finds the groups of the cages that do not have them yet and prepares the kernel, until the token says to stop.
+     * A cage whose groups were not all found is left without them, and they are looked for again by the next search.
+     *
+     * @param token the limits of the search, already started
+     */
+    private void prepareCages(CancellationToken token) {
+        long startTime = System.nanoTime();
+        groupsToken = token;
+        groupSteps = 0;
+        for (int c = 0; c < allCages.size() && stopStatus == null; c++) {
+            if (groupsOfCage[c] != null) continue;
+            Cage cage = allCages.get(c);
+            storeAllPossibleValues(cage);
+            if (stopStatus != null) break;
+            //Only the values of the table, whatever groups the cage was given
+            for (int cell : cellsOfCage[c]) initialPossibleValues[cell] = possibleValuesInCage & ((1L << maxValue) - 1) << 1;
+            groupsOfCage[c] = cage.getGroups();
+            valuesOfGroupsOfCage[c] = cage.getValuesOfGroups();
+        }
+        groupsToken = null;
+        groupsTime += System.nanoTime() - startTime;
+        if (stopStatus != null) return;
+        //Tables of a common size are solved by the kernel of their size
+        kernel = GridKernel.forSize(maxValue);
+        if (kernel != null) {
+            countsOfGroupsOfCage = new long[allCages.size()][];
+            for (int c = 0; c < allCages.size(); c++) {
+                countsOfGroupsOfCage[c] = new long[groupsOfCage[c].length];
+                for (int g = 0; g < groupsOfCage[c].length; g++)
+                    countsOfGroupsOfCage[c][g] = kernel.countValues(groupsOfCage[c][g]);
+            }
+        }
+        cagesPrepared = true;
     }
 
     /**
@@ -40,6 +251,7 @@ public class Solver {
      * @param size the size of the table
      */
     public Solver(int size) {
+        maxValue = size;
         solverCellTable = new SolverCell[size][size];
     }
 
@@ -50,37 +262,551 @@ public class Solver {
      */
     public Solver(SolverCell[][] solverCellTable) {
         this.solverCellTable = solverCellTable;
+        maxValue = solverCellTable.length;
     }
 
     public SolverCell[][] getSolverCellTable() {
         return solverCellTable;
     }
 
-    private void getCellValue(int id, SolverCell[][] solverCellTable) {
+    /**
+     * Solves the table again with some of its values given, reusing the cages and their groups.
+     * The solutions found replace the ones of the last search.
+     *
+     * @param givens the given value of every cell, j * size + i, 0 for a cell without a value
+     * @return true if the table can be solved with the given values
+     */
+    public boolean solve(int[] givens) {
+        return solve(givens, new CancellationToken()).getStatus() == SolveResult.Status.SOLVED;
+    }
+
+    /**
+     * Solves the table again with some of its values given, stopping when the token says so.
+     *
+     * @param givens the given value of every cell, j * size + i, 0 for a cell without a value
+     * @param token  the limits of the search
+     * @return how the search ended
+     */
+    public SolveResult solve(int[] givens, CancellationToken token) {
+        token.start();
+        stopStatus = null;
+        if (!cagesPrepared) prepareCages(token);
+        long startTime = System.nanoTime();
+        statistics = SolverMetrics.isRecording() ? new SolverStatistics() : null;
+        int[] values = new int[maxValue * maxValue];
+        long[] possibleValues = stopStatus == null ? setGivens(givens, values) : null;
+        if (possibleValues != null && statistics != null) statistics.givensTime = System.nanoTime() - startTime;
+        return search(possibleValues, values, token);
+    }
+
+    /**
+     * Returns every solution of the table with some of its values given, found only as the stream is read.
+     * Each solution is the value of every cell, j * size + i, in an array of its own. A parallel stream
+     * splits the search tree between its threads. The solver must not search while the stream is read.
+     *
+     * @param givens the given value of every cell, j * size + i, 0 for a cell without a value
+     */
+    public Stream<int[]> streamSolutions(int[] givens) {
+        if (!cagesPrepared) throw new IllegalStateException("The groups of the cages were not found before the search stopped");
+        int[] values = new int[maxValue * maxValue];
+        long[] possibleValues = setGivens(givens, values);
+        return StreamSupport.stream(new SolutionSpliterator(this, possibleValues, values), false);
+    }
+
+    /**
+     * Gives the cells their given values and removes the possible values they rule out.
+     *
+     * @param givens the given value of every cell, j * size + i, 0 for a cell without a value
+     * @param values the values of the cells, all 0, which get the given values
+     * @return the possible values of every cell as bits, or null if the given values have no solution
+     */
+    private long[] setGivens(int[] givens, int[] values) {
+        long[] possibleValues = initialPossibleValues.clone();
+        for (int cell = 0; cell < givens.length; cell++) {
+            if (givens[cell] == 0) continue;
+            //A cell may already have a value from the earlier givens, which has to be the same one
+            if (values[cell] != 0) {
+                if (values[cell] != givens[cell]) return null;
+            } else if ((possibleValues[cell] & (1L << givens[cell])) == 0
+                    || !setValue(cell, givens[cell], possibleValues, values)) return null;
+        }
+        return possibleValues;
+    }
+
+    /**
+     * Sets the states without a solution that the next searches use and add to, or null to search without them.
+     * The table must only be shared with solvers of the same cages.
+     *
+     * @param transpositionTable the states without a solution
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * Sets what the next searches give values to in a single step.
+     *
+     * @param branching a single cell or a whole cage
+     */
+    public void setBranching(Branching branching) {
+        this.branching = branching;
+    }
+
+    /**
+     * Sets when the next searches start again, or null to search in a single run.
+     *
+     * @param restartPolicy when the search starts again
+     */
+    public void setRestartPolicy(RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * Returns how the last search ended, or null if the solver has not searched yet.
+     */
+    public SolveResult getResult() {
+        return result;
+    }
+
+    /**
+     * Runs a search from the given state and keeps its result. The token has already been started, and a search
+     * whose limits were reached while the groups of the cages were found ends at once with the same status.
+     *
+     * @param possibleValues the possible values of every cell as bits, or null if the state has no solution
+     * @param values         the values of the cells, 0 for a cell without a value
+     * @param token          the limits of the search
+     */
+    private SolveResult search(long[] possibleValues, int[] values, CancellationToken token) {
+        FlightEvents.SolveEvent event = new FlightEvents.SolveEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        //The statistics of a search with givens were started by the givens
+        if (statistics == null && SolverMetrics.isRecording()) statistics = new SolverStatistics();
+        this.token = token;
+        solutions = new ArrayList<>();
+        solved = false;
+        nodes = 0;
+        bestAssignment = new int[maxValue * maxValue];
+        bestAssignedCells = -1;
+        if (possibleValues != null && stopStatus == null) {
+            if (restartPolicy == null) getCellValue(possibleValues, values);
+            else searchWithRestarts(possibleValues, values);
+        }
+
+        SolveResult.Status status = stopStatus;
+        if (status == null) status = solutions.isEmpty() ? SolveResult.Status.UNSOLVABLE : SolveResult.Status.SOLVED;
+        result = new SolveResult(status, solutions, bestAssignment, nodes, System.nanoTime() - startTime, statistics);
+        event.end();
+        if (event.shouldCommit()) {
+            event.size = maxValue;
+            event.cageCount = cellsOfCage.length;
+            event.solutionLimit = solutionLimit;
+            event.nodes = nodes;
+            event.solutions = solutions.size();
+            event.outcome = status.name();
+            event.commit();
+        }
+        if (statistics != null) {
+            statistics.nodes = nodes;
+            statistics.searchTime = result.getElapsedTime();
+            //The groups of the cages are found only once, for the first search
+            statistics.groupsTime = groupsTime;
+            groupsTime = 0;
+            SolverMetrics.getInstance().record(statistics, result);
+            statistics = null;
+        }
+        return result;
+    }
+
+    /**
+     * Searches in runs that stop after a growing number of backtracks, each with another random order of the values.
+     * Once a solution has been found the run goes on to the end, so no solution is found twice.
+     *
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells, 0 for a cell without a value
+     */
+    private void searchWithRestarts(long[] possibleValues, int[] values) {
+        random = new SplittableRandom(restartPolicy.getSeed());
+        TranspositionTable givenTable = transpositionTable;
+        if (transpositionTable == null) transpositionTable = restartPolicy.createNogoods(maxValue);
+        for (int run = 0; ; run++) {
+            backtracks = 0;
+            backtrackLimit = restartPolicy.getCutoff(run);
+            restarting = false;
+            getCellValue(possibleValues, values);
+            if (!restarting || stopStatus != null) break;
+            if (statistics != null) statistics.restarts++;
+        }
+        restarting = false;
+        transpositionTable = givenTable;
+        random = null;
+    }
+
+    /**
+     * Counts a value that left a cell without possible values or a cage without groups, and ends the run
+     * once it has had enough of them.
+     */
+    private void countBacktrack() {
+        if (statistics != null) statistics.backtracks++;
+        if (random != null && ++backtracks > backtrackLimit && solutions.isEmpty()) restarting = true;
+    }
+
+    /**
+     * Returns one of the given values, picked at random.
+     *
+     * @param possibleValues the values as bits, at least one
+     */
+    private int pickRandomValue(long possibleValues) {
+        for (int k = random.nextInt(Long.bitCount(possibleValues)); k > 0; k--) possibleValues &= possibleValues - 1;
+        return Long.numberOfTrailingZeros(possibleValues);
+    }
+
+    /**
+     * Returns all the solutions found, never more than the solution limit.
+     */
+    public List<SolverCell[][]> getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Finds the values of the cells by recursion, each time from the cell with the fewest possible values,
+     * or from the cage with the fewest ways to be filled. The cells are kept by index, j * size + i.
+     *
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells, 0 for a cell without a value
+     */
+    private void getCellValue(long[] possibleValues, int[] values) {
+        stopStatus = token.check(++nodes);
+        if (stopStatus != null) return;
+        storeBestAssignment(values);
+
+        int cell = findCellWithFewestValues(possibleValues, values);
+        if (cell == -1) {
+            storeSolution(values);
+            return;
+        }
+        //The state after the propagation depends only on the values, whatever order they were set in
+        long hash = 0;
+        if (transpositionTable != null) {
+            hash = transpositionTable.hash(values);
+            if (transpositionTable.isDead(hash)) {
+                if (statistics != null) statistics.transpositionHits++;
+                return;
+            }
+        }
+        int numberOfSolutions = solutions.size();
+
+        if (statistics != null && ++statistics.depth > statistics.maxDepth) statistics.maxDepth = statistics.depth;
+        int cage = branching == Branching.CAGE ? findCageWithFewestTuples(possibleValues, values) : -1;
+        //The cells outside every cage are filled one by one even when branching on cages
+        if (cage != -1) getCageValues(cage, possibleValues, values);
+        else {
+            long cellPossibleValues = possibleValues[cell];
+            while (cellPossibleValues != 0) {
+                int value = random == null ? Long.numberOfTrailingZeros(cellPossibleValues) : pickRandomValue(cellPossibleValues);
+                cellPossibleValues &= ~(1L << value);
+
+                long[] newPossibleValues = possibleValues.clone();
+                int[] newValues = values.clone();
+                if (setValue(cell, value, newPossibleValues, newValues)) getCellValue(newPossibleValues, newValues);
+                else countBacktrack();
+                //Breaks every loop left after the game has been solved, the search has to stop or the run is over
+                if (solved || stopStatus != null || restarting) break;
+            }
+        }
+        if (statistics != null) statistics.depth--;
+        //Only a state whose every value was tried without a solution is known to have none
+        if (transpositionTable != null && stopStatus == null && !restarting && solutions.size() == numberOfSolutions)
+            transpositionTable.addDead(hash);
+    }
+
+    /**
+     * Tries every way to fill the cells without a value of a cage, and goes on with the search from each of them.
+     *
+     * @param cage           the index of the cage
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells
+     */
+    private void getCageValues(int cage, long[] possibleValues, int[] values) {
+        int numberOfEmptyCells = 0;
+        for (int cell : cellsOfCage[cage]) if (values[cell] == 0) numberOfEmptyCells++;
+        int[] emptyCells = new int[numberOfEmptyCells];
+        numberOfEmptyCells = 0;
+        for (int cell : cellsOfCage[cage]) if (values[cell] == 0) emptyCells[numberOfEmptyCells++] = cell;
 
-        int[] coordinates = Table.getCoordinatesOfID(id, table.getSize());
-        int i = coordinates[0];
-        int j = coordinates[1];
-        Cell cell = cellTable[i][j];
-        SolverCell[][] solverCellTableCopy = copySolverCellTable(solverCellTable);
-        Set<Integer> cellPossibleValues = new HashSet<>(solverCellTableCopy[i][j].getPossibleValues());
+        List<int[]> tuples = findTuples(cage, emptyCells, possibleValues, values);
+        if (random != null) {
+            for (int k = tuples.size() - 1; k > 0; k--) Collections.swap(tuples, k, random.nextInt(k + 1));
+        }
+        for (int[] tuple : tuples) {
+            long[] newPossibleValues = possibleValues.clone();
+            int[] newValues = values.clone();
+            boolean consistent = true;
+            for (int k = 0; k < emptyCells.length && consistent; k++) {
+                int cell = emptyCells[k];
+                //The propagation of the earlier cells of the tuple may already have given the cell a value
+                if (newValues[cell] != 0) consistent = newValues[cell] == tuple[k];
+                else consistent = (newPossibleValues[cell] & (1L << tuple[k])) != 0
+                        && setValue(cell, tuple[k], newPossibleValues, newValues);
+            }
+            if (consistent) getCellValue(newPossibleValues, newValues);
+            else countBacktrack();
+            if (solved || stopStatus != null || restarting) break;
+        }
+    }
+
+    /**
+     * Returns the cage with cells without a value whose possible values give the fewest combinations,
+     * which is an upper bound of the ways to fill it, or -1 if every cell of every cage has a value.
+     *
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells
+     */
+    private int findCageWithFewestTuples(long[] possibleValues, int[] values) {
+        int bestCage = -1;
+        long bestProduct = Long.MAX_VALUE;
+        for (int cage = 0; cage < cellsOfCage.length; cage++) {
+            long product = 1;
+            boolean hasEmptyCell = false;
+            for (int cell : cellsOfCage[cage]) {
+                if (values[cell] != 0) continue;
+                hasEmptyCell = true;
+                product *= Long.bitCount(possibleValues[cell]);
+                if (product >= bestProduct) break;
+            }
+            if (hasEmptyCell && product < bestProduct) {
+                bestCage = cage;
+                bestProduct = product;
+            }
+        }
+        return bestCage;
+    }
+
+    /**
+     * Finds every way to give values to the cells without a value of a cage: the values of a group that are left
+     * after the taken values, put in cells that can take them, never twice in a column or row.
+     *
+     * @param cage           the index of the cage
+     * @param emptyCells     the cells of the cage without a value
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells
+     * @return the values of the empty cells, in the same order, for every way
+     */
+    private List<int[]> findTuples(int cage, int[] emptyCells, long[] possibleValues, int[] values) {
+        List<int[]> tuples = new ArrayList<>();
+        int[] counts = new int[maxValue + 1];
+        for (int[] group : groupsOfCage[cage]) {
+            Arrays.fill(counts, 0);
+            for (int value : group) counts[value]++;
+            boolean containsTakenValues = true;
+            for (int cell : cellsOfCage[cage])
+                if (values[cell] != 0 && --counts[values[cell]] < 0) containsTakenValues = false;
+            if (containsTakenValues) findTuples(emptyCells, 0, new int[emptyCells.length], counts, possibleValues, tuples);
+        }
+        return tuples;
+    }
+
+    /**
+     * Gives the k-th empty cell every value left in the counts that it can take, and goes on with the next cell.
+     * Each value is tried once for each cell, so a group with a repeated value gives every way only once.
+     */
+    private void findTuples(int[] emptyCells, int k, int[] tuple, int[] counts, long[] possibleValues,
+                            List<int[]> tuples) {
+        if (k == emptyCells.length) {
+            tuples.add(tuple.clone());
+            return;
+        }
+        int cell = emptyCells[k];
+        long cellPossibleValues = possibleValues[cell];
+        while (cellPossibleValues != 0) {
+            int value = Long.numberOfTrailingZeros(cellPossibleValues);
+            cellPossibleValues &= cellPossibleValues - 1;
+            if (counts[value] == 0 || isInLineOfEarlierCell(emptyCells, k, tuple, value)) continue;
+            counts[value]--;
+            tuple[k] = value;
+            findTuples(emptyCells, k + 1, tuple, counts, possibleValues, tuples);
+            counts[value]++;
+        }
+    }
 
-        for (int value : cellPossibleValues) {
+    /**
+     * Checks if an earlier cell of the tuple in the same column or row as the k-th cell has the given value.
+     */
+    private boolean isInLineOfEarlierCell(int[] emptyCells, int k, int[] tuple, int value) {
+        for (int m = 0; m < k; m++) {
+            if (tuple[m] != value) continue;
+            if (emptyCells[m] % maxValue == emptyCells[k] % maxValue
+                    || emptyCells[m] / maxValue == emptyCells[k] / maxValue) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps a copy of the values if they give more cells a value than any state before.
+     *
+     * @param values the values of the cells
+     */
+    private void storeBestAssignment(int[] values) {
+        int assignedCells = 0;
+        for (int value : values) if (value != 0) assignedCells++;
+        if (assignedCells <= bestAssignedCells) return;
+        bestAssignedCells = assignedCells;
+        System.arraycopy(values, 0, bestAssignment, 0, values.length);
+    }
+
+    /**
+     * Returns the cell without a value that has the fewest possible values, or -1 if every cell has a value.
+     *
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells
+     */
+    int findCellWithFewestValues(long[] possibleValues, int[] values) {
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < values.length; cell++) {
+            if (values[cell] != 0) continue;
+            int count = Long.bitCount(possibleValues[cell]);
+            if (count < bestCount) {
+                bestCell = cell;
+                bestCount = count;
+                //A cell without possible values ends this branch, and one with a single value can not be beaten
+                if (count <= 1) break;
+            }
+        }
+        return bestCell;
+    }
+
+    /**
+     * Gives a value to a cell and removes the possible values it rules out, until nothing more can be removed.
+     * A cell left with a single possible value gets that value, a cage keeps only the groups that its cells can
+     * still take, and a value that fits in a single cell of a row or column goes to that cell.
+     *
+     * @param cell           the index of the cell
+     * @param value          the value
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells
+     * @return false if a cell is left without possible values or a cage can no longer reach its target
+     */
+    boolean setValue(int cell, int value, long[] possibleValues, int[] values) {
+        int[] queue = new int[values.length];
+        //The last one stands for the cells outside every cage and is never checked
+        boolean[] changedCages = new boolean[cellsOfCage.length + 1];
+        int tail = 0;
+        values[cell] = value;
+        possibleValues[cell] = 1L << value;
+        queue[tail++] = cell;
+
+        int head = 0;
+        while (head < tail) {
+            if (statistics != null) statistics.propagationPasses++;
+            //Removes the value of every new cell from its column and row
+            while (head < tail) {
+                int newCell = queue[head++];
+                long bit = possibleValues[newCell];
+                changedCages[cageOfCell[newCell]] = true;
+                if (kernel != null) {
+                    int[] peers = kernel.peers;
+                    for (int p = newCell * kernel.numberOfPeers, end = p + kernel.numberOfPeers; p < end; p++) {
+                        tail = removeFromPeer(peers[p], bit, possibleValues, values, changedCages, queue, tail);
+                        if (tail < 0) return false;
+                    }
+                    continue;
+                }
+                int i = newCell % maxValue;
+                int j = newCell / maxValue;
+                //The first cells are the ones of the column and the others the ones of the row
+                for (int k = 0; k < 2 * maxValue; k++) {
+                    int otherCell = k < maxValue ? k * maxValue + i : j * maxValue + k - maxValue;
+                    if (otherCell == newCell) continue;
+                    tail = removeFromPeer(otherCell, bit, possibleValues, values, changedCages, queue, tail);
+                    if (tail < 0) return false;
+                }
+            }
+            //Keeps the groups of every changed cage that fit the possible values of its cells
+            for (int cage = 0; cage < cellsOfCage.length && head == tail; cage++) {
+                if (!changedCages[cage]) continue;
+                changedCages[cage] = false;
+                tail = removePosCage(cage, possibleValues, values, queue, tail);
+                if (tail < 0) return false;
+            }
+            if (head == tail) {
+                tail = findHiddenSingles(possibleValues, values, queue, tail);
+                if (tail < 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the value of a cell from another cell of its column or row.
+     *
+     * @param otherCell the index of the other cell
+     * @param bit       the value as a bit
+     * @return the new end of the queue, or -1 if the other cell has the value or is left without possible values
+     */
+    private int removeFromPeer(int otherCell, long bit, long[] possibleValues, int[] values, boolean[] changedCages,
+                               int[] queue, int tail) {
+        if ((possibleValues[otherCell] & bit) == 0) return tail;
+        if (values[otherCell] != 0) return -1;
+        possibleValues[otherCell] &= ~bit;
+        if (statistics != null) statistics.lineEliminations++;
+        changedCages[cageOfCell[otherCell]] = true;
+        return setIfSingle(otherCell, possibleValues, values, queue, tail);
+    }
 
-            solverCellTable = copySolverCellTable(solverCellTableCopy);
-            solverCellTable[i][j].setValue(value);
-            removePosColumnRow(i, j, value, solverCellTable);
-            removePosCage(cell, value, solverCellTable);
+    /**
+     * Gives its value to a cell without a value that has a single possible value left and adds it to the queue.
+     *
+     * @return the new end of the queue, or -1 if the cell has no possible values
+     */
+    private int setIfSingle(int cell, long[] possibleValues, int[] values, int[] queue, int tail) {
+        if (possibleValues[cell] == 0) return -1;
+        if (values[cell] == 0 && Long.bitCount(possibleValues[cell]) == 1) {
+            if (statistics != null) statistics.nakedSingles++;
+            values[cell] = Long.numberOfTrailingZeros(possibleValues[cell]);
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
 
-            if (id != Math.pow(cellTable.length, 2)) getCellValue(id + 1, solverCellTable);
-            else {
-                this.solverCellTable = solverCellTable;
-                solved = true;
+    /**
+     * Gives every value that fits in a single cell of a row or column to that cell.
+     *
+     * @return the new end of the queue, or -1 if a value fits in no cell of a row or column
+     */
+    private int findHiddenSingles(long[] possibleValues, int[] values, int[] queue, int tail) {
+        long allValues = ((1L << maxValue) - 1) << 1;
+        int[] lines = kernel != null ? kernel.lines : null;
+        for (int line = 0; line < 2 * maxValue; line++) {
+            //Values seen in at least one cell and in at least two cells of the line
+            long once = 0, twice = 0;
+            for (int k = 0; k < maxValue; k++) {
+                long cellValues = possibleValues[lines != null ? lines[line * maxValue + k] : getCellOfLine(line, k)];
+                twice |= once & cellValues;
+                once |= cellValues;
+            }
+            if (once != allValues) return -1;
+            long singles = once & ~twice;
+            if (singles == 0) continue;
+            for (int k = 0; k < maxValue; k++) {
+                int cell = lines != null ? lines[line * maxValue + k] : getCellOfLine(line, k);
+                long single = possibleValues[cell] & singles;
+                if (single == 0 || values[cell] != 0) continue;
+                if (Long.bitCount(single) > 1) return -1;
+                if (statistics != null) statistics.hiddenSingles++;
+                possibleValues[cell] = single;
+                values[cell] = Long.numberOfTrailingZeros(single);
+                queue[tail++] = cell;
             }
-            //Breaks every for loop left after the game has been solved
-            if (solved) break;
         }
+        return tail;
+    }
 
+    /**
+     * Returns the index of the k-th cell of a line, the rows coming first and then the columns.
+     */
+    private int getCellOfLine(int line, int k) {
+        return line < maxValue ? line * maxValue + k : k * maxValue + line - maxValue;
     }
 
     /**
@@ -90,97 +816,250 @@ public class Solver {
 
         //Removes the possibility of every cell in that column to have the value
         for (int r = 0; r < solverCellTable.length; r++) {
-            solverCellTable[r][j].getPossibleValues().remove(value);
+            solverCellTable[r][j].removePossibleValue(value);
         }
         //Removes the possibility of every cell in that row to have the value
         for (int c = 0; c < solverCellTable.length; c++) {
-            solverCellTable[i][c].getPossibleValues().remove(value);
+            solverCellTable[i][c].removePossibleValue(value);
         }
     }
 
     /**
-     * Removes possible values for the cells in the cage when a cell accepts a sample value
+     * Removes possible values for the cells in the cage when the cage changes.
+     * Only the groups that contain all of the values already taken in the cage, and whose other values can still
+     * go in the remaining cells, are kept.
      *
-     * @param cell
-     * @param value
-     * @param solverCellTable
+     * @param cage           the index of the cage
+     * @param possibleValues the possible values of every cell as bits
+     * @param values         the values of the cells
+     * @param queue          the queue of the cells that got a value
+     * @param tail           the end of the queue
+     * @return the new end of the queue, or -1 if no group is left or a cell of the cage has no possible values
      */
-    private void removePosCage(Cell cell, int value, SolverCell[][] solverCellTable) {
+    private int removePosCage(int cage, long[] possibleValues, int[] values, int[] queue, int tail) {
 
-        Cage cage = cell.getCage();
-        Set<Integer> remainingPossibleValues = new HashSet<>();
-
-        //Puts the remaining possible values in a new set
-        for (List<Integer> group : cage.getAllGroupsOfPossibleValues()) {
-            //Checks for the groups that have the new value and adds the other values as a possible value for the
-            //remaining cells in the cage
-            if (group.contains(value))
-                remainingPossibleValues.addAll(group);
+        int[] cells = cellsOfCage[cage];
+        long remainingPossibleValues;
+        if (kernel != null) {
+            long takenCounts = 0, takenBits = 0, valuesOfRemainingCells = 0;
+            for (int cell : cells) {
+                if (values[cell] != 0) {
+                    takenCounts += GridKernel.countValue(values[cell]);
+                    takenBits |= 1L << values[cell];
+                } else valuesOfRemainingCells |= possibleValues[cell];
+            }
+            remainingPossibleValues = kernel.findRemainingPossibleValues(countsOfGroupsOfCage[cage],
+                    valuesOfGroupsOfCage[cage], takenCounts, takenBits, valuesOfRemainingCells);
+        } else {
+            int[] takenValues = new int[cells.length];
+            int numberOfTakenValues = 0;
+            long valuesOfRemainingCells = 0;
+            for (int cell : cells) {
+                if (values[cell] != 0) takenValues[numberOfTakenValues++] = values[cell];
+                else valuesOfRemainingCells |= possibleValues[cell];
+            }
+            remainingPossibleValues = findRemainingPossibleValues(groupsOfCage[cage], valuesOfGroupsOfCage[cage],
+                    takenValues, numberOfTakenValues, valuesOfRemainingCells);
         }
+        if (remainingPossibleValues == -1) return -1;
 
         //Puts the intersection between the current possible values of the cell (after the column and row check)
         //and the remaining cage possible values
-        for (Cell remCell : cage.getAllCells()) {
-            if (remCell != cell) {
-                int i = remCell.getCoordinates()[0];
-                int j = remCell.getCoordinates()[1];
-                solverCellTable[i][j].getPossibleValues().retainAll(remainingPossibleValues);
-            }
+        for (int cell : cellsOfCage[cage]) {
+            if (values[cell] != 0 || (possibleValues[cell] & ~remainingPossibleValues) == 0) continue;
+            if (statistics != null) statistics.cageEliminations += Long.bitCount(possibleValues[cell] & ~remainingPossibleValues);
+            possibleValues[cell] &= remainingPossibleValues;
+            tail = setIfSingle(cell, possibleValues, values, queue, tail);
+            if (tail < 0) return -1;
         }
+        return tail;
     }
 
     /**
-     * Puts all the possible values from a cage in the solver cell
+     * Finds the values the remaining cells of a cage can take: the other values of every group that contains all
+     * of the taken values and whose other values fit in the possible values of the remaining cells.
+     * Used by the solver and by the candidates of the board.
+     *
+     * @param groups                 the groups of possible values of the cage
+     * @param valuesOfGroups         the values of every group as bits
+     * @param takenValues            the values of the cells of the cage that have one
+     * @param numberOfTakenValues    the number of taken values
+     * @param valuesOfRemainingCells the possible values of the cells without a value as bits
+     * @return the values as bits, or -1 if no group is left
      */
-    private void storeAllPossibleValues() {
+    public static long findRemainingPossibleValues(int[][] groups, long[] valuesOfGroups, int[] takenValues,
+                                                   int numberOfTakenValues, long valuesOfRemainingCells) {
+        long takenBits = 0;
+        boolean repeatedTakenValue = false;
+        for (int k = 0; k < numberOfTakenValues; k++) {
+            long bit = 1L << takenValues[k];
+            if ((takenBits & bit) != 0) repeatedTakenValue = true;
+            takenBits |= bit;
+        }
 
-        for (Cage cage : table.getAllCages()) {
-            possibleValuesInCage = new HashSet<>();
-            allGroupsOfPossibleValues = new ArrayList<>();
-            allValuesInCage = new ArrayList<>();
-            int target;
-            String sign;
-            String cageTarget = cage.getTarget();
-            //takes the attributes of the cage
-            int numberOfCells = cage.getAllCells().size();
-            //Checks if the cage has a sign or not
-            if (cageTarget.length() != 1) {
-                target = Integer.parseInt(cage.getTarget().substring(0, cage.getTarget().length() - 1));
-                sign = cage.getTarget().substring(cage.getTarget().length() - 1);
-                //checks for the possible values in the cage and adds them to the list of groups
-                findPossibleValues(numberOfCells, target, sign);
-            } else {
-                target = Integer.parseInt(cage.getTarget());
-                allGroupsOfPossibleValues.add(new ArrayList<>(Collections.singletonList(target)));
-                possibleValuesInCage.add(target);
+        long remainingPossibleValues = 0;
+        boolean foundGroup = false;
+        for (int g = 0; g < groups.length; g++) {
+            long valuesOfGroup = valuesOfGroups[g];
+            if ((valuesOfGroup & takenBits) != takenBits) continue;
+            //A group or taken values with a repeated value have to be compared value by value
+            long remainingValues = repeatedTakenValue || Long.bitCount(valuesOfGroup) != groups[g].length
+                    ? findRemainingValues(groups[g], takenValues, numberOfTakenValues)
+                    : valuesOfGroup & ~takenBits;
+            if (remainingValues == -1 || (remainingValues & ~valuesOfRemainingCells) != 0) continue;
+            foundGroup = true;
+            remainingPossibleValues |= remainingValues;
+            //Nothing more can be removed once every possible value of the remaining cells is kept
+            if ((valuesOfRemainingCells & ~remainingPossibleValues) == 0) break;
+        }
+        return foundGroup ? remainingPossibleValues : -1;
+    }
+
+    /**
+     * Returns the values of a group that are left after removing the taken values one by one.
+     *
+     * @param group               the values of the group
+     * @param takenValues         the values taken in the cage
+     * @param numberOfTakenValues the number of taken values
+     * @return -1 if the group does not contain all of the taken values
+     */
+    private static long findRemainingValues(int[] group, int[] takenValues, int numberOfTakenValues) {
+        boolean[] used = new boolean[group.length];
+        for (int t = 0; t < numberOfTakenValues; t++) {
+            int k = 0;
+            while (k < group.length && (used[k] || group[k] != takenValues[t])) k++;
+            if (k == group.length) return -1;
+            used[k] = true;
+        }
+        long remainingValues = 0;
+        for (int k = 0; k < group.length; k++) {
+            if (!used[k]) remainingValues |= 1L << group[k];
+        }
+        return remainingValues;
+    }
+
+    /**
+     * Turns the values of the cells into a solver cell table and keeps it as a solution.
+     *
+     * @param values the values of the cells
+     */
+    private void storeSolution(int[] values) {
+        SolverCell[][] solution = new SolverCell[maxValue][maxValue];
+        for (int i = 0; i < maxValue; i++)
+            for (int j = 0; j < maxValue; j++) {
+                int value = values[j * maxValue + i];
+                solution[i][j] = new SolverCell(1L << value);
+                solution[i][j].setValue(value);
             }
+        //Keeps the first solution as the solution of the table
+        if (solutions.isEmpty()) solverCellTable = solution;
+        solutions.add(solution);
+        if (solutions.size() >= solutionLimit) solved = true;
+    }
 
+    /**
+     * Puts all the possible values from a cage in the possible values of the cage.
+     *
+     * @param cage
+     */
+    private void storeAllPossibleValues(Cage cage) {
+        //Reuses the groups of a cage that has already been solved
+        if (cage.getAllGroupsOfPossibleValues() != null) {
+            possibleValuesInCage = 0;
+            for (List<Integer> group : cage.getAllGroupsOfPossibleValues())
+                for (int value : group) possibleValuesInCage |= 1L << value;
+        } else {
+            List<List<Integer>> groups = findAllGroupsOfPossibleValues(cage.getIDs().size(), cage.getTarget());
+            //Stores the group of possible values in the cage, unless the search stopped before all were found
+            if (stopStatus == null) cage.setAllGroupsOfPossibleValues(groups);
+        }
+    }
 
-            //Stores the group of possible values in the cage
-            cage.setAllGroupsOfPossibleValues(allGroupsOfPossibleValues);
-            //sets the possible values in every cell in that cage
-            for (Cell cell : cage.getAllCells()) {
-                SolverCell solverCell = new SolverCell(possibleValuesInCage);
-                int i = cell.getCoordinates()[0];
-                int j = cell.getCoordinates()[1];
-                solverCellTable[i][j] = solverCell;
+    /**
+     * Finds all the groups of values that fulfil the target of a cage with the given number of cells.
+     *
+     * @param numberOfCells the number of cells in the cage
+     * @param cageTarget    the target of the cage together with its sign
+     */
+    public List<List<Integer>> findAllGroupsOfPossibleValues(int numberOfCells, String cageTarget) {
+        FlightEvents.CageGroupsEvent event = new FlightEvents.CageGroupsEvent();
+        event.begin();
+        possibleValuesInCage = 0;
+        allGroupsOfPossibleValues = new ArrayList<>();
+        allValuesInCage = new ArrayList<>();
+        int target;
+        String sign;
+        //Checks if the cage has a sign or not, a target without a sign can have more than one digit
+        if (hasSign(cageTarget)) {
+            target = Integer.parseInt(cageTarget.substring(0, cageTarget.length() - 1));
+            sign = cageTarget.substring(cageTarget.length() - 1);
+            //checks for the possible values in the cage and adds them to the list of groups
+            findPossibleValues(numberOfCells, target, sign, 1);
+        } else {
+            target = Integer.parseInt(cageTarget);
+            //A target outside the values of the table has no group, instead of a bit shifted around the long
+            if (target >= 1 && target <= maxValue) {
+                allGroupsOfPossibleValues.add(new ArrayList<>(Collections.singletonList(target)));
+                possibleValuesInCage |= 1L << target;
             }
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.size = maxValue;
+            event.cells = numberOfCells;
+            event.target = cageTarget;
+            event.groups = allGroupsOfPossibleValues.size();
+            event.commit();
+        }
+        return allGroupsOfPossibleValues;
+    }
+
+    /**
+     * Checks if the groups of a cage can be found in a moment, whatever its target is: the ways to choose the values
+     * of its cells in increasing order bound the steps of {@link #findPossibleValues}.
+     *
+     * @param numberOfCells the number of cells in the cage
+     * @param size          the size of the table
+     */
+    public static boolean hasFewGroups(int numberOfCells, int size) {
+        //The ways to choose up to numberOfCells values out of size, with repetition, counted without overflowing
+        long steps = 1;
+        for (int k = 1; k <= numberOfCells; k++) {
+            steps = steps * (size + k) / k;
+            if (steps > MAX_GROUP_STEPS) return false;
+        }
+        return true;
     }
 
+    /**
+     * Checks if the target of a cage ends with a sign.
+     *
+     * @param cageTarget the target of the cage
+     */
+    public static boolean hasSign(String cageTarget) {
+        return !cageTarget.isEmpty() && !Character.isDigit(cageTarget.charAt(cageTarget.length() - 1));
+    }
 
     /**
-     * Finds all the possible values the solver cell can have in dependence of its cage
+     * Finds all the possible values the solver cell can have in dependence of its cage.
+     * The values are found in increasing order, so that every group is found only once,
+     * and the search stops as soon as the values are too large to reach the target.
      *
      * @param numberOfCells
      * @param target
      * @param sign
+     * @param smallestValue the value of the previous cell, the smallest value this cell can have
      */
-    public void findPossibleValues(int numberOfCells, int target, String sign) {
+    public void findPossibleValues(int numberOfCells, int target, String sign, int smallestValue) {
+        //A large cage has too many groups to find without looking at the limits of the search
+        if (groupsToken != null) {
+            if (stopStatus == null) stopStatus = groupsToken.checkTime(++groupSteps);
+            if (stopStatus != null) return;
+        }
 
         //Checks when the recursion is on the last solver cell and if the target is fulfilled
         if (numberOfCells == 1) {
-            if (target <= maxValue && target > 0) {
+            if (target <= maxValue && target >= smallestValue) {
                 allValuesInCage.add(target);
                 copy(allValuesInCage);
                 allValuesInCage.remove(allValuesInCage.size() - 1);
@@ -188,27 +1067,26 @@ public class Solver {
 
         } else {
 
-            for (int i = 1; i <= maxValue; i++) {
+            for (int i = smallestValue; i <= maxValue; i++) {
+                //The cells left have at least the value of this one
+                if (sign.equals("+") && target < i * numberOfCells) break;
+                if (sign.equals("-") && target + (long) i * (numberOfCells - 1) > maxValue) break;
+                if (sign.equals("x") && Math.pow(i, numberOfCells) > target) break;
+                if (sign.equals("÷") && target * Math.pow(i, numberOfCells - 1) > maxValue) break;
+
                 allValuesInCage.add(i);
-                int newTarget;
                 switch (sign) {
                     case "+":
-                        newTarget = target - i;
-                        findPossibleValues(numberOfCells - 1, newTarget, sign);
+                        findPossibleValues(numberOfCells - 1, target - i, sign, i);
                         break;
                     case "-":
-                        newTarget = target + i;
-                        findPossibleValues(numberOfCells - 1, newTarget, sign);
+                        findPossibleValues(numberOfCells - 1, target + i, sign, i);
                         break;
                     case "x":
-                        if (target % i == 0) {
-                            newTarget = target / i;
-                            findPossibleValues(numberOfCells - 1, newTarget, sign);
-                        }
+                        if (target % i == 0) findPossibleValues(numberOfCells - 1, target / i, sign, i);
                         break;
                     case "÷":
-                        newTarget = target * i;
-                        findPossibleValues(numberOfCells - 1, newTarget, sign);
+                        findPossibleValues(numberOfCells - 1, target * i, sign, i);
                         break;
                 }
                 allValuesInCage.remove(allValuesInCage.size() - 1);
@@ -225,23 +1103,8 @@ public class Solver {
         List<Integer> copy = new ArrayList<>(allValuesInCage);
         //Sorts the list
         Collections.sort(copy);
-        //Checks if it is already added as a group of possible values (different arrangement)
-        if (!allGroupsOfPossibleValues.contains(copy)) allGroupsOfPossibleValues.add(copy);
-        //Adds every possible value in the set
-        possibleValuesInCage.addAll(copy);
-    }
-
-    /**
-     * Copies the all of the elements of one solver cell to another
-     *
-     * @param copyFrom the map whose elements have to be copied
-     */
-    private SolverCell[][] copySolverCellTable(SolverCell[][] copyFrom) {
-        SolverCell[][] copyTo = new SolverCell[maxValue][maxValue];
-        for (int i = 0; i < copyFrom.length; i++)
-            for (int j = 0; j < copyFrom.length; j++) {
-                copyTo[i][j] = new SolverCell(copyFrom[i][j]);
-            }
-        return copyTo;
+        allGroupsOfPossibleValues.add(copy);
+        //Adds every possible value in the bits
+        for (int value : copy) possibleValuesInCage |= 1L << value;
     }
 }
@@ -0,0 +1,82 @@
+package mathdoku.controller;
+
+import mathdoku.model.Puzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Represents a benchmark of the kernels of the solver against its general code.
+ * Generates the same puzzles for both from fixed seeds, proves that each has a single solution the way the
+ * generator does, and prints the time of a search for every size. The two are measured in turns, so that both are
+ * compiled by the JIT equally, and only the last rounds count.
+ * Usage: SolverBenchmark [smallest size] [largest size] [puzzles of every size]
+ */
+public class SolverBenchmark {
+    private static final int ROUNDS = 6;
+    private static final int MEASURED_ROUNDS = 3;
+    private static final long ROUND_TIME = 500_000_000L;
+
+    private SolverBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int minSize = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        int numberOfPuzzles = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        System.out.println("size  general us  kernel us  speedup");
+        for (int size = minSize; size <= maxSize; size++) {
+            SplittableRandom random = new SplittableRandom(size);
+            List<Puzzle> puzzles = new ArrayList<>();
+            for (int k = 0; k < numberOfPuzzles; k++)
+                puzzles.add(new Puzzle(new Generator(size, random.nextLong()).getText(), null));
+            List<Solver> generalSolvers = createSolvers(puzzles, false);
+            List<Solver> kernelSolvers = createSolvers(puzzles, true);
+
+            double generalTime = 0, kernelTime = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                double general = measure(generalSolvers, size);
+                double kernel = measure(kernelSolvers, size);
+                if (round < ROUNDS - MEASURED_ROUNDS) continue;
+                generalTime += general / MEASURED_ROUNDS;
+                kernelTime += kernel / MEASURED_ROUNDS;
+            }
+            System.out.printf("%4d  %10.1f  %9.1f  %6.2fx%n", size, generalTime / 1000, kernelTime / 1000,
+                    generalTime / kernelTime);
+        }
+        GridKernel.setEnabled(true);
+    }
+
+    /**
+     * Prepares a solver for every puzzle, with or without the kernel of its size.
+     */
+    private static List<Solver> createSolvers(List<Puzzle> puzzles, boolean kernels) {
+        GridKernel.setEnabled(kernels);
+        List<Solver> solvers = new ArrayList<>();
+        for (Puzzle puzzle : puzzles) {
+            Solver solver = new Solver(puzzle.getAllCages(), puzzle.getSize(), 2);
+            if (solver.getSolutions().size() != 1) throw new IllegalStateException("A generated puzzle is not unique");
+            solvers.add(solver);
+        }
+        return solvers;
+    }
+
+    /**
+     * Searches the puzzles again and again for a while.
+     *
+     * @return the average time of a search, in nanoseconds
+     */
+    private static double measure(List<Solver> solvers, int size) {
+        int[] givens = new int[size * size];
+        long searches = 0;
+        long startTime = System.nanoTime();
+        long time;
+        do {
+            for (Solver solver : solvers) solver.solve(givens);
+            searches += solvers.size();
+            time = System.nanoTime() - startTime;
+        } while (time < ROUND_TIME);
+        return (double) time / searches;
+    }
+}
@@ -1,15 +1,13 @@
 package mathdoku.controller;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * Represents a clone version of the {@link mathdoku.model.Cell} class that is used to find its value.
  * Similarly, has possible values, coordinates and id.
+ * The possible values are kept as the bits of a long, bit v meaning that v is possible.
  */
 public class SolverCell {
 
-    private Set<Integer> possibleValues;
+    private long possibleValues;
     private int value;
     private boolean hasCage;
     private int id;
@@ -17,10 +15,10 @@ public class SolverCell {
     /**
      * Constructor that creates a solver cell based on its possible values.
      *
-     * @param possibleValues
+     * @param possibleValues the possible values as bits
      */
-    public SolverCell(Set<Integer> possibleValues) {
-        this.possibleValues = new HashSet<>(possibleValues);
+    public SolverCell(long possibleValues) {
+        this.possibleValues = possibleValues;
     }
 
     /**
@@ -29,14 +27,33 @@ public class SolverCell {
      * @param solverCell
      */
     public SolverCell(SolverCell solverCell) {
-        this.possibleValues = new HashSet<>(solverCell.possibleValues);
+        this.possibleValues = solverCell.possibleValues;
         this.value = solverCell.value;
     }
 
-    public Set<Integer> getPossibleValues() {
+    /**
+     * Returns the possible values as bits.
+     */
+    public long getPossibleValues() {
         return possibleValues;
     }
 
+    public int getNumberOfPossibleValues() {
+        return Long.bitCount(possibleValues);
+    }
+
+    public boolean hasPossibleValue(int value) {
+        return (possibleValues & (1L << value)) != 0;
+    }
+
+    public void addPossibleValue(int value) {
+        possibleValues |= 1L << value;
+    }
+
+    public void removePossibleValue(int value) {
+        possibleValues &= ~(1L << value);
+    }
+
     public int getValue() {
         return value;
     }
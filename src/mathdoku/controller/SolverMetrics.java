@@ -0,0 +1,256 @@
+package mathdoku.controller;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents the metrics of every search of the solver since they were enabled: the totals of the statistics
+ * of the searches and histograms of their nodes, backtracks and times.
+ * They are disabled by default, and then the solver does not even count. They can be enabled with the
+ * mathdoku.metrics system property, through JMX or from the code, and read through JMX or as text.
+ */
+public class SolverMetrics implements SolverMetricsMBean {
+    private static final String OBJECT_NAME = "mathdoku:type=SolverMetrics";
+    private static volatile boolean enabled = Boolean.getBoolean("mathdoku.metrics");
+    private static SolverMetrics instance;
+
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder propagationPasses = new LongAdder();
+    private final LongAdder lineEliminations = new LongAdder();
+    private final LongAdder cageEliminations = new LongAdder();
+    private final LongAdder nakedSingles = new LongAdder();
+    private final LongAdder hiddenSingles = new LongAdder();
+    private final LongAdder transpositionHits = new LongAdder();
+    private final LongAdder groupsTime = new LongAdder();
+    private final LongAdder searchTime = new LongAdder();
+    private volatile int maxDepth;
+    private final Histogram nodesHistogram = new Histogram();
+    private final Histogram backtracksHistogram = new Histogram();
+    private final Histogram searchTimeHistogram = new Histogram();
+
+    private SolverMetrics() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the metrics of the application, creating them and giving them to JMX the first time.
+     */
+    public static synchronized SolverMetrics getInstance() {
+        if (instance == null) instance = new SolverMetrics();
+        return instance;
+    }
+
+    /**
+     * Checks if the searches have to be counted, without creating the metrics.
+     */
+    static boolean isRecording() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        SolverMetrics.enabled = enabled;
+    }
+
+    /**
+     * Adds the statistics of a search to the metrics.
+     *
+     * @param statistics the statistics of the search
+     * @param result     how the search ended
+     */
+    void record(SolverStatistics statistics, SolveResult result) {
+        solves.increment();
+        if (result.isStopped()) timeouts.increment();
+        nodes.add(statistics.nodes);
+        backtracks.add(statistics.backtracks);
+        restarts.add(statistics.restarts);
+        propagationPasses.add(statistics.propagationPasses);
+        lineEliminations.add(statistics.lineEliminations);
+        cageEliminations.add(statistics.cageEliminations);
+        nakedSingles.add(statistics.nakedSingles);
+        hiddenSingles.add(statistics.hiddenSingles);
+        transpositionHits.add(statistics.transpositionHits);
+        groupsTime.add(statistics.groupsTime);
+        searchTime.add(statistics.searchTime);
+        //A lost update only makes the maximum a little late, which is fine for a metric
+        if (statistics.maxDepth > maxDepth) maxDepth = statistics.maxDepth;
+        nodesHistogram.add(statistics.nodes);
+        backtracksHistogram.add(statistics.backtracks);
+        searchTimeHistogram.add(statistics.searchTime / 1000);
+    }
+
+    @Override
+    public long getSolves() {
+        return solves.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    @Override
+    public long getRestarts() {
+        return restarts.sum();
+    }
+
+    @Override
+    public long getPropagationPasses() {
+        return propagationPasses.sum();
+    }
+
+    @Override
+    public long getLineEliminations() {
+        return lineEliminations.sum();
+    }
+
+    @Override
+    public long getCageEliminations() {
+        return cageEliminations.sum();
+    }
+
+    @Override
+    public long getNakedSingles() {
+        return nakedSingles.sum();
+    }
+
+    @Override
+    public long getHiddenSingles() {
+        return hiddenSingles.sum();
+    }
+
+    @Override
+    public long getTranspositionHits() {
+        return transpositionHits.sum();
+    }
+
+    @Override
+    public long getGroupsTime() {
+        return groupsTime.sum();
+    }
+
+    @Override
+    public long getSearchTime() {
+        return searchTime.sum();
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public long getNodesPercentile(double percentile) {
+        return nodesHistogram.getPercentile(percentile);
+    }
+
+    @Override
+    public long getSearchTimePercentile(double percentile) {
+        return searchTimeHistogram.getPercentile(percentile);
+    }
+
+    /**
+     * Returns the metrics as text, one on every line, with the buckets of the histograms counted up to their bound.
+     */
+    @Override
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        text.append("solver_enabled ").append(enabled ? 1 : 0).append("\n");
+        text.append("solver_solves_total ").append(getSolves()).append("\n");
+        text.append("solver_timeouts_total ").append(getTimeouts()).append("\n");
+        text.append("solver_nodes_total ").append(getNodes()).append("\n");
+        text.append("solver_backtracks_total ").append(getBacktracks()).append("\n");
+        text.append("solver_restarts_total ").append(getRestarts()).append("\n");
+        text.append("solver_propagation_passes_total ").append(getPropagationPasses()).append("\n");
+        text.append("solver_eliminations_total{constraint=\"line\"} ").append(getLineEliminations()).append("\n");
+        text.append("solver_eliminations_total{constraint=\"cage\"} ").append(getCageEliminations()).append("\n");
+        text.append("solver_singles_total{kind=\"naked\"} ").append(getNakedSingles()).append("\n");
+        text.append("solver_singles_total{kind=\"hidden\"} ").append(getHiddenSingles()).append("\n");
+        text.append("solver_transposition_hits_total ").append(getTranspositionHits()).append("\n");
+        text.append("solver_phase_time_us_total{phase=\"groups\"} ").append(getGroupsTime() / 1000).append("\n");
+        text.append("solver_phase_time_us_total{phase=\"search\"} ").append(getSearchTime() / 1000).append("\n");
+        text.append("solver_max_depth ").append(getMaxDepth()).append("\n");
+        nodesHistogram.appendText(text, "solver_nodes");
+        backtracksHistogram.appendText(text, "solver_backtracks");
+        searchTimeHistogram.appendText(text, "solver_search_time_us");
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[]{solves, timeouts, nodes, backtracks, restarts, propagationPasses,
+                lineEliminations, cageEliminations, nakedSingles, hiddenSingles, transpositionHits, groupsTime,
+                searchTime}) adder.reset();
+        maxDepth = 0;
+        nodesHistogram.reset();
+        backtracksHistogram.reset();
+        searchTimeHistogram.reset();
+    }
+
+    /**
+     * Represents a histogram with a bucket for every power of two: bucket b counts the values below 2^b
+     * that are not in an earlier bucket.
+     */
+    private static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        private void add(long value) {
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(value, 0)));
+        }
+
+        /**
+         * Returns the upper bound of the bucket that holds the given percentile of the values.
+         */
+        private long getPercentile(double percentile) {
+            long total = 0;
+            for (int b = 0; b < 64; b++) total += buckets.get(b);
+            long target = (long) Math.ceil(total * percentile / 100);
+            long count = 0;
+            for (int b = 0; b < 64; b++) {
+                count += buckets.get(b);
+                if (count >= target && count > 0) return b == 0 ? 0 : (1L << b) - 1;
+            }
+            return 0;
+        }
+
+        private void appendText(StringBuilder text, String name) {
+            int last = 63;
+            while (last > 0 && buckets.get(last) == 0) last--;
+            long count = 0;
+            for (int b = 0; b <= last; b++) {
+                count += buckets.get(b);
+                text.append(name).append("_bucket{le=\"").append(b == 0 ? 0 : (1L << b) - 1).append("\"} ").append(count).append("\n");
+            }
+            text.append(name).append("_count ").append(count).append("\n");
+        }
+
+        private void reset() {
+            for (int b = 0; b < 64; b++) buckets.set(b, 0);
+        }
+    }
+}
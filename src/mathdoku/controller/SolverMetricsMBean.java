@@ -0,0 +1,56 @@
+package mathdoku.controller;
+
+/**
+ * Represents the view of the solver metrics that is given through JMX.
+ */
+public interface SolverMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSolves();
+
+    long getTimeouts();
+
+    long getNodes();
+
+    long getBacktracks();
+
+    long getRestarts();
+
+    long getPropagationPasses();
+
+    long getLineEliminations();
+
+    long getCageEliminations();
+
+    long getNakedSingles();
+
+    long getHiddenSingles();
+
+    long getTranspositionHits();
+
+    long getGroupsTime();
+
+    long getSearchTime();
+
+    int getMaxDepth();
+
+    /**
+     * Returns an approximate percentile of the number of nodes of a search.
+     */
+    long getNodesPercentile(double percentile);
+
+    /**
+     * Returns an approximate percentile of the time of a search, in microseconds.
+     */
+    long getSearchTimePercentile(double percentile);
+
+    /**
+     * Returns all of the metrics as text, one on every line.
+     */
+    String getText();
+
+    void reset();
+}
@@ -0,0 +1,250 @@
+package mathdoku.controller;
+
+import mathdoku.model.Puzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Represents several strategies of the solver that race on the same puzzle. The first one to find out whether
+ * the puzzle has a solution wins, and the others are cancelled.
+ * The strategy with the most wins so far is run by the calling thread and the others are given to an executor,
+ * so a race never waits for a strategy that is still in the queue of the executor and a busy executor only
+ * makes it a race of fewer strategies. The strategies of a race share a transposition table, so the states one
+ * of them proves to have no solution are skipped by the others.
+ * The solvers of a race are prepared by the calling thread before any of them starts, so the groups of the cages
+ * are found once and the strategies only read them.
+ */
+public class SolverPortfolio {
+    private static final int TRANSPOSITION_CAPACITY = 1 << 14;
+
+    private final List<Strategy> strategies;
+    private final ExecutorService executor;
+    private final AtomicLongArray wins;
+
+    /**
+     * Creates a portfolio of strategies.
+     *
+     * @param strategies the strategies, at least one
+     * @param executor   the executor of every strategy but the one with the most wins
+     */
+    public SolverPortfolio(List<Strategy> strategies, ExecutorService executor) {
+        if (strategies.isEmpty()) throw new IllegalArgumentException("A portfolio needs at least one strategy");
+        this.strategies = Collections.unmodifiableList(new ArrayList<>(strategies));
+        this.executor = executor;
+        wins = new AtomicLongArray(strategies.size());
+    }
+
+    /**
+     * Creates a portfolio of the strategies of the solver that are useful on their own.
+     *
+     * @param executor the executor of every strategy but the one with the most wins
+     */
+    public static SolverPortfolio createDefault(ExecutorService executor) {
+        return new SolverPortfolio(Arrays.asList(new Strategy("cell", Solver.Branching.CELL),
+                new Strategy("cage", Solver.Branching.CAGE),
+                new Strategy("cell-restarts", Solver.Branching.CELL, new RestartPolicy(1))), executor);
+    }
+
+    /**
+     * Races the strategies on a puzzle until one of them finds out whether it has a solution.
+     *
+     * @param puzzle        the puzzle
+     * @param solutionLimit the maximum number of solutions to look for
+     * @param token         the limits of every strategy, whose cancellation stops them all
+     * @return the result of the winner, or of the strategy of the calling thread if every strategy stopped
+     */
+    public Result solve(Puzzle puzzle, int solutionLimit, CancellationToken token) {
+        Integer[] order = new Integer[strategies.size()];
+        for (int k = 0; k < order.length; k++) order[k] = k;
+        //A lost update only changes the order of a single race
+        Arrays.sort(order, (a, b) -> Long.compare(wins.get(b), wins.get(a)));
+
+        Race race = new Race(puzzle, solutionLimit, token);
+        if (!race.prepare(order[0])) return new Result(strategies.get(order[0]), race.solvers[order[0]].getResult());
+        for (int k = 1; k < order.length; k++) {
+            int strategy = order[k];
+            try {
+                executor.execute(() -> race.run(strategy));
+            } catch (RejectedExecutionException e) {
+                //A busy executor leaves the race to the strategies that could start
+                break;
+            }
+        }
+        Result ownResult = race.run(order[0]);
+        race.cancel();
+        Result winner = race.winner.get();
+        return winner != null ? winner : ownResult;
+    }
+
+    public List<Strategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * Returns the number of races a strategy has won.
+     *
+     * @param strategy the index of the strategy
+     */
+    public long getWins(int strategy) {
+        return wins.get(strategy);
+    }
+
+    /**
+     * Returns the wins of every strategy as text, one on every line.
+     */
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        for (int k = 0; k < strategies.size(); k++)
+            text.append("solver_portfolio_wins_total{strategy=\"").append(strategies.get(k).getName()).append("\"} ")
+                    .append(wins.get(k)).append("\n");
+        return text.toString();
+    }
+
+    /**
+     * Represents a way to search: a name for the wins and the settings of the solver.
+     */
+    public static class Strategy {
+        private final String name;
+        private final Solver.Branching branching;
+        private final RestartPolicy restartPolicy;
+
+        /**
+         * Creates a strategy that searches in a single run.
+         *
+         * @param name      the name of the strategy
+         * @param branching what the search gives values to in a single step
+         */
+        public Strategy(String name, Solver.Branching branching) {
+            this(name, branching, null);
+        }
+
+        /**
+         * Creates a strategy that starts again with another random order of the values after a number of backtracks.
+         *
+         * @param name          the name of the strategy
+         * @param branching     what the search gives values to in a single step
+         * @param restartPolicy when the search starts again, or null to search in a single run
+         */
+        public Strategy(String name, Solver.Branching branching, RestartPolicy restartPolicy) {
+            this.name = name;
+            this.branching = branching;
+            this.restartPolicy = restartPolicy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Solver.Branching getBranching() {
+            return branching;
+        }
+
+        public RestartPolicy getRestartPolicy() {
+            return restartPolicy;
+        }
+
+        /**
+         * Creates a solver of a puzzle with the settings of the strategy, which has not searched yet.
+         */
+        Solver createSolver(Puzzle puzzle, int solutionLimit, TranspositionTable table) {
+            Solver solver = Solver.prepare(puzzle.getAllCages(), puzzle.getSize(), solutionLimit);
+            solver.setTranspositionTable(table);
+            solver.setBranching(branching);
+            solver.setRestartPolicy(restartPolicy);
+            return solver;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Represents the result of a race: the result of the search and the strategy that found it.
+     */
+    public static class Result {
+        private final Strategy strategy;
+        private final SolveResult solveResult;
+
+        private Result(Strategy strategy, SolveResult solveResult) {
+            this.strategy = strategy;
+            this.solveResult = solveResult;
+        }
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        public SolveResult getSolveResult() {
+            return solveResult;
+        }
+
+        @Override
+        public String toString() {
+            return strategy + ": " + solveResult;
+        }
+    }
+
+    /**
+     * Represents a single race: a solver and a token for every strategy, the shared transposition table and the winner.
+     */
+    private class Race {
+        private final int size;
+        private final Solver[] solvers;
+        private final CancellationToken[] tokens;
+        private final TranspositionTable table;
+        private final AtomicReference<Result> winner = new AtomicReference<>();
+
+        private Race(Puzzle puzzle, int solutionLimit, CancellationToken token) {
+            size = puzzle.getSize();
+            table = new TranspositionTable(size, TRANSPOSITION_CAPACITY);
+            solvers = new Solver[strategies.size()];
+            tokens = new CancellationToken[strategies.size()];
+            for (int k = 0; k < tokens.length; k++) {
+                solvers[k] = strategies.get(k).createSolver(puzzle, solutionLimit, table);
+                tokens[k] = new CancellationToken(token);
+            }
+        }
+
+        /**
+         * Finds the groups of the cages with the solver of the first strategy, and gives them to the other solvers.
+         *
+         * @param first the index of the strategy of the calling thread
+         * @return false if the groups could not be found within the limits of the first strategy
+         */
+        private boolean prepare(int first) {
+            if (!solvers[first].prepareGroups(tokens[first])) return false;
+            for (int k = 0; k < solvers.length; k++) if (k != first) solvers[k].prepareGroups(tokens[k]);
+            return true;
+        }
+
+        /**
+         * Runs a strategy unless the race is already over, and makes it the winner if it is the first to finish.
+         *
+         * @param strategy the index of the strategy
+         * @return the result of the strategy, or null if it did not run because another one had won
+         */
+        private Result run(int strategy) {
+            if (winner.get() != null) return null;
+            SolveResult solveResult = solvers[strategy].solve(new int[size * size], tokens[strategy]);
+            Result result = new Result(strategies.get(strategy), solveResult);
+            if (!solveResult.isStopped() && winner.compareAndSet(null, result)) {
+                wins.incrementAndGet(strategy);
+                cancel();
+            }
+            return result;
+        }
+
+        private void cancel() {
+            for (CancellationToken token : tokens) token.cancel();
+        }
+    }
+}
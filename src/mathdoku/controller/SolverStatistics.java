@@ -0,0 +1,120 @@
+package mathdoku.controller;
+
+/**
+ * Represents what a single search of the solver did: how many nodes it visited, how often it had to go back,
+ * how deep it went, how much the propagation removed and where the time went.
+ * The solver keeps one only while the metrics are enabled, and gives it to {@link SolverMetrics} at the end
+ * of the search.
+ */
+public class SolverStatistics {
+
+    //Counted by the solver directly, which is why they are not private
+    long nodes;
+    long backtracks;
+    long restarts;
+    int depth;
+    int maxDepth;
+    long propagationPasses;
+    long lineEliminations;
+    long cageEliminations;
+    long nakedSingles;
+    long hiddenSingles;
+    long transpositionHits;
+    long groupsTime;
+    long givensTime;
+    long searchTime;
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of values tried that led to a cell without possible values or a cage without groups.
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns the number of times the search started again from the top.
+     */
+    public long getRestarts() {
+        return restarts;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of times the propagation went through the changed cells, cages and lines.
+     */
+    public long getPropagationPasses() {
+        return propagationPasses;
+    }
+
+    /**
+     * Returns the number of possible values removed because their value was in the row or column.
+     */
+    public long getLineEliminations() {
+        return lineEliminations;
+    }
+
+    /**
+     * Returns the number of possible values removed because no group of the cage could take them.
+     */
+    public long getCageEliminations() {
+        return cageEliminations;
+    }
+
+    /**
+     * Returns the number of cells that got a value because it was the only one they could take.
+     */
+    public long getNakedSingles() {
+        return nakedSingles;
+    }
+
+    /**
+     * Returns the number of cells that got a value because it fitted no other cell of a row or column.
+     */
+    public long getHiddenSingles() {
+        return hiddenSingles;
+    }
+
+    /**
+     * Returns the number of states skipped because the transposition table knew they had no solution.
+     */
+    public long getTranspositionHits() {
+        return transpositionHits;
+    }
+
+    /**
+     * Returns the time spent finding the groups of possible values of the cages, in nanoseconds.
+     * Only the first search of a solver spends it.
+     */
+    public long getGroupsTime() {
+        return groupsTime;
+    }
+
+    /**
+     * Returns the time spent setting the given values, in nanoseconds.
+     */
+    public long getGivensTime() {
+        return givensTime;
+    }
+
+    /**
+     * Returns the time spent in the search itself, in nanoseconds.
+     */
+    public long getSearchTime() {
+        return searchTime;
+    }
+
+    @Override
+    public String toString() {
+        return nodes + " nodes, " + backtracks + " backtracks, " + restarts + " restarts, depth " + maxDepth + ", "
+                + propagationPasses + " propagation passes, eliminations: " + lineEliminations + " line, "
+                + cageEliminations + " cage, " + nakedSingles + " naked singles, " + hiddenSingles + " hidden singles, "
+                + transpositionHits + " transposition hits, times (us): groups " + groupsTime / 1000 + ", givens " + givensTime / 1000 + ", search " + searchTime / 1000;
+    }
+}
@@ -0,0 +1,122 @@
+package mathdoku.controller;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Represents a table of the states of a puzzle that a search has proved to have no solution, so that no other
+ * search of the same puzzle explores them again. A state is the values of the cells after the propagation,
+ * which depend only on the values themselves and not on the order they were given in, and is known by its
+ * Zobrist hash: the exclusive or of a random key for every cell and value.
+ * The table has a fixed number of slots in buckets of four. A hit marks its slot, and a new state takes the first
+ * unmarked slot of its bucket, clearing the marks it passes like the hand of a clock. Every slot is changed with
+ * compare and set, so any number of solvers can share a table without locks.
+ */
+public class TranspositionTable {
+    private static final int BUCKET_SIZE = 4;
+    private static final long REFERENCED = 1L;
+    private static final long KEY_SEED = 0x6d617468646f6b75L;
+
+    private final int size;
+    private final long[] keys;
+    private final AtomicLongArray slots;
+    private final int bucketMask;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+
+    /**
+     * Creates an empty table for puzzles of the given size.
+     *
+     * @param size     the size of the table of the puzzle
+     * @param capacity the number of states it can hold, rounded up to a power of two
+     */
+    public TranspositionTable(int size, int capacity) {
+        this.size = size;
+        //Every table of the same size has the same keys, so the hashes do not depend on the table
+        SplittableRandom random = new SplittableRandom(KEY_SEED + size);
+        keys = new long[size * size * (size + 1)];
+        for (int k = 0; k < keys.length; k++) keys[k] = random.nextLong();
+        int numberOfSlots = Math.max(BUCKET_SIZE, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        slots = new AtomicLongArray(numberOfSlots);
+        bucketMask = numberOfSlots / BUCKET_SIZE - 1;
+    }
+
+    /**
+     * Returns the Zobrist hash of the values of the cells. The lowest bit is always 0, and 0 is never a hash.
+     *
+     * @param values the values of the cells, j * size + i, 0 for a cell without a value
+     */
+    public long hash(int[] values) {
+        long hash = 0;
+        for (int cell = 0; cell < values.length; cell++)
+            if (values[cell] != 0) hash ^= keys[cell * (size + 1) + values[cell]];
+        hash &= ~REFERENCED;
+        return hash == 0 ? 2 : hash;
+    }
+
+    /**
+     * Checks if a state has been proved to have no solution, and marks it as used if so.
+     *
+     * @param hash the hash of the state
+     */
+    public boolean isDead(long hash) {
+        int start = getBucket(hash);
+        for (int k = 0; k < BUCKET_SIZE; k++) {
+            long slot = slots.get(start + k);
+            if ((slot & ~REFERENCED) != hash) continue;
+            if ((slot & REFERENCED) == 0) slots.compareAndSet(start + k, slot, slot | REFERENCED);
+            hits.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that a state has no solution, replacing a state that has not been used since the clock last passed it.
+     *
+     * @param hash the hash of the state
+     */
+    public void addDead(long hash) {
+        int start = getBucket(hash);
+        //Two rounds are enough: the first one clears every mark it passes
+        for (int round = 0; round < 2 * BUCKET_SIZE; round++) {
+            int index = start + round % BUCKET_SIZE;
+            long slot = slots.get(index);
+            if ((slot & ~REFERENCED) == hash) return;
+            if ((slot & REFERENCED) != 0) {
+                slots.compareAndSet(index, slot, slot & ~REFERENCED);
+                continue;
+            }
+            if (slots.compareAndSet(index, slot, hash)) {
+                stores.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of states found in the table.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of states put in the table.
+     */
+    public long getStores() {
+        return stores.get();
+    }
+
+    /**
+     * Removes every state, for example before the table is used for other cages.
+     */
+    public void clear() {
+        for (int k = 0; k < slots.length(); k++) slots.set(k, 0);
+    }
+
+    private int getBucket(long hash) {
+        return (int) ((hash ^ (hash >>> 32)) >>> 1 & bucketMask) * BUCKET_SIZE;
+    }
+}
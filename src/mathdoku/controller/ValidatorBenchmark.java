@@ -0,0 +1,83 @@
+package mathdoku.controller;
+
+import mathdoku.model.Cage;
+import mathdoku.model.Puzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Represents a benchmark of the batch check of completed grids against checking them one by one with the cages,
+ * the way the game checks a table. Half of the grids are solutions and the others have two values of a row
+ * swapped. Both checks have to agree on every grid, and the number of grids checked every second is printed.
+ * Usage: ValidatorBenchmark [size] [number of grids]
+ */
+public class ValidatorBenchmark {
+    private static final int ROUNDS = 5;
+
+    private ValidatorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        SplittableRandom random = new SplittableRandom(size);
+        Generator generator = new Generator(size, random.nextLong());
+        Puzzle puzzle = new Puzzle(generator.getText(), null);
+        int numberOfCells = size * size;
+        byte[] solution = new byte[numberOfCells];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++) solution[j * size + i] = (byte) generator.getSolverCellTable()[i][j].getValue();
+
+        byte[] grids = new byte[count * numberOfCells];
+        for (int k = 0; k < count; k++) {
+            System.arraycopy(solution, 0, grids, k * numberOfCells, numberOfCells);
+            if (k % 2 == 0) continue;
+            int row = random.nextInt(size), first = random.nextInt(size), second = (first + 1 + random.nextInt(size - 1)) % size;
+            int a = k * numberOfCells + row * size + first, b = k * numberOfCells + row * size + second;
+            byte value = grids[a];
+            grids[a] = grids[b];
+            grids[b] = value;
+        }
+
+        SolutionValidator validator = new SolutionValidator(puzzle);
+        boolean[] valid = new boolean[count];
+        for (int round = 0; round < ROUNDS; round++) {
+            long startTime = System.nanoTime();
+            int batchValid = validator.validate(grids, count, valid);
+            long batchTime = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (int k = 0; k < count; k++) {
+                if (checkWithCages(puzzle, grids, k * numberOfCells) != valid[k])
+                    throw new IllegalStateException("The checks disagree on grid " + k);
+            }
+            long cageTime = System.nanoTime() - startTime;
+            System.out.printf("round %d: %d of %d valid, batch %.0f grids/s, cages %.0f grids/s%n", round + 1,
+                    batchValid, count, count * 1e9 / batchTime, count * 1e9 / cageTime);
+        }
+    }
+
+    /**
+     * Checks a grid the way the game does: the values of every row and column and the target of every cage.
+     */
+    private static boolean checkWithCages(Puzzle puzzle, byte[] grids, int offset) {
+        int size = puzzle.getSize();
+        for (int line = 0; line < 2 * size; line++) {
+            boolean[] seen = new boolean[size + 1];
+            for (int k = 0; k < size; k++) {
+                int value = grids[offset + (line < size ? line * size + k : k * size + line - size)];
+                if (value < 1 || value > size || seen[value]) return false;
+                seen[value] = true;
+            }
+        }
+        for (int c = 0; c < puzzle.getAllCages().size(); c++) {
+            List<Integer> values = new ArrayList<>();
+            for (int k = 0; k < puzzle.getNumberOfCellsInCage(c); k++)
+                values.add((int) grids[offset + puzzle.getCellOfCage(c, k)]);
+            Cage cage = puzzle.getAllCages().get(c);
+            if (!cage.checkTarget(values)) return false;
+        }
+        return true;
+    }
+}
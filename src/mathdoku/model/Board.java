@@ -0,0 +1,338 @@
+package mathdoku.model;
+
+import mathdoku.controller.Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the values entered in a table, without any of its interface.
+ * Keeps the number of empty cells, repeated values in rows and columns and cages with a wrong target
+ * up to date after every change, so that a win can be checked at once.
+ * Also keeps the pencil marks of every cell and, when asked for, the candidates: the values every empty cell
+ * can still take. Both are kept as bits, and the candidates are updated only around the cell that changes.
+ * The cells shown in red for a mistake are kept here as well, so a table drawn on a canvas needs no node for a cell.
+ */
+public class Board {
+
+    private int size;
+    private Puzzle puzzle;
+    private byte[] values;
+    private byte[] rowCounts;
+    private byte[] columnCounts;
+    private long[] rowValues;
+    private long[] columnValues;
+    private int[] filledCellsInCage;
+    private boolean[] wrongCages;
+    private int emptyCells;
+    private int conflicts;
+    private int wrongCageCount;
+    private long[] pencilMarks;
+    private long[] candidates;
+    private boolean autoCandidates;
+    private boolean[] redCells;
+    private List<Integer> changedMarks = new ArrayList<>();
+
+    /**
+     * Creates an empty board for a puzzle. The puzzle is only read, so it can be shared with other boards.
+     * The pencil marks and the candidates take no memory until they are used.
+     *
+     * @param puzzle the puzzle of the table
+     */
+    public Board(Puzzle puzzle) {
+        this.puzzle = puzzle;
+        size = puzzle.getSize();
+        values = new byte[size * size];
+        //A value is never repeated more than size times, so its count fits in a byte
+        rowCounts = new byte[size * (size + 1)];
+        columnCounts = new byte[size * (size + 1)];
+        rowValues = new long[size];
+        columnValues = new long[size];
+        filledCellsInCage = new int[puzzle.getAllCages().size()];
+        wrongCages = new boolean[puzzle.getAllCages().size()];
+        emptyCells = size * size;
+    }
+
+    /**
+     * Changes the value of a cell and updates the counters of its row, column and cage.
+     *
+     * @param i     coordinate
+     * @param j     coordinate
+     * @param value the new value, 0 for an empty cell
+     */
+    public void setValue(int i, int j, int value) {
+        int index = j * size + i;
+        int oldValue = values[index];
+        if (oldValue == value) return;
+
+        if (oldValue != 0) {
+            //A value that was repeated in its row or column is no longer a conflict
+            if (--rowCounts[j * (size + 1) + oldValue] > 0) conflicts--;
+            else rowValues[j] &= ~(1L << oldValue);
+            if (--columnCounts[i * (size + 1) + oldValue] > 0) conflicts--;
+            else columnValues[i] &= ~(1L << oldValue);
+            emptyCells++;
+        }
+        if (value != 0) {
+            if (rowCounts[j * (size + 1) + value]++ > 0) conflicts++;
+            if (columnCounts[i * (size + 1) + value]++ > 0) conflicts++;
+            rowValues[j] |= 1L << value;
+            columnValues[i] |= 1L << value;
+            emptyCells--;
+        }
+        values[index] = (byte) value;
+
+        int cage = puzzle.getCageOfCell(index);
+        if (oldValue == 0) filledCellsInCage[cage]++;
+        if (value == 0) filledCellsInCage[cage]--;
+        updateCage(cage);
+        if (autoCandidates) updateCandidates(i, j);
+    }
+
+    public int getValue(int i, int j) {
+        return values[j * size + i];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    public int getEmptyCells() {
+        return emptyCells;
+    }
+
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    public int getWrongCageCount() {
+        return wrongCageCount;
+    }
+
+    /**
+     * Checks if every cell has a value, there are no repeated values and every cage reaches its target.
+     */
+    public boolean isSolved() {
+        return emptyCells == 0 && conflicts == 0 && wrongCageCount == 0;
+    }
+
+    /**
+     * Returns the pencil marks of a cell as bits, bit v meaning that v is marked.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public long getPencilMarks(int i, int j) {
+        return pencilMarks == null ? 0 : pencilMarks[j * size + i];
+    }
+
+    /**
+     * Marks a value in a cell or removes its mark if it is already marked.
+     *
+     * @param i     coordinate
+     * @param j     coordinate
+     * @param value the value
+     */
+    public void togglePencilMark(int i, int j, int value) {
+        if (pencilMarks == null) pencilMarks = new long[size * size];
+        pencilMarks[j * size + i] ^= 1L << value;
+        if (!autoCandidates) changedMarks.add(j * size + i);
+    }
+
+    /**
+     * Removes all of the pencil marks of a cell.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public void clearPencilMarks(int i, int j) {
+        if (pencilMarks == null) return;
+        pencilMarks[j * size + i] = 0;
+        if (!autoCandidates) changedMarks.add(j * size + i);
+    }
+
+    /**
+     * Returns the candidates of a cell as bits, 0 for a cell with a value or when the candidates are not kept.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public long getCandidates(int i, int j) {
+        return candidates == null ? 0 : candidates[j * size + i];
+    }
+
+    /**
+     * Returns the marks to show in a cell: the candidates if they are kept, and the pencil marks otherwise.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public long getMarks(int i, int j) {
+        return autoCandidates ? getCandidates(i, j) : getPencilMarks(i, j);
+    }
+
+    /**
+     * Returns the marks to show in a cell as lines of values, about as many lines as values in a line,
+     * or an empty string if the cell has a value.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public String getMarksText(int i, int j) {
+        return getValue(i, j) != 0 ? "" : getMarksText(getMarks(i, j));
+    }
+
+    /**
+     * Returns marks as lines of values, about as many lines as values in a line.
+     *
+     * @param marks the marks as bits, bit v meaning that v is marked
+     */
+    public static String getMarksText(long marks) {
+        if (marks == 0) return "";
+        int valuesInLine = (int) Math.ceil(Math.sqrt(Long.bitCount(marks)));
+        StringBuilder marksText = new StringBuilder();
+        int count = 0;
+        for (long remainingMarks = marks; remainingMarks != 0; remainingMarks &= remainingMarks - 1) {
+            if (count > 0) marksText.append(count % valuesInLine == 0 ? "\n" : " ");
+            marksText.append(Long.numberOfTrailingZeros(remainingMarks));
+            count++;
+        }
+        return marksText.toString();
+    }
+
+    /**
+     * Checks if a cell is shown in red for a mistake in its row, column or cage.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public boolean isRed(int i, int j) {
+        return redCells != null && redCells[j * size + i];
+    }
+
+    /**
+     * Shows a cell in red for a mistake or stops showing it in red.
+     *
+     * @param i   coordinate
+     * @param j   coordinate
+     * @param red whether it is red
+     */
+    public void setRed(int i, int j, boolean red) {
+        if (redCells == null) redCells = new boolean[size * size];
+        redCells[j * size + i] = red;
+    }
+
+    public boolean isAutoCandidates() {
+        return autoCandidates;
+    }
+
+    /**
+     * Starts or stops keeping the candidates. They are found for the whole board once when starting,
+     * and then only for the cells that a change can affect.
+     *
+     * @param autoCandidates whether to keep the candidates
+     */
+    public void setAutoCandidates(boolean autoCandidates) {
+        if (this.autoCandidates == autoCandidates) return;
+        this.autoCandidates = autoCandidates;
+        for (int cell = 0; cell < values.length; cell++) changedMarks.add(cell);
+        if (!autoCandidates) {
+            candidates = null;
+            return;
+        }
+        candidates = new long[size * size];
+        for (int cage = 0; cage < puzzle.getAllCages().size(); cage++) updateCandidatesOfCage(cage);
+    }
+
+    /**
+     * Returns the indexes of the cells whose marks have changed since the last call, j * size + i.
+     */
+    public List<Integer> takeChangedMarks() {
+        List<Integer> cells = changedMarks;
+        changedMarks = new ArrayList<>();
+        return cells;
+    }
+
+    /**
+     * Updates the candidates of the cages that have a cell in the row or column of the changed cell.
+     * The other cages can not be affected, since their cells keep the values seen in their rows and columns.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    private void updateCandidates(int i, int j) {
+        boolean[] changedCages = new boolean[puzzle.getAllCages().size()];
+        for (int k = 0; k < size; k++) {
+            changedCages[puzzle.getCageOfCell(j * size + k)] = true;
+            changedCages[puzzle.getCageOfCell(k * size + i)] = true;
+        }
+        for (int cage = 0; cage < changedCages.length; cage++) {
+            if (changedCages[cage]) updateCandidatesOfCage(cage);
+        }
+    }
+
+    /**
+     * Finds the candidates of the empty cells of a cage: the values that are not in their row or column and that
+     * belong to a group of the cage that fits the values already entered, the same way the solver does.
+     *
+     * @param cage the index of the cage
+     */
+    private void updateCandidatesOfCage(int cage) {
+        //The groups of every cage but a very large one are found by the puzzle
+        Cage cageObject = puzzle.getAllCages().get(cage);
+        long allValues = ((1L << size) - 1) << 1;
+        int[] cells = new int[puzzle.getNumberOfCellsInCage(cage)];
+        for (int k = 0; k < cells.length; k++) cells[k] = puzzle.getCellOfCage(cage, k);
+        long[] cellValues = new long[cells.length];
+        int[] takenValues = new int[cells.length];
+        int numberOfTakenValues = 0;
+        long valuesOfRemainingCells = 0;
+        for (int k = 0; k < cells.length; k++) {
+            int cell = cells[k];
+            if (values[cell] != 0) {
+                takenValues[numberOfTakenValues++] = values[cell];
+                continue;
+            }
+            cellValues[k] = allValues & ~rowValues[cell / size] & ~columnValues[cell % size];
+            valuesOfRemainingCells |= cellValues[k];
+        }
+        //A cage too large for its groups to be found rules out no values
+        long remainingPossibleValues = cageObject.getGroups() == null ? valuesOfRemainingCells
+                : Solver.findRemainingPossibleValues(cageObject.getGroups(), cageObject.getValuesOfGroups(), takenValues,
+                numberOfTakenValues, valuesOfRemainingCells);
+        //A cage that can no longer reach its target leaves no candidates
+        if (remainingPossibleValues == -1) remainingPossibleValues = 0;
+
+        for (int k = 0; k < cells.length; k++) {
+            long newCandidates = cellValues[k] & remainingPossibleValues;
+            if (newCandidates != candidates[cells[k]]) {
+                candidates[cells[k]] = newCandidates;
+                changedMarks.add(cells[k]);
+            }
+        }
+    }
+
+    /**
+     * Checks the target of the cage again if all of its cells have a value.
+     *
+     * @param cage the index of the cage
+     */
+    private void updateCage(int cage) {
+        boolean wrong = false;
+        Cage cageObject = puzzle.getAllCages().get(cage);
+        List<Integer> ids = cageObject.getIDs();
+        if (filledCellsInCage[cage] == ids.size()) {
+            List<Integer> cageValues = new ArrayList<>();
+            for (int id : ids) cageValues.add((int) values[id - 1]);
+            wrong = !cageObject.checkTarget(cageValues);
+        }
+        if (wrong != wrongCages[cage]) {
+            wrongCages[cage] = wrong;
+            wrongCageCount += wrong ? 1 : -1;
+        }
+    }
+}
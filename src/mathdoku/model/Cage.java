@@ -3,8 +3,10 @@ package mathdoku.model;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import mathdoku.controller.Controller;
+import mathdoku.controller.FlightEvents;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -19,7 +21,8 @@ public class Cage {
     private List<Cell> allCells = new ArrayList<>();
     private boolean allCellsHaveValues = false;
     private boolean isRed = false;
-    private List<List<Integer>> allGroupsOfPossibleValues;
+    //Solvers on other threads may find the groups of a cage that is shared, so they are published all at once
+    private volatile GroupsOfPossibleValues groupsOfPossibleValues;
 
     /**
      * Constructor for the cage
@@ -34,7 +37,7 @@ public class Cage {
     }
 
     /**
-     * Adds a single cell to the cage list
+     * Adds a single cell node to the cage list, for a table that is not drawn on a canvas
      *
      * @param cell
      */
@@ -68,20 +71,14 @@ public class Cage {
      */
     public void setRed(boolean isRed) {
         this.isRed = isRed;
-        if (isRed) {
-            for (Cell cell : allCells) {
-                cell.setBackground(new Background(new BackgroundFill(Color.RED, null, null)));
-                cell.setRed(true);
-            }
-        } else {
-            for (Cell cell : allCells) {
-                int i = cell.getCoordinates()[0];
-                int j = cell.getCoordinates()[1];
-                //Checks if the cell is a part of a row or column that has a mistake
-                if (!Controller.getTable().getRedRows().contains(j) && !Controller.getTable().getRedColumns().contains(i))
-                    cell.setBackground(new Background(new BackgroundFill(Color.TRANSPARENT, null, null)));
-                cell.setRed(false);
-            }
+        Table table = Controller.getTable();
+        for (int id : ids) {
+            int[] coordinates = Table.getCoordinatesOfID(id, table.getSize());
+            int i = coordinates[0];
+            int j = coordinates[1];
+            //Checks if the cell is a part of a row or column that has a mistake
+            if (isRed || (!table.getRedRows().contains(j) && !table.getRedColumns().contains(i)))
+                table.setCellRed(i, j, isRed);
         }
     }
 
@@ -102,19 +99,43 @@ public class Cage {
     }
 
     public List<List<Integer>> getAllGroupsOfPossibleValues() {
-        return allGroupsOfPossibleValues;
+        GroupsOfPossibleValues groupsOfPossibleValues = this.groupsOfPossibleValues;
+        return groupsOfPossibleValues == null ? null : groupsOfPossibleValues.allGroups;
+    }
+
+    /**
+     * Returns the groups of possible values as arrays, or null if they have not been found yet.
+     */
+    public int[][] getGroups() {
+        GroupsOfPossibleValues groupsOfPossibleValues = this.groupsOfPossibleValues;
+        return groupsOfPossibleValues == null ? null : groupsOfPossibleValues.groups;
     }
 
+    /**
+     * Returns the values of every group of possible values as bits.
+     */
+    public long[] getValuesOfGroups() {
+        GroupsOfPossibleValues groupsOfPossibleValues = this.groupsOfPossibleValues;
+        return groupsOfPossibleValues == null ? null : groupsOfPossibleValues.valuesOfGroups;
+    }
+
+    /**
+     * Sets the groups of possible values, from any thread. They are built completely before the cage gives them,
+     * so another thread sees either no groups or all of them.
+     *
+     * @param allGroupsOfPossibleValues the groups, or null to remove them
+     */
     public void setAllGroupsOfPossibleValues(List<List<Integer>> allGroupsOfPossibleValues) {
-        this.allGroupsOfPossibleValues = allGroupsOfPossibleValues;
+        groupsOfPossibleValues = allGroupsOfPossibleValues == null ? null : new GroupsOfPossibleValues(allGroupsOfPossibleValues);
     }
 
     /**
      * Checks if all of the cells have a value
      */
     public boolean checkAllCellsHaveValues() {
-        for (Cell cell : allCells) {
-            if (cell.getText().equals("")) return false;
+        Board board = Controller.getTable().getBoard();
+        for (int id : ids) {
+            if (board.getValue((id - 1) % board.getSize(), (id - 1) / board.getSize()) == 0) return false;
         }
         return true;
     }
@@ -123,40 +144,39 @@ public class Cage {
      * Checks if the target of the cage is achieved
      */
     public boolean checkTarget() {
+        Board board = Controller.getTable().getBoard();
+        List<Integer> values = new ArrayList<>();
+        for (int id : ids) values.add(board.getValue((id - 1) % board.getSize(), (id - 1) / board.getSize()));
+        return checkTarget(values);
+    }
+
+    /**
+     * Checks if the target of the cage is achieved by the given values, one for every cell in the cage.
+     *
+     * @param values
+     */
+    public boolean checkTarget(List<Integer> values) {
         //Checks for a cage with a single cell
-        if (target.length() == 1) {
-            if (allCells.get(0).getText().equals(target)) return true;
-        } else {
-            int sum = Integer.parseInt(target.substring(0, target.length() - 1));
-            String sign = target.substring(target.length() - 1);
-
-            int cellSum = 0;
-            //Calculates the sum for every sign
-            switch (sign) {
-                case "+":
-                    for (Cell cell : allCells) cellSum += Integer.parseInt(cell.getText());
-                    if (cellSum == sum) return true;
-                case "x":
-                    cellSum = 1;
-                    for (Cell cell : allCells) cellSum *= Integer.parseInt(cell.getText());
-                    if (cellSum == sum) return true;
-                case "-":
-                    for (Cell cell : allCells) {
-                        cellSum = Integer.parseInt(cell.getText());
-                        for (Cell cell2 : allCells) {
-                            if (!cell2.equals(cell)) cellSum -= Integer.parseInt(cell2.getText());
-                        }
-                        if (cellSum == sum) return true;
-                    }
-                case "÷":
-                    for (Cell cell : allCells) {
-                        Double doubleSum = Double.parseDouble(cell.getText());
-                        for (Cell cell2 : allCells) {
-                            if (!cell2.equals(cell)) doubleSum /= Double.parseDouble(cell2.getText());
-                        }
-                        if (doubleSum.equals((double) sum)) return true;
-                    }
-            }
+        if (ids.size() == 1) return values.get(0) == Integer.parseInt(target);
+
+        int result = Integer.parseInt(target.substring(0, target.length() - 1));
+        String sign = target.substring(target.length() - 1);
+        int sum = 0, product = 1, max = 0;
+        for (int value : values) {
+            sum += value;
+            product *= value;
+            max = Math.max(max, value);
+        }
+        //Calculates the result for every sign, only the largest value can give a positive result for - and ÷
+        switch (sign) {
+            case "+":
+                return sum == result;
+            case "x":
+                return product == result;
+            case "-":
+                return max - (sum - max) == result;
+            case "÷":
+                return max == result * (product / max);
         }
         return false;
     }
@@ -165,8 +185,45 @@ public class Cage {
      * Checks if the cage has a mistake or not and changes its background color to red if so
      */
     public void check() {
-        if (this.checkAllCellsHaveValues() && !this.checkTarget()) {
+        FlightEvents.MistakeCheckEvent event = new FlightEvents.MistakeCheckEvent();
+        event.begin();
+        boolean mistake = this.checkAllCellsHaveValues() && !this.checkTarget();
+        if (mistake) {
             this.setRed(true);
         } else if (this.getIsRed()) this.setRed(false);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "cage";
+            event.size = Controller.getTable().getSize();
+            event.cageCount = Controller.getTable().getAllCages().size();
+            event.outcome = mistake ? "mistake" : "correct";
+            event.commit();
+        }
+    }
+
+    /**
+     * Represents the groups of possible values of a cage as lists, as arrays and with their values as bits.
+     * Nothing of it changes after it is created.
+     */
+    private static class GroupsOfPossibleValues {
+        private final List<List<Integer>> allGroups;
+        private final int[][] groups;
+        private final long[] valuesOfGroups;
+
+        private GroupsOfPossibleValues(List<List<Integer>> allGroups) {
+            this.allGroups = Collections.unmodifiableList(new ArrayList<>(allGroups));
+            //Keeps the groups as arrays and their values as bits for the solver and the candidates
+            groups = new int[allGroups.size()][];
+            valuesOfGroups = new long[groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                List<Integer> group = allGroups.get(g);
+                groups[g] = new int[group.size()];
+                for (int k = 0; k < groups[g].length; k++) {
+                    groups[g][k] = group.get(k);
+                    valuesOfGroups[g] |= 1L << groups[g][k];
+                }
+            }
+        }
     }
 }
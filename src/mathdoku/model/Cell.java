@@ -1,24 +1,24 @@
 package mathdoku.model;
 
+import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.layout.*;
+import javafx.scene.text.Font;
 import mathdoku.controller.Controller;
 
-import java.util.Stack;
-
 /**
- * Represents a cell of the mathdoku table.
- * Has possible values, value, undo and redo values, coordinates, id.
+ * Represents a cell of the mathdoku table, as a node of a table that is not drawn on a canvas.
+ * Has possible values, value, coordinates, id.
+ * Shows its pencil marks or candidates in small text while it has no value.
  */
 public class Cell extends StackPane {
 
     private Label text = new Label("");
     private Label targetLabel = new Label("");
+    private Label marksLabel = new Label("");
+    private long marks;
     private int[] coordinates = new int[2];
     private Cage cage;
-    private Stack<String> undoValues = new Stack<>();
-    private Stack<String> redoValues = new Stack<>();
-    private boolean isRed;
 
     /**
      * Constructs a cell with stack pane and anchor pane.
@@ -35,21 +35,14 @@ public class Cell extends StackPane {
 
         AnchorPane anchorPane = new AnchorPane();
         anchorPane.getChildren().add(targetLabel);
-        this.getChildren().addAll(text, anchorPane);
+        marksLabel.setFont(Font.font(10));
+        this.getChildren().addAll(text, marksLabel, anchorPane);
         AnchorPane.setLeftAnchor(targetLabel, 0.0);
         AnchorPane.setTopAnchor(targetLabel, 0.0);
+        StackPane.setAlignment(marksLabel, Pos.BOTTOM_CENTER);
 
     }
 
-    /**
-     * Sets the cell to red or white.
-     *
-     * @param condition whether it is red or not.
-     */
-    public void setRed(boolean condition) {
-        isRed = condition;
-    }
-
     public void setCoordinates(int i, int j) {
         coordinates[0] = i;
         coordinates[1] = j;
@@ -63,23 +56,42 @@ public class Cell extends StackPane {
     public void setID(int id) {
     }
 
+    /**
+     * Shows a value in the cell. The table keeps its board up to date and checks for mistakes.
+     *
+     * @param text the value, an empty string for no value
+     */
     public void setText(String text) {
         this.text.setText(text);
-        //Checks if the show mistake mode is on and makes the cell red if it has a mistake
-        if (Controller.showMistakesMode) {
-            this.getCage().check();
-            Controller.getTable().checkColumnOrRow(this);
-        }
+        marksLabel.setText(getMarksText());
     }
 
-    public boolean getIsRed() {
-        return isRed;
+    /**
+     * Sets the pencil marks or candidates shown in the cell.
+     *
+     * @param marks the marks as bits, bit v meaning that v is marked
+     */
+    public void setMarks(long marks) {
+        this.marks = marks;
+        marksLabel.setText(getMarksText());
+    }
+
+    /**
+     * Returns the marks as lines of values, about as many lines as values in a line,
+     * or an empty string if the cell has a value.
+     */
+    public String getMarksText() {
+        return getText().equals("") ? Board.getMarksText(marks) : "";
     }
 
     public String getText() {
         return text.getText();
     }
 
+    public String getTarget() {
+        return targetLabel.getText();
+    }
+
     public int[] getCoordinates() {
         return coordinates;
     }
@@ -88,22 +100,6 @@ public class Cell extends StackPane {
         return text;
     }
 
-    public void pushUndoValue(String s) {
-        undoValues.push(s);
-    }
-
-    public void pushRedoValue(String s) {
-        redoValues.push(s);
-    }
-
-    public String popUndoValue() {
-        return undoValues.pop();
-    }
-
-    public String popRedoValue() {
-        return redoValues.pop();
-    }
-
     /**
      * Checks if a specific neighbour is part of his cage
      *
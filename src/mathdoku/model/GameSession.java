@@ -0,0 +1,150 @@
+package mathdoku.model;
+
+/**
+ * Represents one game of a player: a shared puzzle, the values the player has entered, their history
+ * and the counters that tell whether the board is solved.
+ * Every method locks the session, so a session can be used from any thread while different sessions never
+ * wait for each other. Several calls that have to see the same board can be put in a block synchronized
+ * on the session.
+ */
+public class GameSession {
+
+    private final long id;
+    private final Puzzle puzzle;
+    private final Board board;
+    private final UndoLog undoLog;
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    /**
+     * Creates a session with an empty board.
+     *
+     * @param id               the id of the session
+     * @param puzzle           the puzzle to play, which is only read
+     * @param undoCapacity     the maximum number of changes to keep for undo
+     * @param snapshotInterval the number of steps between two copies of the board in the undo log
+     */
+    public GameSession(long id, Puzzle puzzle, int undoCapacity, int snapshotInterval) {
+        this.id = id;
+        this.puzzle = puzzle;
+        board = new Board(puzzle);
+        undoLog = new UndoLog(puzzle.getSize() * puzzle.getSize(), undoCapacity, snapshotInterval);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Puzzle getPuzzle() {
+        return puzzle;
+    }
+
+    /**
+     * Returns the time of the last call to the session, in milliseconds.
+     */
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * Changes the value of a cell and records the change for undo.
+     *
+     * @param cell  the index of the cell, j * size + i
+     * @param value the new value, 0 for an empty cell
+     * @return false if the cell already had the value
+     */
+    public synchronized boolean enterValue(int cell, int value) {
+        touch();
+        int size = puzzle.getSize();
+        if (cell < 0 || cell >= size * size) throw new IllegalArgumentException("No cell " + cell);
+        if (value < 0 || value > size) throw new IllegalArgumentException("No value " + value);
+        int oldValue = board.getValue(cell % size, cell / size);
+        if (oldValue == value) return false;
+        undoLog.record(cell, oldValue, value);
+        board.setValue(cell % size, cell / size, value);
+        return true;
+    }
+
+    /**
+     * Undoes the last step of the player.
+     *
+     * @return false if there is nothing to undo
+     */
+    public synchronized boolean undo() {
+        touch();
+        if (!undoLog.canUndo()) return false;
+        int size = puzzle.getSize();
+        for (int entry : undoLog.undo())
+            board.setValue(UndoLog.getCell(entry) % size, UndoLog.getCell(entry) / size, UndoLog.getOldValue(entry));
+        return true;
+    }
+
+    /**
+     * Redoes the last undone step of the player.
+     *
+     * @return false if there is nothing to redo
+     */
+    public synchronized boolean redo() {
+        touch();
+        if (!undoLog.canRedo()) return false;
+        int size = puzzle.getSize();
+        for (int entry : undoLog.redo())
+            board.setValue(UndoLog.getCell(entry) % size, UndoLog.getCell(entry) / size, UndoLog.getNewValue(entry));
+        return true;
+    }
+
+    /**
+     * Returns the value of a cell, 0 for an empty cell.
+     *
+     * @param cell the index of the cell, j * size + i
+     */
+    public synchronized int getValue(int cell) {
+        touch();
+        return board.getValue(cell % puzzle.getSize(), cell / puzzle.getSize());
+    }
+
+    /**
+     * Returns a copy of the values of the board, j * size + i, 0 for an empty cell.
+     */
+    public synchronized byte[] getGrid() {
+        touch();
+        int size = puzzle.getSize();
+        byte[] grid = new byte[size * size];
+        for (int cell = 0; cell < grid.length; cell++) grid[cell] = (byte) board.getValue(cell % size, cell / size);
+        return grid;
+    }
+
+    public synchronized boolean isSolved() {
+        touch();
+        return board.isSolved();
+    }
+
+    public synchronized int getEmptyCells() {
+        return board.getEmptyCells();
+    }
+
+    public synchronized int getConflicts() {
+        return board.getConflicts();
+    }
+
+    public synchronized int getWrongCageCount() {
+        return board.getWrongCageCount();
+    }
+
+    /**
+     * Returns the board itself, for an owner that keeps the session to a single thread, like the interface.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns the undo log itself, for an owner that keeps the session to a single thread, like the interface.
+     */
+    public UndoLog getUndoLog() {
+        return undoLog;
+    }
+
+    private void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+}
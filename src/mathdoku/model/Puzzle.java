@@ -0,0 +1,143 @@
+package mathdoku.model;
+
+import mathdoku.controller.FlightEvents;
+import mathdoku.controller.Solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a puzzle without anything a player has done to it: its cages, where they are and its solution.
+ * The list of cages, their targets and cells, where they are and the solution never change after it is created,
+ * so a single puzzle can be shared by any number of games and threads.
+ * The only part that can change is the groups of possible values of a cage. They are found here when they are few,
+ * and otherwise by the first solver that needs them, which may run on any thread. A cage publishes its groups
+ * all at once, so the other threads see either none or all of them.
+ * The cells and colours of a cage belong to the interface, and are not used by a shared puzzle.
+ */
+public class Puzzle {
+
+    private final int size;
+    private final List<Cage> allCages;
+    private final int[] cageOfCell;
+    private final int[][] cellsOfCage;
+    private final byte[] solution;
+
+    /**
+     * Creates a puzzle from the text of its cages, one cage on every line.
+     *
+     * @param text     the text of the cages, the same as a game loaded from text input
+     * @param solution the value of every cell, j * size + i, or null if it is not known
+     */
+    public Puzzle(String text, byte[] solution) {
+        this(readCages(text), solution);
+    }
+
+    /**
+     * Creates a puzzle from its cages.
+     *
+     * @param allCages the cages of the table
+     * @param solution the value of every cell, j * size + i, or null if it is not known
+     */
+    public Puzzle(List<Cage> allCages, byte[] solution) {
+        int numberOfCells = 0;
+        for (Cage cage : allCages) numberOfCells += cage.getIDs().size();
+        size = (int) Math.sqrt(numberOfCells);
+        this.allCages = Collections.unmodifiableList(new ArrayList<>(allCages));
+        this.solution = solution == null ? null : solution.clone();
+        cageOfCell = new int[size * size];
+        cellsOfCage = new int[allCages.size()][];
+        Solver solver = new Solver(size);
+        for (int c = 0; c < allCages.size(); c++) {
+            Cage cage = allCages.get(c);
+            List<Integer> ids = cage.getIDs();
+            cellsOfCage[c] = new int[ids.size()];
+            for (int k = 0; k < ids.size(); k++) {
+                cellsOfCage[c][k] = ids.get(k) - 1;
+                cageOfCell[ids.get(k) - 1] = c;
+            }
+            //The groups of a cage too large to find them at once are left to the solver, which finds them within its limits
+            if (cage.getGroups() == null && Solver.hasFewGroups(ids.size(), size))
+                cage.setAllGroupsOfPossibleValues(solver.findAllGroupsOfPossibleValues(ids.size(), cage.getTarget()));
+        }
+    }
+
+    /**
+     * Reads the cages of a table from its text.
+     *
+     * @param text the text of the cages
+     */
+    private static List<Cage> readCages(String text) {
+        FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+        event.begin();
+        List<Cage> allCages = new ArrayList<>();
+        int numberOfCells = 0;
+        for (String line : text.trim().split("\n")) {
+            line = line.trim();
+            String target = line.substring(0, line.indexOf(" "));
+            List<Integer> ids = new ArrayList<>();
+            for (String id : line.substring(line.indexOf(" ") + 1).split(",")) ids.add(Integer.parseInt(id.trim()));
+            allCages.add(new Cage(target, ids));
+            numberOfCells += ids.size();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "puzzle";
+            event.size = (int) Math.sqrt(numberOfCells);
+            event.cageCount = allCages.size();
+            event.outcome = "success";
+            event.commit();
+        }
+        return allCages;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public List<Cage> getAllCages() {
+        return allCages;
+    }
+
+    /**
+     * Returns the index of the cage of a cell.
+     *
+     * @param cell the index of the cell, j * size + i
+     */
+    public int getCageOfCell(int cell) {
+        return cageOfCell[cell];
+    }
+
+    /**
+     * Returns the number of cells in a cage.
+     *
+     * @param cage the index of the cage
+     */
+    public int getNumberOfCellsInCage(int cage) {
+        return cellsOfCage[cage].length;
+    }
+
+    /**
+     * Returns the index of the k-th cell of a cage, j * size + i.
+     *
+     * @param cage the index of the cage
+     * @param k    the position of the cell in the cage
+     */
+    public int getCellOfCage(int cage, int k) {
+        return cellsOfCage[cage][k];
+    }
+
+    public boolean hasSolution() {
+        return solution != null;
+    }
+
+    /**
+     * Returns the value of a cell in the solution.
+     *
+     * @param cell the index of the cell, j * size + i
+     */
+    public int getSolution(int cell) {
+        return solution[cell];
+    }
+}
@@ -4,6 +4,9 @@ import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import mathdoku.controller.Controller;
+import mathdoku.controller.FlightEvents;
+import mathdoku.view.BoardCanvas;
 import mathdoku.view.View;
 
 import java.io.*;
@@ -19,13 +22,25 @@ import java.util.Set;
  */
 public class Table extends GridPane {
 
+    public static final int MAX_SIZE = 32;
+    private static final int UNDO_CAPACITY = 4096;
+    private static final int UNDO_SNAPSHOT_INTERVAL = 64;
+    private static final int CANVAS_MIN_SIZE = 10;
+    private static final int MAX_BUTTONS_IN_ROW = 11;
+    private static final Background transparentBackground = new Background(new BackgroundFill(Color.TRANSPARENT, null, null));
+    private static final Background redBackground = new Background(new BackgroundFill(Color.RED, null, null));
+    private static final Background grayBackground = new Background(new BackgroundFill(Color.GRAY, null, null));
     private int maxNum = 0;
     private int size;
     private ArrayList<Cage> allCages = new ArrayList<>();
     private Cell[][] cellTable;
+    private GameSession session;
+    private Board board;
+    private BoardCanvas boardCanvas;
     private Set<Integer> redColumns = new HashSet<>();
     private Set<Integer> redRows = new HashSet<>();
     private Button[] buttons;
+    private int selectedCell = -1;
 
 
     /**
@@ -35,6 +50,9 @@ public class Table extends GridPane {
      */
     public Table(File file) {
         super();
+        FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+        event.begin();
+        String outcome = "success";
         try {
             BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
             String line = bufferedReader.readLine();
@@ -45,9 +63,12 @@ public class Table extends GridPane {
         } catch (FileNotFoundException e) {
             e.printStackTrace();
             System.out.println("File not found!");
+            outcome = "file not found";
         } catch (IOException e) {
             e.printStackTrace();
+            outcome = "error";
         }
+        commitParseEvent(event, "file", outcome);
 
         createTable();
         createButtonVBox();
@@ -60,16 +81,36 @@ public class Table extends GridPane {
      */
     public Table(String text) {
         super();
+        FlightEvents.ParseEvent event = new FlightEvents.ParseEvent();
+        event.begin();
         String[] lines = text.split("\n");
 
         for (String line : lines) {
             collect(line);
         }
+        commitParseEvent(event, "text", "success");
 
         createTable();
         createButtonVBox();
     }
 
+    /**
+     * Ends the event of reading the cages and commits it if it is being recorded.
+     *
+     * @param event   the event begun before reading
+     * @param source  where the cages were read from
+     * @param outcome how the reading ended
+     */
+    private void commitParseEvent(FlightEvents.ParseEvent event, String source, String outcome) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.source = source;
+        event.size = (int) Math.sqrt(maxNum);
+        event.cageCount = allCages.size();
+        event.outcome = outcome;
+        event.commit();
+    }
+
     /**
      * Creates a table with the data that has collected.
      */
@@ -79,8 +120,21 @@ public class Table extends GridPane {
         this.setAlignment(Pos.CENTER);
 
 
-        //Create a two dimensional array to storage the cell objects
         size = (int) Math.sqrt(maxNum);
+        //The interface is the only thread that uses its session, so it works on the board and undo log directly
+        session = new GameSession(0, new Puzzle(allCages, null), UNDO_CAPACITY, UNDO_SNAPSHOT_INTERVAL);
+        board = session.getBoard();
+        board.setAutoCandidates(Controller.autoCandidatesMode);
+
+        //Large tables are drawn on a canvas from the board instead of showing a node for every cell
+        if (size >= CANVAS_MIN_SIZE || "canvas".equals(System.getProperty("mathdoku.renderer"))) {
+            board.takeChangedMarks();
+            boardCanvas = new BoardCanvas(this);
+            View.getInstance().getPane().setCenter(boardCanvas.getHolder());
+            return;
+        }
+
+        //Create a two dimensional array to storage the cell objects
         cellTable = new Cell[size][size];
 
         //Fill in the cell table
@@ -109,7 +163,7 @@ public class Table extends GridPane {
             }
             cage.drawBorder(cellTable);
         }
-
+        refreshMarks();
 
         this.setGridLinesVisible(true);
         double gridCellSize = this.cellTable[0][0].getHeight();
@@ -121,21 +175,26 @@ public class Table extends GridPane {
 
     /**
      * Creating buttons for the mouse control of the table.
+     * The buttons of large tables are smaller and wrap into more than one row.
      */
     private void createButtonVBox() {
-        //Creating a vbox with numeric buttons and putting it in the pane
-        HBox buttonHBox = new HBox();
+        //Creating a pane with numeric buttons and putting it in the pane
+        TilePane buttonPane = new TilePane();
+        int rows = (size + MAX_BUTTONS_IN_ROW) / MAX_BUTTONS_IN_ROW;
+        buttonPane.setPrefColumns((size + rows) / rows);
+        double width = rows == 1 ? 80 : 70;
+        double height = rows == 1 ? 40 : 30;
         buttons = new Button[size + 1];
         for (int i = 0; i < size; i++) {
             buttons[i] = new Button(String.valueOf(i + 1));
-            buttons[i].setPrefSize(80, 40);
-            buttonHBox.getChildren().add(buttons[i]);
+            buttons[i].setPrefSize(width, height);
+            buttonPane.getChildren().add(buttons[i]);
         }
         buttons[size] = new Button("Backspace");
-        buttons[size].setPrefSize(80, 40);
-        buttonHBox.getChildren().add(buttons[size]);
-        buttonHBox.setAlignment(Pos.CENTER);
-        View.getInstance().getPane().setBottom(buttonHBox);
+        buttons[size].setPrefSize(width, height);
+        buttonPane.getChildren().add(buttons[size]);
+        buttonPane.setAlignment(Pos.CENTER);
+        View.getInstance().getPane().setBottom(buttonPane);
     }
 
 
@@ -143,10 +202,125 @@ public class Table extends GridPane {
         return allCages;
     }
 
+    /**
+     * Returns the cell nodes, or null if the table is drawn on a canvas.
+     */
     public Cell[][] getCellTable() {
         return cellTable;
     }
 
+    public Board getBoard() {
+        return board;
+    }
+
+    public UndoLog getUndoLog() {
+        return session.getUndoLog();
+    }
+
+    /**
+     * Returns the canvas the table is drawn on, or null if the table shows its cells as nodes.
+     */
+    public BoardCanvas getBoardCanvas() {
+        return boardCanvas;
+    }
+
+    /**
+     * Returns the value of a cell as text, an empty string for no value.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public String getText(int i, int j) {
+        int value = board.getValue(i, j);
+        return value == 0 ? "" : String.valueOf(value);
+    }
+
+    /**
+     * Changes the value of a cell in the board and shows it.
+     * Checks the row, column and cage of the cell for mistakes if the show mistake mode is on.
+     *
+     * @param i    coordinate
+     * @param j    coordinate
+     * @param text the new value, an empty string for no value
+     */
+    public void setText(int i, int j, String text) {
+        board.setValue(i, j, text.equals("") ? 0 : Integer.parseInt(text));
+        if (cellTable != null) {
+            cellTable[i][j].setText(text);
+            cellTable[i][j].setMarks(board.getMarks(i, j));
+        }
+        //Shows the marks of the cells affected by the change
+        refreshMarks();
+        //Checks if the show mistake mode is on and makes the cell red if it has a mistake
+        if (Controller.showMistakesMode) {
+            allCages.get(board.getPuzzle().getCageOfCell(j * size + i)).check();
+            checkColumnOrRow(i, j);
+        }
+        refreshCell(i, j);
+    }
+
+    /**
+     * Shows a cell in red for a mistake or stops showing it in red.
+     *
+     * @param i   coordinate
+     * @param j   coordinate
+     * @param red whether it is red
+     */
+    public void setCellRed(int i, int j, boolean red) {
+        board.setRed(i, j, red);
+        if (cellTable != null) cellTable[i][j].setBackground(red ? redBackground : transparentBackground);
+        refreshCell(i, j);
+    }
+
+    /**
+     * Selects a cell, shows it in gray and shows the cell selected before it as it was.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public void selectCell(int i, int j) {
+        int oldCell = selectedCell;
+        selectedCell = j * size + i;
+        if (oldCell != -1 && oldCell != selectedCell) {
+            if (cellTable != null) cellTable[oldCell % size][oldCell / size]
+                    .setBackground(board.isRed(oldCell % size, oldCell / size) ? redBackground : transparentBackground);
+            refreshCell(oldCell % size, oldCell / size);
+        }
+        if (cellTable != null) cellTable[i][j].setBackground(grayBackground);
+        refreshCell(i, j);
+    }
+
+    /**
+     * Checks if a cell is the selected one.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public boolean isSelected(int i, int j) {
+        return selectedCell == j * size + i;
+    }
+
+    /**
+     * Draws the cell again if the table is drawn on a canvas.
+     * The cell nodes update themselves otherwise.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public void refreshCell(int i, int j) {
+        if (boardCanvas != null) boardCanvas.drawCell(i, j);
+    }
+
+    /**
+     * Shows the new marks of every cell whose pencil marks or candidates have changed.
+     */
+    public void refreshMarks() {
+        for (int index : board.takeChangedMarks()) {
+            if (cellTable != null) cellTable[index % size][index / size].setMarks(board.getMarks(index % size, index / size));
+            refreshCell(index % size, index / size);
+        }
+    }
+
     public Set<Integer> getRedColumns() {
         return redColumns;
     }
@@ -215,18 +389,12 @@ public class Table extends GridPane {
     public void colorColumnOrRow(String option, int columnOrRow) {
         if (option.equals("column")) {
             redColumns.add(columnOrRow);
-            for (int c = 0; c < cellTable.length; c++) {
-                cellTable[columnOrRow][c].setBackground(new Background(new BackgroundFill(Color.RED, null, null)));
-                cellTable[columnOrRow][c].setRed(true);
-            }
+            for (int c = 0; c < size; c++) setCellRed(columnOrRow, c, true);
         }
 
         if (option.equals("row")) {
             redRows.add(columnOrRow);
-            for (int r = 0; r < cellTable.length; r++) {
-                cellTable[r][columnOrRow].setBackground(new Background(new BackgroundFill(Color.RED, null, null)));
-                cellTable[r][columnOrRow].setRed(true);
-            }
+            for (int r = 0; r < size; r++) setCellRed(r, columnOrRow, true);
         }
     }
 
@@ -240,61 +408,70 @@ public class Table extends GridPane {
 
         if (option.equals("column")) {
             redColumns.remove(columnOrRow);
-            for (int m = 0; m < cellTable.length; m++) {
+            for (int m = 0; m < size; m++) {
                 //Checks if the cell is a part of another row or cage that has a mistake
-                if (!redRows.contains(m) && !cellTable[columnOrRow][m].getCage().getIsRed())
-                    cellTable[columnOrRow][m].setBackground(new Background(new BackgroundFill(Color.TRANSPARENT, null, null)));
-                cellTable[columnOrRow][m].setRed(false);
+                if (!redRows.contains(m) && !getCageOfCell(columnOrRow, m).getIsRed()) setCellRed(columnOrRow, m, false);
             }
         }
         if (option.equals("row")) {
             redRows.remove(columnOrRow);
-            for (int m = 0; m < cellTable.length; m++) {
+            for (int m = 0; m < size; m++) {
                 //Checks if the cell is a part of another column or cage that has a mistake
-                if (!redColumns.contains(m) && !cellTable[m][columnOrRow].getCage().getIsRed())
-                    cellTable[m][columnOrRow].setBackground(new Background(new BackgroundFill(Color.TRANSPARENT, null, null)));
-                cellTable[m][columnOrRow].setRed(false);
+                if (!redColumns.contains(m) && !getCageOfCell(m, columnOrRow).getIsRed()) setCellRed(m, columnOrRow, false);
             }
         }
     }
 
+    private Cage getCageOfCell(int i, int j) {
+        return allCages.get(board.getPuzzle().getCageOfCell(j * size + i));
+    }
+
     /**
      * Checks if the column or row of a cell has a value the same as the cell's.
      *
-     * @param cell
+     * @param i coordinate
+     * @param j coordinate
      */
-    public void checkColumnOrRow(Cell cell) {
-        int[] coordinates = cell.getCoordinates();
-        int i = coordinates[0];
-        int j = coordinates[1];
+    public void checkColumnOrRow(int i, int j) {
+        FlightEvents.MistakeCheckEvent event = new FlightEvents.MistakeCheckEvent();
+        event.begin();
         boolean columnState = true;
         boolean rowState = true;
         List<String> cellValues;
 
         //Checks the column of the cell for an equal numbers
         cellValues = new ArrayList<>();
-        cellValues.add(cell.getText());
-        for (int k = 0; k < cellTable.length; k++) {
-            if (k != j && !cellTable[i][k].getText().equals(""))
-                if (cellValues.contains(cellTable[i][k].getText())) {
+        cellValues.add(getText(i, j));
+        for (int k = 0; k < size; k++) {
+            if (k != j && !getText(i, k).equals(""))
+                if (cellValues.contains(getText(i, k))) {
                     colorColumnOrRow("column", i);
                     columnState = false;
                     break;
-                } else cellValues.add(cellTable[i][k].getText());
+                } else cellValues.add(getText(i, k));
         }
         if (columnState && redColumns.contains(i)) discolorColumnOrRow("column", i);
 
         //Checks the row of the cell for an equal number
         cellValues = new ArrayList<>();
-        cellValues.add(cell.getText());
-        for (int k = 0; k < cellTable.length; k++) {
-            if (k != i && !cellTable[k][j].getText().equals(""))
-                if (cellValues.contains(cellTable[k][j].getText())) {
+        cellValues.add(getText(i, j));
+        for (int k = 0; k < size; k++) {
+            if (k != i && !getText(k, j).equals(""))
+                if (cellValues.contains(getText(k, j))) {
                     colorColumnOrRow("row", j);
                     rowState = false;
                     break;
-                } else cellValues.add(cellTable[k][j].getText());
+                } else cellValues.add(getText(k, j));
         }
         if (rowState && redRows.contains(j)) discolorColumnOrRow("row", j);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "row and column";
+            event.size = size;
+            event.cageCount = allCages.size();
+            event.outcome = columnState && rowState ? "correct" : "mistake";
+            event.commit();
+        }
     }
 }
@@ -0,0 +1,238 @@
+package mathdoku.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the history of the changes made to a board, used for undo and redo.
+ * Every change is packed in a single int (cell index, old value and new value) and kept in a ring buffer
+ * with a limited capacity, so the oldest changes are dropped in long games. The buffer starts small and grows
+ * up to the capacity, so a short game takes little memory.
+ * Changes can be grouped into one step, and a copy of the board is kept every few steps so that
+ * any step of the history can be reached without replaying all of it.
+ */
+public class UndoLog {
+
+    private static final int VALUE_BITS = 8;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+    private static final int STEP_START = 1 << 30;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] entries;
+    private int capacity;
+    private List<Snapshot> snapshots = new ArrayList<>();
+    private byte[] values;
+    private int snapshotInterval;
+    //Absolute positions in the history, the entries from start to end are in the ring buffer
+    private long start;
+    private long position;
+    private long end;
+    private int step;
+    private int lastStep;
+    private boolean grouping;
+    private boolean stepStarted;
+
+    /**
+     * Creates an empty history for a board with the given number of cells.
+     *
+     * @param numberOfCells    the number of cells in the board
+     * @param capacity         the maximum number of changes to keep
+     * @param snapshotInterval the number of steps between two copies of the board
+     */
+    public UndoLog(int numberOfCells, int capacity, int snapshotInterval) {
+        entries = new int[Math.min(capacity, INITIAL_CAPACITY)];
+        this.capacity = capacity;
+        values = new byte[numberOfCells];
+        this.snapshotInterval = snapshotInterval;
+        snapshots.add(new Snapshot(0, 0, values.clone()));
+    }
+
+    public static int getCell(int entry) {
+        return (entry & ~STEP_START) >>> (2 * VALUE_BITS);
+    }
+
+    public static int getOldValue(int entry) {
+        return (entry >>> VALUE_BITS) & VALUE_MASK;
+    }
+
+    public static int getNewValue(int entry) {
+        return entry & VALUE_MASK;
+    }
+
+    /**
+     * Starts a group of changes that is undone and redone as a single step.
+     */
+    public void beginStep() {
+        grouping = true;
+        stepStarted = false;
+    }
+
+    /**
+     * Ends the group of changes started by {@link #beginStep()}.
+     */
+    public void endStep() {
+        grouping = false;
+        if (stepStarted) takeSnapshotIfNeeded();
+    }
+
+    /**
+     * Records a change of a cell value. Removes the steps that could have been redone.
+     *
+     * @param cell     the index of the cell
+     * @param oldValue the value before the change, 0 for an empty cell
+     * @param newValue the value after the change, 0 for an empty cell
+     */
+    public void record(int cell, int oldValue, int newValue) {
+        if (oldValue == newValue) return;
+        //A new change makes the undone steps impossible to redo
+        if (end != position) {
+            end = position;
+            lastStep = step;
+            while (snapshots.get(snapshots.size() - 1).step > step) snapshots.remove(snapshots.size() - 1);
+        }
+
+        boolean startsStep = !grouping || !stepStarted;
+        if (startsStep) {
+            step++;
+            lastStep = step;
+            stepStarted = true;
+        }
+        //If all of the history has to be dropped, the rest of the group becomes a step on its own
+        if (end - start == entries.length && entries.length < capacity) grow();
+        if (end - start == entries.length && !dropOldestSteps()) startsStep = true;
+
+        int entry = (cell << (2 * VALUE_BITS)) | (oldValue << VALUE_BITS) | newValue;
+        if (startsStep) entry |= STEP_START;
+        entries[(int) (end % entries.length)] = entry;
+        end++;
+        position = end;
+        values[cell] = (byte) newValue;
+        if (!grouping) takeSnapshotIfNeeded();
+    }
+
+    public boolean canUndo() {
+        return position > start;
+    }
+
+    public boolean canRedo() {
+        return position < end;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getFirstStep() {
+        return snapshots.get(0).step;
+    }
+
+    public int getLastStep() {
+        return lastStep;
+    }
+
+    /**
+     * Undoes the last step and returns its changes, starting from the last one.
+     * The old value of every change has to be put back in its cell.
+     */
+    public int[] undo() {
+        List<Integer> undone = new ArrayList<>();
+        while (position > start) {
+            int entry = entries[(int) (--position % entries.length)];
+            values[getCell(entry)] = (byte) getOldValue(entry);
+            undone.add(entry);
+            if ((entry & STEP_START) != 0) break;
+        }
+        step--;
+        return toArray(undone);
+    }
+
+    /**
+     * Redoes the last undone step and returns its changes in their order.
+     * The new value of every change has to be put back in its cell.
+     */
+    public int[] redo() {
+        List<Integer> redone = new ArrayList<>();
+        do {
+            int entry = entries[(int) (position++ % entries.length)];
+            values[getCell(entry)] = (byte) getNewValue(entry);
+            redone.add(entry);
+        } while (position < end && (entries[(int) (position % entries.length)] & STEP_START) == 0);
+        step++;
+        return toArray(redone);
+    }
+
+    /**
+     * Moves the history to any step between the first and the last one and returns the values of the board there.
+     * Starts from the closest copy of the board before the step, found by binary search, and replays the changes after it.
+     *
+     * @param targetStep the step to move to
+     */
+    public byte[] moveTo(int targetStep) {
+        int low = 0, high = snapshots.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) / 2;
+            if (snapshots.get(middle).step <= targetStep) low = middle;
+            else high = middle - 1;
+        }
+        Snapshot snapshot = snapshots.get(low);
+        values = snapshot.values.clone();
+        position = snapshot.position;
+        step = snapshot.step;
+        while (step < targetStep && position < end) redo();
+        return values.clone();
+    }
+
+    /**
+     * Doubles the ring buffer, never beyond the capacity, keeping every entry at its absolute position.
+     */
+    private void grow() {
+        int[] newEntries = new int[(int) Math.min(capacity, 2L * entries.length)];
+        for (long p = start; p < end; p++) newEntries[(int) (p % newEntries.length)] = entries[(int) (p % entries.length)];
+        entries = newEntries;
+    }
+
+    /**
+     * Keeps a copy of the board every few steps.
+     */
+    private void takeSnapshotIfNeeded() {
+        if (step - snapshots.get(snapshots.size() - 1).step >= snapshotInterval)
+            snapshots.add(new Snapshot(step, position, values.clone()));
+    }
+
+    /**
+     * Drops the steps before the second copy of the board, or all of the history if there is only one copy.
+     *
+     * @return false if all of the history was dropped
+     */
+    private boolean dropOldestSteps() {
+        if (snapshots.size() > 1) {
+            snapshots.remove(0);
+            start = snapshots.get(0).position;
+            return true;
+        }
+        snapshots.set(0, new Snapshot(step - 1, end, values.clone()));
+        start = end;
+        return false;
+    }
+
+    private int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int k = 0; k < array.length; k++) array[k] = list.get(k);
+        return array;
+    }
+
+    /**
+     * Represents a copy of the board at a step of the history.
+     */
+    private static class Snapshot {
+        private final int step;
+        private final long position;
+        private final byte[] values;
+
+        private Snapshot(int step, long position, byte[] values) {
+            this.step = step;
+            this.position = position;
+            this.values = values;
+        }
+    }
+}
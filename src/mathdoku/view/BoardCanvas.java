@@ -0,0 +1,151 @@
+package mathdoku.view;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import mathdoku.controller.Controller;
+import mathdoku.model.Board;
+import mathdoku.model.Cage;
+import mathdoku.model.Puzzle;
+import mathdoku.model.Table;
+
+/**
+ * Represents a renderer that draws the whole table on a single canvas.
+ * Used instead of the cell nodes for large tables, where the number of nodes makes the interface slow.
+ * Every cell is drawn from the board of the table, so there is no node for a cell. Only the cells that change
+ * are drawn again, and a click is turned into the cell under the mouse.
+ */
+public class BoardCanvas extends Canvas {
+
+    private Table table;
+    private Pane holder = new Pane(this);
+
+    /**
+     * Creates a canvas for the table that fills the space given to it.
+     *
+     * @param table the table to draw
+     */
+    public BoardCanvas(Table table) {
+        super();
+        this.table = table;
+        widthProperty().bind(holder.widthProperty());
+        heightProperty().bind(holder.heightProperty());
+        widthProperty().addListener(observable -> draw());
+        heightProperty().addListener(observable -> draw());
+
+        //Finds the cell under the mouse and selects it the same way as a click on a cell node
+        setOnMouseClicked(mouseEvent -> {
+            int i = (int) Math.floor((mouseEvent.getX() - getOffsetX()) / getCellSize());
+            int j = (int) Math.floor((mouseEvent.getY() - getOffsetY()) / getCellSize());
+            if (i >= 0 && i < table.getSize() && j >= 0 && j < table.getSize())
+                Controller.CellSelected.select(i, j);
+        });
+    }
+
+    /**
+     * Returns the pane that holds the canvas and gives it its size.
+     */
+    public Pane getHolder() {
+        return holder;
+    }
+
+    /**
+     * Draws all of the cells.
+     */
+    public void draw() {
+        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+        for (int i = 0; i < table.getSize(); i++)
+            for (int j = 0; j < table.getSize(); j++) drawCell(i, j);
+    }
+
+    /**
+     * Draws a single cell again, without touching anything outside of its square.
+     *
+     * @param i coordinate
+     * @param j coordinate
+     */
+    public void drawCell(int i, int j) {
+        GraphicsContext graphics = getGraphicsContext2D();
+        Board board = table.getBoard();
+        Puzzle puzzle = board.getPuzzle();
+        int cage = puzzle.getCageOfCell(j * table.getSize() + i);
+        double cellSize = getCellSize();
+        double x = getOffsetX() + i * cellSize;
+        double y = getOffsetY() + j * cellSize;
+
+        graphics.save();
+        graphics.beginPath();
+        graphics.rect(x, y, cellSize, cellSize);
+        graphics.clip();
+
+        //Background of a selected cell, a cell with a mistake or a normal cell
+        if (table.isSelected(i, j)) graphics.setFill(Color.GRAY);
+        else if (board.isRed(i, j)) graphics.setFill(Color.RED);
+        else graphics.setFill(Color.WHITE);
+        graphics.fillRect(x, y, cellSize, cellSize);
+
+        //Thin grid lines and thick lines on the sides that are borders of the cage
+        graphics.setStroke(Color.LIGHTGRAY);
+        graphics.setLineWidth(1);
+        graphics.strokeLine(x, y, x + cellSize, y);
+        graphics.strokeLine(x, y, x, y + cellSize);
+        graphics.setStroke(Color.BLACK);
+        graphics.setLineWidth(3);
+        if (!isInCage(i, j - 1, cage)) graphics.strokeLine(x, y, x + cellSize, y);
+        if (!isInCage(i, j + 1, cage)) graphics.strokeLine(x, y + cellSize, x + cellSize, y + cellSize);
+        if (!isInCage(i - 1, j, cage)) graphics.strokeLine(x, y, x, y + cellSize);
+        if (!isInCage(i + 1, j, cage)) graphics.strokeLine(x + cellSize, y, x + cellSize, y + cellSize);
+
+        //Target in the top left corner and value in the center
+        graphics.setFill(Color.BLACK);
+        graphics.setTextAlign(TextAlignment.LEFT);
+        graphics.setTextBaseline(VPos.TOP);
+        graphics.setFont(Font.font(cellSize * 0.2));
+        //The target is shown in the first cell of the cage
+        Cage cageObject = puzzle.getAllCages().get(cage);
+        if (cageObject.getIDs().get(0) == j * table.getSize() + i + 1) graphics.fillText(cageObject.getTarget(), x + 3, y + 3);
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        graphics.setFont(Font.font(cellSize * 0.5));
+        graphics.fillText(table.getText(i, j), x + cellSize / 2, y + cellSize / 2);
+
+        //Pencil marks or candidates in small lines under the target, only shown while the cell has no value
+        String[] marksLines = board.getMarksText(i, j).split("\n");
+        double lineHeight = cellSize * 0.7 / Math.max(3, marksLines.length);
+        graphics.setFill(Color.DIMGRAY);
+        graphics.setTextBaseline(VPos.TOP);
+        graphics.setFont(Font.font(lineHeight * 0.9));
+        for (int line = 0; line < marksLines.length; line++)
+            graphics.fillText(marksLines[line], x + cellSize / 2, y + cellSize * 0.28 + line * lineHeight);
+
+        graphics.restore();
+    }
+
+    /**
+     * Checks if a cell is inside the table and in the given cage.
+     *
+     * @param i    coordinate
+     * @param j    coordinate
+     * @param cage the index of the cage
+     */
+    private boolean isInCage(int i, int j, int cage) {
+        int size = table.getSize();
+        return i >= 0 && i < size && j >= 0 && j < size && table.getBoard().getPuzzle().getCageOfCell(j * size + i) == cage;
+    }
+
+    private double getCellSize() {
+        return Math.min(getWidth(), getHeight()) / table.getSize();
+    }
+
+    private double getOffsetX() {
+        return (getWidth() - getCellSize() * table.getSize()) / 2;
+    }
+
+    private double getOffsetY() {
+        return (getHeight() - getCellSize() * table.getSize()) / 2;
+    }
+}
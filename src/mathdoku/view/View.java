@@ -21,11 +21,13 @@ public class View extends Application {
     private MenuItem mediumSize = new MenuItem("Medium");
     private MenuItem largeSize = new MenuItem("Large");
     private MenuBar menuBar;
+    private Stage stage;
 
     @Override
     public void start(Stage stage) {
         //Saves an instance of the View class
         View.instance = this;
+        this.stage = stage;
         stage.setTitle("Mathdoku");
 
         //Setting up the menu
@@ -42,9 +44,14 @@ public class View extends Application {
         MenuItem generateGame = new MenuItem("Generate a game");
         MenuItem showMistakesItem = new MenuItem("Show Mistakes");
         MenuItem hint = new MenuItem("Show Hint");
+        CheckMenuItem pencilItem = new CheckMenuItem("Pencil Marks");
+        CheckMenuItem autoCandidatesItem = new CheckMenuItem("Auto Candidates");
+        MenuItem checkItem = new MenuItem("Check Solvability");
+        CheckMenuItem continuousCheckItem = new CheckMenuItem("Check While Typing");
         edit.getItems().addAll(undoItem, redoItem, clearItem);
         load.getItems().addAll(loadFromPc, loadFromTextInput, generateGame);
-        showmis.getItems().addAll(showMistakesItem, hint);
+        showmis.getItems().addAll(showMistakesItem, hint, pencilItem, autoCandidatesItem, checkItem,
+                continuousCheckItem);
         font.getItems().addAll(smallSize, mediumSize, largeSize);
         menuBar.getMenus().addAll(edit, load, showmis, font);
 
@@ -56,6 +63,10 @@ public class View extends Application {
         undoItem.setOnAction(new Controller.UndoListener());
         redoItem.setOnAction(new Controller.RedoListener());
         hint.setOnAction(new Controller.HintListener());
+        pencilItem.setOnAction(new Controller.PencilMode());
+        autoCandidatesItem.setOnAction(new Controller.AutoCandidates());
+        checkItem.setOnAction(new Controller.SolvabilityCheck());
+        continuousCheckItem.setOnAction(new Controller.ContinuousSolvabilityCheck());
         generateGame.setOnAction(new Controller.GenerateGame());
         smallSize.setOnAction(new Controller.FontSize());
         mediumSize.setOnAction(new Controller.FontSize());
@@ -98,6 +109,15 @@ public class View extends Application {
         redoItem.setDisable(condition);
     }
 
+    /**
+     * Shows a status next to the name of the application in the title of the window.
+     *
+     * @param status the status, an empty string for none
+     */
+    public void setStatus(String status) {
+        stage.setTitle(status.isEmpty() ? "Mathdoku" : "Mathdoku - " + status);
+    }
+
 
     public static View getInstance() {
         return instance;
@@ -87,6 +87,13 @@ public class WinningAnimation {
      */
     private ParallelTransition getNumberRotations() {
         ParallelTransition allRotations = new ParallelTransition();
+        //A table drawn on a canvas has no number nodes, so the whole canvas is rotated
+        if (Controller.getTable().getBoardCanvas() != null) {
+            RotateTransition transition = new RotateTransition(Duration.seconds(3), Controller.getTable().getBoardCanvas());
+            transition.setByAngle(1800);
+            allRotations.getChildren().add(transition);
+            return allRotations;
+        }
         for (int i = 0; i < Controller.getTable().getSize(); i++)
             for (Cell cell : Controller.getTable().getCellTable()[i]) {
                 RotateTransition transition = new RotateTransition(Duration.seconds(3), cell.getTextLabel());
@@ -0,0 +1,122 @@
+package mathdoku.controller;
+
+import mathdoku.model.Puzzle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the hints of a known puzzle are valid moves: the right value of an empty cell,
+ * given only when the cells its reason reads are right, or a mistake of the player.
+ */
+class HintEngineTest {
+
+    private static final String PUZZLE_TEXT = "11+ 1,7\n2÷ 2,3\n20x 4,10\n6x 5,6,12,18\n3- 8,9\n3÷ 11,17\n240x 13,14,19,20\n"
+            + "6x 15,16\n6x 21,27\n7+ 22,28,29\n30x 23,24\n6x 25,26\n9+ 30,36\n8+ 31,32,33\n2÷ 34,35";
+    private static final int[] SOLUTION = {
+            5, 6, 3, 4, 1, 2,
+            6, 1, 4, 5, 2, 3,
+            4, 5, 2, 3, 6, 1,
+            3, 4, 1, 2, 5, 6,
+            2, 3, 6, 1, 4, 5,
+            1, 2, 5, 6, 3, 4};
+    private static final int SIZE = 6;
+
+    private HintEngine hintEngine;
+    private int[] board;
+
+    @BeforeEach
+    void createHintEngine() {
+        Puzzle puzzle = new Puzzle(PUZZLE_TEXT, null);
+        SolveResult result = new Solver(puzzle.getAllCages(), SIZE, 1, new CancellationToken(10000, 0)).getResult();
+        hintEngine = new HintEngine(puzzle.getAllCages(), SIZE, result.getSolutions().get(0));
+        board = new int[SIZE * SIZE];
+    }
+
+    @Test
+    void stepsFillEveryCellOnce() {
+        boolean[] filled = new boolean[SIZE * SIZE];
+        for (HintEngine.Hint step : hintEngine.getSteps()) {
+            assertFalse(filled[step.getCell()], "cell " + step.getCell() + " filled twice");
+            filled[step.getCell()] = true;
+            assertEquals(SOLUTION[step.getCell()], step.getValue());
+            //A step only reads the cells filled before it
+            for (int premise : step.getPremises()) assertTrue(filled[premise] && premise != step.getCell());
+        }
+        assertEquals(SIZE * SIZE, hintEngine.getSteps().size());
+        //Only the first value of the puzzle is taken from the solution, the logic finds all of the others
+        assertEquals(HintEngine.Technique.SOLUTION, hintEngine.getSteps().get(0).getTechnique());
+        for (HintEngine.Hint step : hintEngine.getSteps().subList(1, SIZE * SIZE))
+            assertNotEquals(HintEngine.Technique.SOLUTION, step.getTechnique());
+    }
+
+    @Test
+    void followingTheHintsSolvesTheBoard() {
+        int hints = 0;
+        for (HintEngine.Hint hint = hintEngine.getNextHint(); hint != null; hint = hintEngine.getNextHint()) {
+            assertValidMove(hint);
+            enter(hint.getCell(), hint.getValue());
+            assertTrue(++hints <= SIZE * SIZE, "more hints than cells");
+        }
+        assertArrayEquals(SOLUTION, board);
+    }
+
+    @Test
+    void hintsStayValidWhenThePlayerFillsOtherCells() {
+        List<Integer> cells = new ArrayList<>();
+        for (int cell = 0; cell < SIZE * SIZE; cell++) cells.add(cell);
+        Collections.shuffle(cells, new Random(3));
+
+        //The player fills half of the cells in any order, and the hints fill the rest
+        for (int cell : cells.subList(0, cells.size() / 2)) {
+            enter(cell, SOLUTION[cell]);
+            HintEngine.Hint hint = hintEngine.getNextHint();
+            if (hint != null) assertValidMove(hint);
+        }
+        for (HintEngine.Hint hint = hintEngine.getNextHint(); hint != null; hint = hintEngine.getNextHint()) {
+            assertValidMove(hint);
+            enter(hint.getCell(), hint.getValue());
+        }
+        assertArrayEquals(SOLUTION, board);
+    }
+
+    @Test
+    void mistakeIsPointedOutFirst() {
+        enter(0, SOLUTION[0]);
+        int wrongValue = SOLUTION[7] % SIZE + 1;
+        enter(7, wrongValue);
+
+        HintEngine.Hint hint = hintEngine.getNextHint();
+        assertTrue(hint.isMistake());
+        assertEquals(7, hint.getCell());
+        assertEquals(wrongValue, hint.getValue());
+
+        //Removing the mistake brings back the logical steps
+        enter(7, 0);
+        hint = hintEngine.getNextHint();
+        assertFalse(hint.isMistake());
+        assertValidMove(hint);
+    }
+
+    private void enter(int cell, int value) {
+        board[cell] = value;
+        hintEngine.setValue(cell, value);
+    }
+
+    /**
+     * Checks that a hint gives the right value of an empty cell and that every cell its reason reads is right.
+     */
+    private void assertValidMove(HintEngine.Hint hint) {
+        assertFalse(hint.isMistake(), "unexpected mistake in " + hint.getCell());
+        assertEquals(0, board[hint.getCell()], "hint for a filled cell " + hint.getCell());
+        assertEquals(SOLUTION[hint.getCell()], hint.getValue());
+        for (int premise : hint.getPremises()) assertEquals(SOLUTION[premise], board[premise], "premise " + premise);
+        assertFalse(hint.getReason().isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package mathdoku.controller;
+
+import mathdoku.model.GameSession;
+import mathdoku.model.Puzzle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the sessions of many players created, played and ended at the same time.
+ */
+class SessionManagerTest {
+
+    private static final String PUZZLE_TEXT = "11+ 1,7\n2÷ 2,3\n20x 4,10\n6x 5,6,12,18\n3- 8,9\n3÷ 11,17\n240x 13,14,19,20\n"
+            + "6x 15,16\n6x 21,27\n7+ 22,28,29\n30x 23,24\n6x 25,26\n9+ 30,36\n8+ 31,32,33\n2÷ 34,35";
+    private static final int[] SOLUTION = {
+            5, 6, 3, 4, 1, 2,
+            6, 1, 4, 5, 2, 3,
+            4, 5, 2, 3, 6, 1,
+            3, 4, 1, 2, 5, 6,
+            2, 3, 6, 1, 4, 5,
+            1, 2, 5, 6, 3, 4};
+    private static final int THREADS = 8;
+    private static final int SESSIONS_PER_THREAD = 200;
+
+    @Test
+    void concurrentPlayersGetTheirOwnSessions() throws Exception {
+        SessionManager manager = new SessionManager();
+        Puzzle puzzle = new Puzzle(PUZZLE_TEXT, null);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> ids = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            ids.add(executor.submit(() -> {
+                start.await();
+                List<Long> threadIds = new ArrayList<>();
+                for (int s = 0; s < SESSIONS_PER_THREAD; s++) {
+                    GameSession session = manager.createSession(puzzle);
+                    threadIds.add(session.getId());
+                    //Every session is played to the end, without seeing the values of the others
+                    for (int cell = 0; cell < SOLUTION.length; cell++)
+                        assertEquals(0, manager.getSession(session.getId()).getValue(cell));
+                    for (int cell = 0; cell < SOLUTION.length; cell++) session.enterValue(cell, SOLUTION[cell]);
+                    assertTrue(session.isSolved());
+                }
+                return threadIds;
+            }));
+        }
+        start.countDown();
+
+        Set<Long> allIds = new HashSet<>();
+        for (Future<List<Long>> future : ids) allIds.addAll(future.get());
+        assertEquals(THREADS * SESSIONS_PER_THREAD, allIds.size());
+        assertEquals(THREADS * SESSIONS_PER_THREAD, manager.getNumberOfSessions());
+
+        //Ending the sessions from many threads ends each of them once
+        List<Future<Integer>> removed = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++)
+            removed.add(executor.submit(() -> {
+                int count = 0;
+                for (long id : allIds) if (manager.removeSession(id)) count++;
+                return count;
+            }));
+        int removedCount = 0;
+        for (Future<Integer> future : removed) removedCount += future.get();
+        executor.shutdown();
+        assertEquals(THREADS * SESSIONS_PER_THREAD, removedCount);
+        assertEquals(0, manager.getNumberOfSessions());
+    }
+
+    @Test
+    void evictsOnlyIdleSessions() throws Exception {
+        SessionManager manager = new SessionManager();
+        Puzzle puzzle = new Puzzle(PUZZLE_TEXT, null);
+        GameSession idleSession = manager.createSession(puzzle);
+        GameSession activeSession = manager.createSession(puzzle);
+        Thread.sleep(200);
+        activeSession.enterValue(0, SOLUTION[0]);
+
+        assertEquals(1, manager.evictIdleSessions(100));
+        assertNull(manager.getSession(idleSession.getId()));
+        assertSame(activeSession, manager.getSession(activeSession.getId()));
+    }
+}
@@ -0,0 +1,185 @@
+package mathdoku.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the counters of the board, which are kept up to date on every change instead of being counted again,
+ * and the pencil marks and candidates, which are kept as bits.
+ */
+class BoardTest {
+
+    static final String PUZZLE_TEXT = "11+ 1,7\n2÷ 2,3\n20x 4,10\n6x 5,6,12,18\n3- 8,9\n3÷ 11,17\n240x 13,14,19,20\n"
+            + "6x 15,16\n6x 21,27\n7+ 22,28,29\n30x 23,24\n6x 25,26\n9+ 30,36\n8+ 31,32,33\n2÷ 34,35";
+    static final int[] SOLUTION = {
+            5, 6, 3, 4, 1, 2,
+            6, 1, 4, 5, 2, 3,
+            4, 5, 2, 3, 6, 1,
+            3, 4, 1, 2, 5, 6,
+            2, 3, 6, 1, 4, 5,
+            1, 2, 5, 6, 3, 4};
+    private static final int SIZE = 6;
+
+    @Test
+    void emptyBoardHasOnlyEmptyCells() {
+        Board board = new Board(new Puzzle(PUZZLE_TEXT, null));
+        assertEquals(SIZE * SIZE, board.getEmptyCells());
+        assertEquals(0, board.getConflicts());
+        assertEquals(0, board.getWrongCageCount());
+        assertFalse(board.isSolved());
+    }
+
+    @Test
+    void solutionIsSolved() {
+        Board board = new Board(new Puzzle(PUZZLE_TEXT, null));
+        for (int cell = 0; cell < SOLUTION.length; cell++) board.setValue(cell % SIZE, cell / SIZE, SOLUTION[cell]);
+        assertTrue(board.isSolved());
+
+        //Swapping two values of a row keeps the rows right but breaks the columns and the cages
+        board.setValue(0, 0, SOLUTION[1]);
+        board.setValue(1, 0, SOLUTION[0]);
+        assertFalse(board.isSolved());
+        assertEquals(0, board.getEmptyCells());
+        assertTrue(board.getConflicts() > 0);
+        assertTrue(board.getWrongCageCount() > 0);
+    }
+
+    @Test
+    void countersMatchRecountAfterRandomChanges() {
+        Puzzle puzzle = new Puzzle(PUZZLE_TEXT, null);
+        Board board = new Board(puzzle);
+        Random random = new Random(42);
+        for (int change = 0; change < 5000; change++) {
+            int cell = random.nextInt(SIZE * SIZE);
+            //Values from the solution are more likely, so the board is often nearly solved
+            int value = random.nextInt(3) == 0 ? SOLUTION[cell] : random.nextInt(SIZE + 1);
+            board.setValue(cell % SIZE, cell / SIZE, value);
+
+            assertEquals(countEmptyCells(board), board.getEmptyCells(), "empty cells after change " + change);
+            assertEquals(countConflicts(board), board.getConflicts(), "conflicts after change " + change);
+            assertEquals(countWrongCages(board, puzzle), board.getWrongCageCount(), "wrong cages after change " + change);
+        }
+    }
+
+    @Test
+    void pencilMarksAreToggledAsBits() {
+        Board board = new Board(new Puzzle(PUZZLE_TEXT, null));
+        assertEquals(0, board.getPencilMarks(2, 4));
+        board.togglePencilMark(2, 4, 3);
+        board.togglePencilMark(2, 4, 6);
+        assertEquals((1L << 3) | (1L << 6), board.getPencilMarks(2, 4));
+        assertEquals((1L << 3) | (1L << 6), board.getMarks(2, 4));
+        board.togglePencilMark(2, 4, 3);
+        assertEquals(1L << 6, board.getPencilMarks(2, 4));
+        assertTrue(board.takeChangedMarks().contains(4 * SIZE + 2));
+        assertTrue(board.takeChangedMarks().isEmpty());
+
+        board.clearPencilMarks(2, 4);
+        assertEquals(0, board.getPencilMarks(2, 4));
+        assertEquals(0, board.getPencilMarks(3, 4));
+    }
+
+    @Test
+    void marksTextHidesMarksOfCellWithValue() {
+        assertEquals("1 2 3\n4 5", Board.getMarksText(0b111110));
+        assertEquals("", Board.getMarksText(0));
+
+        Board board = new Board(new Puzzle(PUZZLE_TEXT, null));
+        board.togglePencilMark(0, 0, 2);
+        assertEquals("2", board.getMarksText(0, 0));
+        board.setValue(0, 0, 5);
+        assertEquals("", board.getMarksText(0, 0));
+    }
+
+    @Test
+    void candidatesOfEmptyBoardFollowTheCages() {
+        Board board = new Board(new Puzzle(PUZZLE_TEXT, null));
+        board.setAutoCandidates(true);
+        //The 3÷ cage of cells 11 and 17 can only be 1 and 3 or 2 and 6
+        assertEquals((1L << 1) | (1L << 2) | (1L << 3) | (1L << 6), board.getCandidates(4, 1));
+        //The 2÷ cage of cells 2 and 3 can not hold a 5
+        assertEquals(0, board.getCandidates(1, 0) & (1L << 5));
+        //Pencil marks are kept but not shown while the candidates are
+        board.togglePencilMark(0, 0, 4);
+        assertEquals(board.getCandidates(0, 0), board.getMarks(0, 0));
+        board.setAutoCandidates(false);
+        assertEquals(1L << 4, board.getMarks(0, 0));
+        assertEquals(0, board.getCandidates(0, 0));
+    }
+
+    @Test
+    void candidatesMatchFullUpdateAfterRandomChanges() {
+        Puzzle puzzle = new Puzzle(PUZZLE_TEXT, null);
+        Board board = new Board(puzzle);
+        board.setAutoCandidates(true);
+        Random random = new Random(7);
+        for (int change = 0; change < 2000; change++) {
+            int cell = random.nextInt(SIZE * SIZE);
+            int value = random.nextInt(2) == 0 ? SOLUTION[cell] : random.nextInt(SIZE + 1);
+            board.setValue(cell % SIZE, cell / SIZE, value);
+
+            //A new board finds the candidates of every cell at once
+            Board fullBoard = new Board(puzzle);
+            for (int other = 0; other < SIZE * SIZE; other++)
+                fullBoard.setValue(other % SIZE, other / SIZE, board.getValue(other % SIZE, other / SIZE));
+            fullBoard.setAutoCandidates(true);
+
+            boolean fitsSolution = true;
+            for (int other = 0; other < SIZE * SIZE; other++) {
+                int entered = board.getValue(other % SIZE, other / SIZE);
+                if (entered != 0 && entered != SOLUTION[other]) fitsSolution = false;
+            }
+            for (int i = 0; i < SIZE; i++)
+                for (int j = 0; j < SIZE; j++) {
+                    long candidates = board.getCandidates(i, j);
+                    assertEquals(fullBoard.getCandidates(i, j), candidates, "candidates of " + i + "," + j + " after change " + change);
+                    if (board.getValue(i, j) != 0) assertEquals(0, candidates);
+                    for (int k = 0; k < SIZE; k++) {
+                        assertEquals(0, candidates & (1L << board.getValue(k, j)) & ~1L, "value of the row is a candidate");
+                        assertEquals(0, candidates & (1L << board.getValue(i, k)) & ~1L, "value of the column is a candidate");
+                    }
+                    //The values of the solution are never ruled out while the board fits it
+                    if (fitsSolution && board.getValue(i, j) == 0)
+                        assertNotEquals(0, candidates & (1L << SOLUTION[j * SIZE + i]), "solution ruled out in " + i + "," + j);
+                }
+        }
+    }
+
+    private int countEmptyCells(Board board) {
+        int emptyCells = 0;
+        for (int i = 0; i < SIZE; i++)
+            for (int j = 0; j < SIZE; j++) if (board.getValue(i, j) == 0) emptyCells++;
+        return emptyCells;
+    }
+
+    /**
+     * Counts every value of a row or column after its first one as a conflict.
+     */
+    private int countConflicts(Board board) {
+        int conflicts = 0;
+        for (int line = 0; line < SIZE; line++) {
+            int[] rowCounts = new int[SIZE + 1];
+            int[] columnCounts = new int[SIZE + 1];
+            for (int k = 0; k < SIZE; k++) {
+                if (board.getValue(k, line) != 0 && rowCounts[board.getValue(k, line)]++ > 0) conflicts++;
+                if (board.getValue(line, k) != 0 && columnCounts[board.getValue(line, k)]++ > 0) conflicts++;
+            }
+        }
+        return conflicts;
+    }
+
+    private int countWrongCages(Board board, Puzzle puzzle) {
+        int wrongCages = 0;
+        for (Cage cage : puzzle.getAllCages()) {
+            List<Integer> values = new ArrayList<>();
+            for (int id : cage.getIDs()) values.add(board.getValue((id - 1) % SIZE, (id - 1) / SIZE));
+            if (!values.contains(0) && !cage.checkTarget(values)) wrongCages++;
+        }
+        return wrongCages;
+    }
+}
@@ -0,0 +1,96 @@
+package mathdoku.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests a session used by many threads at once: no change is lost and the counters always match the board.
+ */
+class GameSessionTest {
+
+    private static final int SIZE = 6;
+    private static final int THREADS = 8;
+    private static final int CHANGES_PER_THREAD = 2000;
+
+    @Test
+    void rejectsCellsAndValuesOutsideTheTable() {
+        GameSession session = new GameSession(1, new Puzzle(BoardTest.PUZZLE_TEXT, null), 64, 8);
+        assertThrows(IllegalArgumentException.class, () -> session.enterValue(SIZE * SIZE, 1));
+        assertThrows(IllegalArgumentException.class, () -> session.enterValue(0, SIZE + 1));
+        assertFalse(session.enterValue(0, 0));
+        assertFalse(session.undo());
+    }
+
+    @Test
+    void concurrentChangesAreAllRecorded() throws Exception {
+        GameSession session = new GameSession(1, new Puzzle(BoardTest.PUZZLE_TEXT, null), THREADS * CHANGES_PER_THREAD, 64);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> changes = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            changes.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                int made = 0;
+                for (int change = 0; change < CHANGES_PER_THREAD; change++) {
+                    if (session.enterValue(random.nextInt(SIZE * SIZE), random.nextInt(SIZE + 1))) made++;
+                    //Calls that have to see the same board lock the session
+                    synchronized (session) {
+                        assertCountersMatch(session);
+                    }
+                }
+                return made;
+            }));
+        }
+        start.countDown();
+        int made = 0;
+        for (Future<Integer> future : changes) made += future.get();
+        executor.shutdown();
+
+        //Every change that was made can be undone, which leaves the board empty
+        int undone = 0;
+        while (session.undo()) undone++;
+        assertEquals(made, undone);
+        assertArrayEquals(new byte[SIZE * SIZE], session.getGrid());
+        assertEquals(SIZE * SIZE, session.getEmptyCells());
+        assertEquals(0, session.getConflicts());
+    }
+
+    @Test
+    void puzzleIsSharedBySessionsOnManyThreads() throws Exception {
+        Puzzle puzzle = new Puzzle(BoardTest.PUZZLE_TEXT, null);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<GameSession>> sessions = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long id = t;
+            sessions.add(executor.submit(() -> {
+                GameSession session = new GameSession(id, puzzle, 64, 8);
+                for (int cell = 0; cell < SIZE * SIZE; cell++) session.enterValue(cell, BoardTest.SOLUTION[cell]);
+                return session;
+            }));
+        }
+        for (Future<GameSession> future : sessions) {
+            GameSession session = future.get();
+            assertTrue(session.isSolved());
+            assertSame(puzzle, session.getPuzzle());
+        }
+        executor.shutdown();
+    }
+
+    private static void assertCountersMatch(GameSession session) {
+        byte[] grid = session.getGrid();
+        int emptyCells = 0;
+        for (byte value : grid) if (value == 0) emptyCells++;
+        assertEquals(emptyCells, session.getEmptyCells());
+    }
+}
@@ -0,0 +1,181 @@
+package mathdoku.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the history of the board: single and grouped steps, the ring buffer once it is full,
+ * and moving to any step from the copies of the board.
+ */
+class UndoLogTest {
+
+    private static final int NUMBER_OF_CELLS = 36;
+
+    @Test
+    void undoAndRedoSingleChanges() {
+        UndoLog undoLog = new UndoLog(NUMBER_OF_CELLS, 64, 4);
+        assertFalse(undoLog.canUndo());
+        undoLog.record(3, 0, 5);
+        undoLog.record(3, 5, 2);
+
+        int[] undone = undoLog.undo();
+        assertEquals(1, undone.length);
+        assertEquals(3, UndoLog.getCell(undone[0]));
+        assertEquals(5, UndoLog.getOldValue(undone[0]));
+        assertEquals(2, UndoLog.getNewValue(undone[0]));
+        assertTrue(undoLog.canRedo());
+
+        int[] redone = undoLog.redo();
+        assertEquals(1, redone.length);
+        assertEquals(2, UndoLog.getNewValue(redone[0]));
+        assertFalse(undoLog.canRedo());
+    }
+
+    @Test
+    void groupedChangesAreOneStep() {
+        UndoLog undoLog = new UndoLog(NUMBER_OF_CELLS, 64, 4);
+        undoLog.record(0, 0, 1);
+        undoLog.beginStep();
+        for (int cell = 1; cell < 6; cell++) undoLog.record(cell, 0, cell);
+        undoLog.endStep();
+        assertEquals(2, undoLog.getStep());
+
+        int[] undone = undoLog.undo();
+        assertEquals(5, undone.length);
+        //The changes are undone from the last one
+        assertEquals(5, UndoLog.getCell(undone[0]));
+        assertEquals(1, UndoLog.getCell(undone[4]));
+        assertEquals(1, undoLog.getStep());
+        assertEquals(5, undoLog.redo().length);
+    }
+
+    @Test
+    void newChangeRemovesUndoneSteps() {
+        UndoLog undoLog = new UndoLog(NUMBER_OF_CELLS, 64, 4);
+        undoLog.record(0, 0, 1);
+        undoLog.record(1, 0, 2);
+        undoLog.undo();
+        undoLog.record(2, 0, 3);
+        assertFalse(undoLog.canRedo());
+        assertEquals(2, undoLog.getLastStep());
+    }
+
+    @Test
+    void undoAndRedoPastCapacity() {
+        History history = new History(new UndoLog(NUMBER_OF_CELLS, 16, 4), 7);
+        history.recordRandomSteps(200);
+
+        //The oldest steps are dropped, but every step that is kept can be undone and redone
+        UndoLog undoLog = history.undoLog;
+        int undoneSteps = 0;
+        while (undoLog.canUndo()) {
+            history.undo();
+            undoneSteps++;
+            history.assertBoardAtStep();
+        }
+        assertTrue(undoneSteps > 0 && undoneSteps < 200);
+        assertEquals(undoLog.getFirstStep(), undoLog.getStep());
+
+        while (undoLog.canRedo()) {
+            history.redo();
+            history.assertBoardAtStep();
+        }
+        assertEquals(200, undoLog.getStep());
+    }
+
+    @Test
+    void groupLargerThanCapacityKeepsItsEnd() {
+        UndoLog undoLog = new UndoLog(NUMBER_OF_CELLS, 16, 4);
+        undoLog.beginStep();
+        for (int cell = 0; cell < NUMBER_OF_CELLS; cell++) undoLog.record(cell, 0, 1);
+        undoLog.endStep();
+
+        //Only the changes that fit are kept, and they can still be undone
+        int changes = 0;
+        while (undoLog.canUndo()) changes += undoLog.undo().length;
+        assertTrue(changes > 0 && changes <= 16);
+    }
+
+    @Test
+    void moveToEveryStep() {
+        History history = new History(new UndoLog(NUMBER_OF_CELLS, 1024, 4), 11);
+        history.recordRandomSteps(50);
+        UndoLog undoLog = history.undoLog;
+
+        //Every step is reached from the closest copy of the board, in any order
+        for (int step : new int[]{0, 50, 3, 4, 5, 17, 49, 1, 32, 32, 12}) {
+            assertArrayEquals(history.boards.get(step), undoLog.moveTo(step), "board at step " + step);
+            assertEquals(step, undoLog.getStep());
+        }
+
+        //The history goes on from the step it moved to
+        undoLog.moveTo(20);
+        int[] redone = undoLog.redo();
+        byte[] board = history.boards.get(20).clone();
+        for (int entry : redone) board[UndoLog.getCell(entry)] = (byte) UndoLog.getNewValue(entry);
+        assertArrayEquals(history.boards.get(21), board);
+    }
+
+    @Test
+    void moveToEveryStepPastCapacity() {
+        History history = new History(new UndoLog(NUMBER_OF_CELLS, 16, 2), 13);
+        history.recordRandomSteps(100);
+        UndoLog undoLog = history.undoLog;
+
+        for (int step = undoLog.getLastStep(); step >= undoLog.getFirstStep(); step--)
+            assertArrayEquals(history.boards.get(step), undoLog.moveTo(step), "board at step " + step);
+    }
+
+    /**
+     * Represents a board changed through an undo log, with a copy of the board after every step to compare with.
+     */
+    private static class History {
+        private final UndoLog undoLog;
+        private final Random random;
+        private final List<byte[]> boards = new ArrayList<>();
+        private byte[] board = new byte[NUMBER_OF_CELLS];
+
+        private History(UndoLog undoLog, long seed) {
+            this.undoLog = undoLog;
+            random = new Random(seed);
+            boards.add(board.clone());
+        }
+
+        /**
+         * Records steps of one to three changes.
+         */
+        private void recordRandomSteps(int steps) {
+            for (int step = 0; step < steps; step++) {
+                undoLog.beginStep();
+                int changes = 0;
+                while (changes == 0 || (changes < 3 && random.nextBoolean())) {
+                    int cell = random.nextInt(NUMBER_OF_CELLS);
+                    int value = random.nextInt(7);
+                    if (board[cell] == value) continue;
+                    undoLog.record(cell, board[cell], value);
+                    board[cell] = (byte) value;
+                    changes++;
+                }
+                undoLog.endStep();
+                boards.add(board.clone());
+            }
+        }
+
+        private void undo() {
+            for (int entry : undoLog.undo()) board[UndoLog.getCell(entry)] = (byte) UndoLog.getOldValue(entry);
+        }
+
+        private void redo() {
+            for (int entry : undoLog.redo()) board[UndoLog.getCell(entry)] = (byte) UndoLog.getNewValue(entry);
+        }
+
+        private void assertBoardAtStep() {
+            assertArrayEquals(boards.get(undoLog.getStep()), board, "board at step " + undoLog.getStep());
+        }
+    }
+}